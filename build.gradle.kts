@@ -11,6 +11,7 @@ plugins {
     id("org.sonarqube")
     id("com.github.ben-manes.versions")
     id("org.owasp.dependencycheck")
+    id("me.champeau.jmh")
     id("io.github.gradle-nexus.publish-plugin") version "2.0.0"
 }
 
@@ -41,7 +42,27 @@ checkstyle {
 dependencies {
     // Only the dependencies actually used
     implementation(gradleApi())
+    // FailedClassesFirstOrderer runs in the test JVM of projects that use JUnit Jupiter, which supplies the API
+    compileOnly(libs.junit.jupiter.api)
     testImplementation(libs.junit4)
+    testImplementation(libs.junit.jupiter.api)
+}
+
+// Configure JMH benchmarks (src/jmh/java); run with ./gradlew jmh
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    // Keep local runs short; override with -Pjmh.includes=... for a single benchmark
+    warmupIterations = 2
+    iterations = 3
+    fork = 1
+    (project.findProperty("jmh.includes") as String?)?.let { includes = listOf(it) }
+    // Machine-readable results (build/results/jmh/results.json) for comparing plugin versions
+    resultFormat = "JSON"
+}
+
+// Benchmarks reuse the TestDescriptor/TestResult stubs from the unit tests
+dependencies {
+    "jmhImplementation"(sourceSets.test.get().output)
 }
 
 gradlePlugin {
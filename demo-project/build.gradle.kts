@@ -104,3 +104,51 @@ tasks.register("demoAll") {
         "demoPassing"
     )
 }
+
+// Scaled-up suite for measuring plugin overhead, e.g. of JUnit XML reports:
+// ./gradlew scaledTest -PscaledClasses=400 -Dgradldromus.junitXmlReports=never --rerun-tasks --profile
+val scaledClasses = providers.gradleProperty("scaledClasses").map(String::toInt).orElse(400)
+val scaledTestsPerClass = 100
+
+val generateScaledTests by tasks.registering {
+    description = "Generates passing test classes for the scaled benchmark suite"
+    group = "demo"
+    
+    val classCount = scaledClasses
+    val outputDir = layout.buildDirectory.dir("generated/scaled-tests")
+    inputs.property("classes", classCount)
+    outputs.dir(outputDir)
+    doLast {
+        val packageDir = outputDir.get().dir("io/github/clojang/gradldromus/demo/scaled").asFile
+        packageDir.deleteRecursively()
+        packageDir.mkdirs()
+        for (index in 0 until classCount.get()) {
+            val tests = (0 until scaledTestsPerClass).joinToString("\n") {
+                "    @Test public void test$it() { assertEquals($it, Integer.parseInt(\"$it\")); }"
+            }
+            packageDir.resolve("ScaledTests$index.java").writeText(
+                "package io.github.clojang.gradldromus.demo.scaled;\n\n" +
+                "import org.junit.Test;\n" +
+                "import static org.junit.Assert.assertEquals;\n\n" +
+                "public class ScaledTests$index {\n$tests\n}\n"
+            )
+        }
+    }
+}
+
+val scaled by sourceSets.creating {
+    java.srcDir(generateScaledTests)
+}
+
+dependencies {
+    "scaledImplementation"("junit:junit:4.13.2")
+}
+
+tasks.register<Test>("scaledTest") {
+    description = "Runs the generated scaled benchmark suite (100 tests per class)"
+    group = "demo"
+    
+    testClassesDirs = scaled.output.classesDirs
+    classpath = scaled.runtimeClasspath
+    systemProperty("gradldromus.showTimings", "false")
+}
@@ -16,6 +16,7 @@ pluginManagement {
         id("com.google.cloud.tools.jib") version "3.4.5"
         id("io.spring.dependency-management") version "1.1.7"
         id("org.owasp.dependencycheck") version "12.1.3"
+        id("me.champeau.jmh") version "0.7.3"
     }
 }
 
@@ -0,0 +1,145 @@
+package io.github.clojang.gradldromus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link AnsiColors} against the regex/varargs implementation it replaced.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=AnsiColorsBenchmark} and add {@code -prof gc} to see allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnsiColorsBenchmark {
+    private static final String COLORED_LINE = "    " + AnsiColors.WHITE + "SomeTest." + AnsiColors.RESET
+        + AnsiColors.YELLOW + "someMethod " + AnsiColors.RESET
+        + AnsiColors.BRIGHT_BLACK + "........................................" + AnsiColors.RESET
+        + AnsiColors.BOLD + AnsiColors.BRIGHT_GREEN + "ok" + AnsiColors.RESET
+        + " " + AnsiColors.BRIGHT_BLACK + "(12ms)" + AnsiColors.RESET;
+    private static final String PLAIN_LINE = AnsiColors.stripAnsi(COLORED_LINE);
+
+    private AnsiColors colors;
+    private StringBuilder buffer;
+    private String simpleClassName;
+    private String methodName;
+
+    /**
+     * Creates the colorizer and a reusable buffer.
+     */
+    @Setup
+    public void setUp() {
+        colors = new AnsiColors(true);
+        buffer = new StringBuilder();
+        // Fields rather than literals so the legacy concatenations are not constant-folded
+        simpleClassName = "SomeTest";
+        methodName = "someMethod";
+    }
+
+    /**
+     * Current single-pass stripper on a line full of color codes.
+     *
+     * @return the stripped line
+     */
+    @Benchmark
+    public String stripAnsiColored() {
+        return AnsiColors.stripAnsi(COLORED_LINE);
+    }
+
+    /**
+     * Original regex stripper on a line full of color codes.
+     *
+     * @return the stripped line
+     */
+    @Benchmark
+    public String legacyStripAnsiColored() {
+        return legacyStripAnsi(COLORED_LINE);
+    }
+
+    /**
+     * Current single-pass stripper on a line without color codes.
+     *
+     * @return the (unchanged) line
+     */
+    @Benchmark
+    public String stripAnsiPlain() {
+        return AnsiColors.stripAnsi(PLAIN_LINE);
+    }
+
+    /**
+     * Original regex stripper on a line without color codes.
+     *
+     * @return the (unchanged) line
+     */
+    @Benchmark
+    public String legacyStripAnsiPlain() {
+        return legacyStripAnsi(PLAIN_LINE);
+    }
+
+    /**
+     * Current single-style colorize with an interned combined style.
+     *
+     * @return the colorized text
+     */
+    @Benchmark
+    public String colorizeCombinedStyle() {
+        return colors.colorize("ok", AnsiColors.BOLD_BRIGHT_GREEN);
+    }
+
+    /**
+     * Original varargs colorize with two styles.
+     *
+     * @return the colorized text
+     */
+    @Benchmark
+    public String legacyColorizeVarargs() {
+        return legacyColorize("ok", AnsiColors.BOLD, AnsiColors.BRIGHT_GREEN);
+    }
+
+    /**
+     * Current append-into-buffer colorize; no intermediate strings.
+     *
+     * @return the length of the rendered buffer
+     */
+    @Benchmark
+    public int colorizeIntoBuffer() {
+        buffer.setLength(0);
+        colors.colorize(buffer, simpleClassName, AnsiColors.WHITE).append('.');
+        colors.colorize(buffer, methodName, AnsiColors.YELLOW).append(' ');
+        colors.colorize(buffer, "ok", AnsiColors.BOLD_BRIGHT_GREEN);
+        return buffer.length();
+    }
+
+    /**
+     * Original pattern: colorize each piece into a temporary string and append it.
+     *
+     * @return the length of the rendered buffer
+     */
+    @Benchmark
+    public int legacyColorizeThenAppend() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(legacyColorize(simpleClassName + ".", AnsiColors.WHITE));
+        sb.append(legacyColorize(methodName + " ", AnsiColors.YELLOW));
+        sb.append(legacyColorize("ok", AnsiColors.BOLD + AnsiColors.BRIGHT_GREEN));
+        return sb.length();
+    }
+
+    private static String legacyStripAnsi(String text) {
+        return text.replaceAll("\u001B\\[[;\\d]*m", "");
+    }
+
+    private static String legacyColorize(String text, String... styles) {
+        StringBuilder sb = new StringBuilder();
+        for (String style : styles) {
+            sb.append(style);
+        }
+        sb.append(text).append(AnsiColors.RESET);
+        return sb.toString();
+    }
+}
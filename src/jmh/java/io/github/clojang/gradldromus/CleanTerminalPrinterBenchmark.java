@@ -0,0 +1,87 @@
+package io.github.clojang.gradldromus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-line cost of {@link CleanTerminalPrinter#println} against a null sink.
+ * With a configured width and with a probed width the cost should be the same constant,
+ * whereas the legacy path forked {@code tput} for every line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CleanTerminalPrinterBenchmark {
+    private static final String LINE = "    SomeTest.someMethod ......................................... ok (12ms)";
+
+    /** Where the terminal width comes from: the extension, or the cached terminal probe */
+    @Param({"configured", "probed"})
+    public String widthSource;
+
+    private PrintStream sink;
+    private TerminalProbe probe;
+    private CleanTerminalPrinter printer;
+
+    /**
+     * Builds a printer writing to a null sink.
+     */
+    @Setup
+    public void setUp() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        if ("probed".equals(widthSource)) {
+            extension.setTerminalWidth(0);
+        }
+        sink = new PrintStream(OutputStream.nullOutputStream());
+        probe = new TerminalProbe();
+        printer = new CleanTerminalPrinter(extension, probe);
+    }
+
+    /**
+     * Stops the probe's refresh timer.
+     */
+    @TearDown
+    public void tearDown() {
+        probe.close();
+    }
+
+    /**
+     * Prints one line through the printer.
+     */
+    @Benchmark
+    public void println() {
+        printer.println(sink, LINE);
+    }
+
+    /**
+     * Prints one line the way the printer used to when no width was configured: one {@code tput} fork per line.
+     *
+     * @throws Exception if the process cannot be started
+     */
+    @Benchmark
+    public void legacyForkPerLine() throws Exception {
+        int width = CleanTerminalPrinter.DEFAULT_TERM_SM_WIDTH;
+        Process process = Runtime.getRuntime().exec(new String[]{"sh", "-c", "tput cols"});
+        process.waitFor();
+        try (Scanner scanner = new Scanner(process.getInputStream())) {
+            if (scanner.hasNextInt()) {
+                width = scanner.nextInt();
+            }
+        }
+        synchronized (sink) {
+            sink.print("\r" + " ".repeat(width) + "\r");
+            sink.println(LINE);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of rendering one test result through {@link CustomTestListener#afterTest},
+ * written to a null sink so that only formatting and bookkeeping are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CustomTestListenerBenchmark {
+    private static final int STACK_DEPTH = 120;
+    private static final long DURATION_MILLIS = 42;
+
+    /** The outcome of the rendered test */
+    @Param({"pass", "fail", "skip"})
+    public String outcome;
+
+    /** Whether failures are rendered with a limited stack trace, the full stack trace, or just the message */
+    @Param({"limited", "full", "message"})
+    public String stackTraces;
+
+    private CustomTestListener listener;
+    private TestDescriptor descriptor;
+    private TestResult result;
+
+    /**
+     * Builds a listener writing to a null sink plus the descriptor and result to render.
+     */
+    @Setup
+    public void setUp() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_INTERACTIVE);
+        extension.setShowStackTraces("limited".equals(stackTraces));
+        extension.setShowFullStackTraces("full".equals(stackTraces));
+        // Every call fails with the same exception; render it in full each time instead of as a reference
+        extension.setGroupRepeatedFailures(false);
+        // Keep failures on the console sink instead of diverting them to an overflow file after the budget
+        extension.setFailureOutputLimitChars(0);
+        extension.setBuildFailureOutputLimitChars(0);
+        listener = new CustomTestListener(extension, new PrintStream(OutputStream.nullOutputStream()));
+
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor classSuite = StubTestDescriptor.classSuite("com.example.service.OrderServiceTest", root);
+        descriptor = StubTestDescriptor.test(classSuite.getClassName(), "shouldRejectOrdersWithoutLineItems", classSuite);
+        listener.beforeSuite(root);
+
+        switch (outcome) {
+            case "fail":
+                result = StubTestResult.failure(DURATION_MILLIS, deepException(STACK_DEPTH));
+                break;
+            case "skip":
+                result = StubTestResult.skipped();
+                break;
+            default:
+                result = StubTestResult.success(DURATION_MILLIS);
+        }
+    }
+
+    /**
+     * Releases the listener's resources.
+     */
+    @TearDown
+    public void tearDown() {
+        listener.close();
+    }
+
+    /**
+     * Renders one test result.
+     */
+    @Benchmark
+    public void afterTest() {
+        listener.afterTest(descriptor, result);
+    }
+
+    private static Throwable deepException(int depth) {
+        try {
+            recurse(depth);
+        } catch (IllegalStateException e) {
+            return new AssertionError("expected order to be rejected", e);
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    private static void recurse(int depth) {
+        if (depth == 0) {
+            throw new IllegalStateException("line items must not be empty");
+        }
+        recurse(depth - 1);
+    }
+}
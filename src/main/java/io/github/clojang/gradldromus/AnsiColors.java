@@ -1,8 +1,12 @@
 package io.github.clojang.gradldromus;
 
+import java.io.IOException;
+
 /**
  * Utility class for handling ANSI color codes and terminal text formatting.
  * Provides constants for various colors and methods for colorizing text output.
+ * The appending variants write straight into a caller-supplied buffer, so the
+ * per-test rendering path does not create intermediate strings.
  */
 public class AnsiColors {
     // ANSI escape codes
@@ -58,6 +62,22 @@ public class AnsiColors {
     
     //public static final String BRIGHT_WHITE = "\u001B[97m";
     
+    // Combined styles used by the renderer (compile-time constants, so they are interned)
+    
+    /** Bold bright green, used for pass symbols */
+    public static final String BOLD_BRIGHT_GREEN = BOLD + BRIGHT_GREEN;
+    
+    /** Bold bright red, used for fail symbols */
+    public static final String BOLD_BRIGHT_RED = BOLD + BRIGHT_RED;
+    
+    /** Bold bright cyan, used for skip symbols */
+    public static final String BOLD_BRIGHT_CYAN = BOLD + BRIGHT_CYAN;
+    
+    /** Bold bright yellow, used for task headers */
+    public static final String BOLD_BRIGHT_YELLOW = BOLD + BRIGHT_YELLOW;
+    
+    private static final char ESC = '\u001B';
+    
     private final boolean useColors;
     
     /**
@@ -82,7 +102,11 @@ public class AnsiColors {
             return text;
         }
         
-        StringBuilder sb = new StringBuilder();
+        int length = text.length() + RESET.length();
+        for (String color : colors) {
+            length += color.length();
+        }
+        StringBuilder sb = new StringBuilder(length);
         for (String color : colors) {
             sb.append(color);
         }
@@ -91,7 +115,96 @@ public class AnsiColors {
     }
     
     /**
-     * Removes all ANSI escape codes from the given text.
+     * Applies a single ANSI style to the given text without allocating a varargs array.
+     * If colors are disabled, returns the original text unchanged.
+     * 
+     * @param text the text to colorize
+     * @param style the ANSI code (or combined codes, such as {@link #BOLD_BRIGHT_GREEN}) to apply
+     * @return the colorized text, or original text if colors are disabled or text is null
+     */
+    public String colorize(String text, String style) {
+        if (!useColors || text == null) {
+            return text;
+        }
+        return style.concat(text).concat(RESET);
+    }
+    
+    /**
+     * Appends the given text wrapped in an ANSI style to a buffer.
+     * If colors are disabled, only the text is appended.
+     * 
+     * @param out the buffer to append to
+     * @param text the text to append
+     * @param style the ANSI code (or combined codes) to apply
+     * @return the buffer, for chaining
+     */
+    public StringBuilder colorize(StringBuilder out, CharSequence text, String style) {
+        if (!useColors) {
+            return out.append(text);
+        }
+        return out.append(style).append(text).append(RESET);
+    }
+    
+    /**
+     * Appends the given text wrapped in an ANSI style to any appendable destination.
+     * If colors are disabled, only the text is appended.
+     * 
+     * @param out the destination to append to
+     * @param text the text to append
+     * @param style the ANSI code (or combined codes) to apply
+     * @return the destination, for chaining
+     * @throws IOException if the destination cannot be written to
+     */
+    public Appendable colorize(Appendable out, CharSequence text, String style) throws IOException {
+        if (!useColors) {
+            return out.append(text);
+        }
+        return out.append(style).append(text).append(RESET);
+    }
+    
+    /**
+     * Appends a slice of the given text wrapped in an ANSI style to a buffer, e.g. part of a
+     * precomputed padding string. If colors are disabled, only the slice is appended.
+     * 
+     * @param out the buffer to append to
+     * @param text the text to take the slice from
+     * @param start the index of the first character to append
+     * @param end the index after the last character to append
+     * @param style the ANSI code (or combined codes) to apply
+     * @return the buffer, for chaining
+     */
+    public StringBuilder colorize(StringBuilder out, CharSequence text, int start, int end, String style) {
+        if (!useColors) {
+            return out.append(text, start, end);
+        }
+        return out.append(style).append(text, start, end).append(RESET);
+    }
+    
+    /**
+     * Starts a styled run in a buffer; pair with {@link #endStyle(StringBuilder)}.
+     * Lets callers append numbers and several pieces under one style without temporary strings.
+     * 
+     * @param out the buffer to append to
+     * @param style the ANSI code (or combined codes) to apply
+     * @return the buffer, for chaining
+     */
+    public StringBuilder beginStyle(StringBuilder out, String style) {
+        return useColors ? out.append(style) : out;
+    }
+    
+    /**
+     * Ends a styled run started with {@link #beginStyle(StringBuilder, String)}.
+     * 
+     * @param out the buffer to append to
+     * @return the buffer, for chaining
+     */
+    public StringBuilder endStyle(StringBuilder out) {
+        return useColors ? out.append(RESET) : out;
+    }
+    
+    /**
+     * Removes all ANSI color codes (sequences of the form {@code ESC [ digits/semicolons m}) from the given text.
+     * Works in a single pass without regular expressions, and returns the input itself when it has no escapes.
      * 
      * @param text the text to strip ANSI codes from
      * @return the text with all ANSI codes removed, or null if input is null
@@ -100,6 +213,44 @@ public class AnsiColors {
         if (text == null) {
             return null;
         }
-        return text.replaceAll("\u001B\\[[;\\d]*m", "");
+        int escape = text.indexOf(ESC);
+        if (escape < 0) {
+            return text;
+        }
+        
+        int length = text.length();
+        StringBuilder sb = new StringBuilder(length);
+        int copyFrom = 0;
+        while (escape >= 0) {
+            int end = colorSequenceEnd(text, escape);
+            if (end < 0) {
+                // Not a color code; keep the escape character and carry on after it
+                escape = text.indexOf(ESC, escape + 1);
+                continue;
+            }
+            sb.append(text, copyFrom, escape);
+            copyFrom = end;
+            escape = text.indexOf(ESC, end);
+        }
+        return sb.append(text, copyFrom, length).toString();
+    }
+    
+    private static int colorSequenceEnd(String text, int escape) {
+        // Returns the index just past a complete "ESC [ [;0-9]* m" sequence, or -1 if there is none
+        int i = escape + 1;
+        int length = text.length();
+        if (i >= length || text.charAt(i) != '[') {
+            return -1;
+        }
+        for (i++; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == 'm') {
+                return i + 1;
+            }
+            if (c != ';' && (c < '0' || c > '9')) {
+                return -1;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,214 @@
+package io.github.clojang.gradldromus;
+
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves terminal I/O off the test-event path.
+ * Listener threads submit pre-rendered chunks into a bounded lock-free queue; a single writer thread
+ * coalesces them into large writes, flushed every few milliseconds or when {@link #flush()} is called.
+ * The writer thread only holds the writer weakly, so a writer that is never closed (for example after a
+ * cancelled build) does not keep its thread alive in the daemon.
+ */
+public class AsyncLineWriter implements AutoCloseable {
+    /** Default maximum number of chunks waiting to be written */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Default interval between writes when output trickles in */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    /** Name of the background writer thread */
+    static final String THREAD_NAME = "gradldromus-output-writer";
+
+    private final PrintStream target;
+    private final int capacity;
+    private final long flushIntervalNanos;
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger submitting = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final Object flushLock = new Object();
+    private final StringBuilder batch = new StringBuilder();
+    private final Thread writerThread;
+    private volatile long written;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts a writer for the given stream.
+     *
+     * @param target the stream that receives the coalesced output
+     * @param capacity the maximum number of chunks queued before submitters are slowed down
+     * @param flushIntervalMillis the maximum time a chunk waits before being written
+     */
+    public AsyncLineWriter(PrintStream target, int capacity, long flushIntervalMillis) {
+        this.target = target;
+        this.capacity = Math.max(1, capacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.writerThread = new Thread(new WriterLoop(new WeakReference<>(this)), THREAD_NAME);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Gets the stream this writer writes to.
+     *
+     * @return the target stream
+     */
+    public PrintStream getTarget() {
+        return target;
+    }
+
+    /**
+     * Queues a pre-rendered chunk of output. Blocks briefly only when the queue is full.
+     * After {@link #close()} chunks are written synchronously.
+     *
+     * @param chunk the text to write, including any line separators
+     */
+    public void submit(String chunk) {
+        // Announced before running is read, so close() either waits for this chunk or it is written here
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                target.print(chunk);
+                return;
+            }
+            while (pending.incrementAndGet() > capacity) {
+                pending.decrementAndGet();
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(BACKOFF_NANOS);
+                if (!running) {
+                    target.print(chunk);
+                    return;
+                }
+            }
+            queue.add(chunk);
+            submitted.incrementAndGet();
+            if (pending.get() >= capacity / 2) {
+                LockSupport.unpark(writerThread);
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until everything submitted so far has been written to the target stream.
+     */
+    public void flush() {
+        long goal = submitted.get();
+        LockSupport.unpark(writerThread);
+        synchronized (flushLock) {
+            while (written < goal && writerThread.isAlive()) {
+                try {
+                    flushLock.wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        target.flush();
+    }
+
+    /**
+     * Writes everything still queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        // Submitters that saw the writer running finish queueing before the final drain
+        while (submitting.get() > 0) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writerThread.isAlive()) {
+            // Nothing can be queued any more, so this empties the queue for good
+            drain();
+        }
+        target.flush();
+    }
+
+    private boolean isActive() {
+        return running || !queue.isEmpty();
+    }
+
+    private boolean isIdle() {
+        return running && queue.isEmpty();
+    }
+
+    private void drain() {
+        long count = 0;
+        String chunk = queue.poll();
+        while (chunk != null) {
+            batch.append(chunk);
+            pending.decrementAndGet();
+            count++;
+            if (batch.length() >= MAX_BATCH_CHARS) {
+                writeBatch(count);
+                count = 0;
+            }
+            chunk = queue.poll();
+        }
+        writeBatch(count);
+    }
+
+    private void writeBatch(long count) {
+        if (batch.length() > 0) {
+            synchronized (target) {
+                target.print(batch);
+                target.flush();
+            }
+            batch.setLength(0);
+        }
+        if (count > 0) {
+            written += count;
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Body of the writer thread. Re-reads the weak reference on every pass and lets go of it
+     * before parking, so an abandoned writer can be collected and its thread ends.
+     */
+    private static final class WriterLoop implements Runnable {
+        private final WeakReference<AsyncLineWriter> owner;
+
+        WriterLoop(WeakReference<AsyncLineWriter> owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                AsyncLineWriter writer = owner.get();
+                if (writer == null || !writer.isActive()) {
+                    return;
+                }
+                writer.drain();
+                long parkNanos = writer.isIdle() ? writer.flushIntervalNanos : 0;
+                writer = null;
+                if (parkNanos > 0) {
+                    LockSupport.parkNanos(parkNanos);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Format of the binary test event log written by {@link BinaryEventSink}, and a reader for it.
+ * After an 8-byte header the file is a sequence of records, each an int payload length, a type byte and the
+ * payload. A string record defines the next entry of the string table; a test record refers to its task,
+ * class and test names by their index in that table, so each name is stored once. The reader maps the file
+ * into memory and decodes records in place, which makes scanning millions of results a matter of seconds.
+ * Records of unknown types are skipped, and a record cut short at the end of the file ends the log.
+ */
+public final class BinaryEventLog {
+    /** Location of the event log relative to a project's build directory */
+    public static final String RELATIVE_PATH = "gradldromus/test-events.bin";
+
+    static final int MAGIC = 0x47444531; // "GDE1"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Short.BYTES;
+    static final int RECORD_HEADER_SIZE = Integer.BYTES + 1;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_TEST = 2;
+    static final int NO_STRING = -1;
+    // Task, class and test name, outcome, start and end time, exception type, exception digest
+    static final int TEST_PAYLOAD_SIZE = Integer.BYTES + Integer.BYTES + Integer.BYTES + 1
+        + Long.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+    private static final TestResult.ResultType[] OUTCOMES = TestResult.ResultType.values();
+
+    private BinaryEventLog() {
+    }
+
+    /**
+     * Computes a digest that is equal for failures with the same exception type, message and throwing method,
+     * so that identical failures can be grouped without comparing stack traces.
+     *
+     * @param exception the exception
+     * @return a 64-bit FNV-1a hash, never 0
+     */
+    public static long exceptionDigest(Throwable exception) {
+        long hash = FailureFingerprints.mix(FailureFingerprints.FNV_OFFSET_BASIS, exception.getClass().getName());
+        hash = FailureFingerprints.mix(hash, String.valueOf(exception.getMessage()));
+        StackTraceElement[] stackTrace = exception.getStackTrace();
+        if (stackTrace.length > 0) {
+            hash = FailureFingerprints.mix(hash, stackTrace[0].getClassName());
+            hash = FailureFingerprints.mix(hash, stackTrace[0].getMethodName());
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Reads all test records of a log.
+     *
+     * @param file the log file
+     * @param consumer receives each test record, in the order they were written
+     * @return the number of test records read
+     * @throws IOException if the file cannot be read or is not an event log
+     */
+    public static long read(Path file, Consumer<TestRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Scanner(channel).scan(consumer);
+        }
+    }
+
+    /**
+     * Decodes records from memory-mapped windows of up to 2GB, moving the window as it reaches the end,
+     * so files of any size can be read.
+     */
+    private static final class Scanner {
+        private final FileChannel channel;
+        private final long size;
+        private final List<String> strings = new ArrayList<>();
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Scanner(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        long scan(Consumer<TestRecord> consumer) throws IOException {
+            if (!ensure(0, HEADER_SIZE) || window.getInt(0) != MAGIC || window.getShort(Integer.BYTES) != VERSION) {
+                throw new IOException("Not a test event log");
+            }
+            long records = 0;
+            long position = HEADER_SIZE;
+            while (ensure(position, RECORD_HEADER_SIZE)) {
+                int offset = (int) (position - windowStart);
+                int length = window.getInt(offset);
+                byte type = window.get(offset + Integer.BYTES);
+                long payload = position + RECORD_HEADER_SIZE;
+                if (length < 0 || !ensure(payload, length)) {
+                    // Cut short, e.g. by a killed build
+                    break;
+                }
+                offset = (int) (payload - windowStart);
+                if (type == TYPE_STRING) {
+                    byte[] bytes = new byte[length];
+                    window.get(offset, bytes);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                } else if (type == TYPE_TEST && length >= TEST_PAYLOAD_SIZE) {
+                    consumer.accept(decodeTest(window, offset));
+                    records++;
+                }
+                position = payload + length;
+            }
+            return records;
+        }
+
+        private TestRecord decodeTest(ByteBuffer buffer, int offset) throws IOException {
+            int at = offset;
+            String task = string(buffer.getInt(at));
+            at += Integer.BYTES;
+            String className = string(buffer.getInt(at));
+            at += Integer.BYTES;
+            String testName = string(buffer.getInt(at));
+            at += Integer.BYTES;
+            int outcome = Byte.toUnsignedInt(buffer.get(at));
+            at += 1;
+            long startTime = buffer.getLong(at);
+            at += Long.BYTES;
+            long endTime = buffer.getLong(at);
+            at += Long.BYTES;
+            String exceptionType = string(buffer.getInt(at));
+            at += Integer.BYTES;
+            long digest = buffer.getLong(at);
+            if (outcome >= OUTCOMES.length) {
+                throw new IOException("Corrupt test event log");
+            }
+            return new TestRecord(task, className, testName, OUTCOMES[outcome], startTime, endTime, exceptionType, digest);
+        }
+
+        private String string(int index) throws IOException {
+            if (index == NO_STRING) {
+                return null;
+            }
+            if (index < 0 || index >= strings.size()) {
+                throw new IOException("Corrupt test event log");
+            }
+            return strings.get(index);
+        }
+
+        private boolean ensure(long position, int length) throws IOException {
+            if (position + length > size) {
+                return false;
+            }
+            if (window == null || position < windowStart || position + length > windowStart + window.limit()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One test result read from the log.
+     */
+    public static final class TestRecord {
+        private final String taskPath;
+        private final String className;
+        private final String testName;
+        private final TestResult.ResultType outcome;
+        private final long startTime;
+        private final long endTime;
+        private final String exceptionType;
+        private final long exceptionDigest;
+
+        TestRecord(String taskPath, String className, String testName, TestResult.ResultType outcome,
+                   long startTime, long endTime, String exceptionType, long exceptionDigest) {
+            this.taskPath = taskPath;
+            this.className = className;
+            this.testName = testName;
+            this.outcome = outcome;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.exceptionType = exceptionType;
+            this.exceptionDigest = exceptionDigest;
+        }
+
+        /**
+         * Gets the path of the test task.
+         *
+         * @return the task path
+         */
+        public String getTaskPath() {
+            return taskPath;
+        }
+
+        /**
+         * Gets the test class name.
+         *
+         * @return the class name, or null if the test has none
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the test name.
+         *
+         * @return the test name
+         */
+        public String getTestName() {
+            return testName;
+        }
+
+        /**
+         * Gets the outcome of the test.
+         *
+         * @return the outcome
+         */
+        public TestResult.ResultType getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Gets when the test started.
+         *
+         * @return milliseconds since the epoch
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * Gets when the test finished.
+         *
+         * @return milliseconds since the epoch
+         */
+        public long getEndTime() {
+            return endTime;
+        }
+
+        /**
+         * Gets how long the test took.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getDurationMillis() {
+            return endTime - startTime;
+        }
+
+        /**
+         * Gets the class of the test's first exception.
+         *
+         * @return the exception class name, or null if the test threw nothing
+         */
+        public String getExceptionType() {
+            return exceptionType;
+        }
+
+        /**
+         * Gets a hash of the test's first exception, equal for failures with the same type, message and throwing method.
+         *
+         * @return the digest, or 0 if the test threw nothing
+         */
+        public long getExceptionDigest() {
+            return exceptionDigest;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Writes test results to a compact binary log in the format described by {@link BinaryEventLog}.
+ * Names are interned in the log's string table, so a result costs a fixed 46 bytes however long its names are.
+ * Records are assembled in a direct buffer and written through a {@link FileChannel} when the buffer fills up
+ * and whenever a suite finishes. A file that cannot be written is reported once, after which results are dropped.
+ */
+public class BinaryEventSink implements TestEventSink {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(BinaryEventSink.class.getName());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> strings = new HashMap<>();
+    private boolean writeFailed;
+
+    private BinaryEventSink(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates the log file, replacing the log of an earlier build.
+     *
+     * @param file the file to write
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    public static BinaryEventSink open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        BinaryEventSink sink = new BinaryEventSink(file, channel);
+        sink.buffer.putInt(BinaryEventLog.MAGIC).putShort(BinaryEventLog.VERSION).putShort((short) 0);
+        return sink;
+    }
+
+    @Override
+    public void suiteStarted(String taskPath, TestDescriptor suite) {
+        // Only test results are logged
+    }
+
+    @Override
+    public synchronized void testFinished(String taskPath, TestDescriptor test, TestResult result) {
+        if (writeFailed) {
+            return;
+        }
+        try {
+            int task = intern(taskPath);
+            int className = intern(test.getClassName());
+            int testName = intern(test.getName());
+            List<Throwable> exceptions = result.getExceptions();
+            Throwable exception = exceptions.isEmpty() ? null : exceptions.get(0);
+            int exceptionType = exception == null ? BinaryEventLog.NO_STRING : intern(exception.getClass().getName());
+
+            reserve(BinaryEventLog.RECORD_HEADER_SIZE + BinaryEventLog.TEST_PAYLOAD_SIZE);
+            buffer.putInt(BinaryEventLog.TEST_PAYLOAD_SIZE).put(BinaryEventLog.TYPE_TEST)
+                .putInt(task).putInt(className).putInt(testName)
+                .put((byte) result.getResultType().ordinal())
+                .putLong(result.getStartTime()).putLong(result.getEndTime())
+                .putInt(exceptionType)
+                .putLong(exception == null ? 0 : BinaryEventLog.exceptionDigest(exception));
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public void suiteFinished(String taskPath, TestDescriptor suite, TestResult result) {
+        // A finished class is a natural point for readers to see new results
+        flush();
+    }
+
+    /**
+     * Writes buffered records to the file.
+     */
+    public synchronized void flush() {
+        if (writeFailed) {
+            return;
+        }
+        try {
+            drain();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private int intern(String value) throws IOException {
+        if (value == null) {
+            return BinaryEventLog.NO_STRING;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            return index;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        reserve(BinaryEventLog.RECORD_HEADER_SIZE);
+        buffer.putInt(bytes.length).put(BinaryEventLog.TYPE_STRING);
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else {
+            // Longer than the buffer; write it directly
+            drain();
+            ByteBuffer direct = ByteBuffer.wrap(bytes);
+            while (direct.hasRemaining()) {
+                channel.write(direct);
+            }
+        }
+        int next = strings.size();
+        strings.put(value, next);
+        return next;
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void failed(IOException e) {
+        if (!writeFailed) {
+            // Warn once; the build goes on without the event log
+            LOGGER.warning("Could not write test events to " + file + ": " + e.getMessage());
+            writeFailed = true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.github.clojang.gradldromus.AnsiColors.WHITE;
+
+/**
+ * Bounded cache of rendered class-name prefixes, held by {@link CustomTestListener} for one build.
+ * A class with thousands of test methods has its simple name extracted and colorized once instead of
+ * once per test. When the cache is full an arbitrary entry is evicted, which keeps lookups lock-free.
+ */
+public class ClassNameCache {
+    /** Default maximum number of classes kept in the cache */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final AnsiColors colors;
+    private final int capacity;
+    private final Map<String, ClassPrefix> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache with the default capacity.
+     *
+     * @param colors the colors used to render the prefix
+     */
+    public ClassNameCache(AnsiColors colors) {
+        this(colors, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache with the given capacity.
+     *
+     * @param colors the colors used to render the prefix
+     * @param capacity the maximum number of classes kept in the cache
+     */
+    public ClassNameCache(AnsiColors colors, int capacity) {
+        this.colors = colors;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Gets the rendered prefix for a fully qualified class name, computing it on a miss.
+     *
+     * @param className the fully qualified class name
+     * @return the cached prefix
+     */
+    public ClassPrefix get(String className) {
+        ClassPrefix prefix = entries.get(className);
+        if (prefix != null) {
+            hits.increment();
+            return prefix;
+        }
+        misses.increment();
+        prefix = render(className);
+        if (entries.size() >= capacity) {
+            evictOne();
+        }
+        ClassPrefix existing = entries.putIfAbsent(className, prefix);
+        return existing != null ? existing : prefix;
+    }
+
+    private ClassPrefix render(String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1) + ".";
+        return new ClassPrefix(colors.colorize(simpleName, WHITE), simpleName.length());
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to render the prefix.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of classes currently cached.
+     *
+     * @return the cache size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets a one-line description of the cache statistics.
+     *
+     * @return the statistics, e.g. {@code "Class name cache: 990 hits, 10 misses, 10 entries"}
+     */
+    public String describeStats() {
+        return "Class name cache: " + getHits() + " hits, " + getMisses() + " misses, " + size() + " entries";
+    }
+
+    /**
+     * A simple class name rendered for the start of a result line.
+     */
+    public static final class ClassPrefix {
+        private final String rendered;
+        private final int width;
+
+        ClassPrefix(String rendered, int width) {
+            this.rendered = rendered;
+            this.width = width;
+        }
+
+        /**
+         * Gets the simple class name followed by a dot, with color codes applied.
+         *
+         * @return the rendered prefix
+         */
+        public String getRendered() {
+            return rendered;
+        }
+
+        /**
+         * Gets the visible width of the prefix, used to compute the dot padding.
+         *
+         * @return the width in characters, excluding color codes
+         */
+        public int getWidth() {
+            return width;
+        }
+    }
+}
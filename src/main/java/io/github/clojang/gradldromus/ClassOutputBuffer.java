@@ -0,0 +1,171 @@
+package io.github.clojang.gradldromus;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Collects the rendered output of one test class so it can be written in one piece when the class finishes.
+ * With parallel forks this keeps each class's results and failure details together instead of interleaved.
+ * All buffers of a build share one memory budget; a buffer that would exceed it moves its content to a
+ * temporary file and keeps appending there. If that file cannot be written, the output stays in memory.
+ */
+public class ClassOutputBuffer implements Consumer<String>, AutoCloseable {
+    /** Default number of characters all class buffers together may hold in memory */
+    public static final long DEFAULT_MEMORY_LIMIT_CHARS = 4L * 1024 * 1024;
+
+    private static final int SPILL_CHUNK_CHARS = 8 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(ClassOutputBuffer.class.getName());
+
+    private final CleanTerminalPrinter printer;
+    private final AtomicLong bufferedChars;
+    private final long memoryLimitChars;
+    private final StringBuilder memory = new StringBuilder();
+    private Path spillFile;
+    private Writer spill;
+    private boolean spillFailed;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param printer the printer that renders and finally writes the lines
+     * @param bufferedChars the number of characters held in memory by all buffers of the build
+     * @param memoryLimitChars the limit for {@code bufferedChars} beyond which a buffer spills to disk
+     */
+    public ClassOutputBuffer(CleanTerminalPrinter printer, AtomicLong bufferedChars, long memoryLimitChars) {
+        this.printer = printer;
+        this.bufferedChars = bufferedChars;
+        this.memoryLimitChars = memoryLimitChars;
+    }
+
+    /**
+     * Appends one line of output.
+     *
+     * @param line the line, without a line separator
+     */
+    @Override
+    public synchronized void accept(String line) {
+        int before = memory.length();
+        printer.appendLine(memory, line);
+        if (spill != null && !spillFailed) {
+            // Memory buffers the file, so text whose write fails is still here
+            if (memory.length() >= SPILL_CHUNK_CHARS) {
+                writeSpill();
+            }
+        } else if (bufferedChars.addAndGet(memory.length() - before) > memoryLimitChars && !spillFailed) {
+            startSpill();
+        }
+    }
+
+    /**
+     * Gets whether this buffer has moved its content to a temporary file.
+     *
+     * @return true if the buffer spilled to disk
+     */
+    public synchronized boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Writes the collected output in one piece.
+     *
+     * @param output the stream to write to
+     */
+    public synchronized void writeTo(PrintStream output) {
+        if (spill == null) {
+            if (memory.length() > 0) {
+                printer.printBlock(output, memory.toString());
+            }
+            return;
+        }
+        if (!spillFailed) {
+            writeSpill();
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            // Everything was flushed or kept in memory, so the file can still be read
+        }
+        Reader spilled;
+        try {
+            spilled = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warning("Could not write buffered test output from " + spillFile + ": " + e.getMessage());
+            spilled = Reader.nullReader();
+        }
+        // Whatever could not be written to the file follows it, in the same block
+        try (Reader reader = spilled) {
+            printer.printBlock(output, reader, memory);
+        } catch (IOException e) {
+            LOGGER.warning("Could not write buffered test output from " + spillFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Releases the memory budget held by this buffer and deletes its temporary file, if any.
+     */
+    @Override
+    public synchronized void close() {
+        if (spill == null || spillFailed) {
+            bufferedChars.addAndGet(-memory.length());
+        }
+        if (spill != null) {
+            try {
+                spill.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                LOGGER.warning("Could not delete " + spillFile + ": " + e.getMessage());
+            }
+            spill = null;
+        }
+        memory.setLength(0);
+    }
+
+    private void startSpill() {
+        try {
+            spillFile = Files.createTempFile("gradldromus-", ".out");
+            spill = openSpill(spillFile);
+        } catch (IOException e) {
+            // Keep buffering in memory rather than losing output
+            LOGGER.warning("Could not create a file for buffered test output, keeping it in memory: " + e.getMessage());
+            spillFile = null;
+            spillFailed = true;
+            return;
+        }
+        bufferedChars.addAndGet(-memory.length());
+        writeSpill();
+        memory.trimToSize();
+    }
+
+    /**
+     * Opens the temporary file a buffer spills to.
+     *
+     * @param file the file
+     * @return a writer for the file
+     * @throws IOException if the file cannot be opened
+     */
+    Writer openSpill(Path file) throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    private void writeSpill() {
+        try {
+            spill.append(memory);
+            spill.flush();
+        } catch (IOException e) {
+            // Better a flooded console than lost failures: keep this and all later output in memory
+            LOGGER.warning("Could not write buffered test output to " + spillFile + ", keeping it in memory: " + e.getMessage());
+            spillFailed = true;
+            bufferedChars.addAndGet(memory.length());
+            return;
+        }
+        memory.setLength(0);
+    }
+}
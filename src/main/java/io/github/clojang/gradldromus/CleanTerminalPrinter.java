@@ -1,13 +1,14 @@
 package io.github.clojang.gradldromus;
 
-import java.util.logging.Logger;
-
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Scanner;
+import java.io.Reader;
+import java.nio.CharBuffer;
 
 /**
  * Utility class for clean terminal output with line clearing and formatting capabilities.
  * Handles terminal width detection and provides methods for overwriting terminal content.
+ * Terminal details come from a shared {@link TerminalProbe}, so no process is spawned per line.
  */
 public class CleanTerminalPrinter {
     /** Default terminal width for small terminals */
@@ -15,9 +16,13 @@ public class CleanTerminalPrinter {
     
     /** Default terminal width for large terminals */
     public static final int DEFAULT_TERM_LG_WIDTH = 120;
+    
+    private static final int BLOCK_CHUNK_CHARS = 8192;
 
     private final GradlDromusExtension extension;
-    private final Logger logger;
+    private final TerminalProbe probe;
+    private volatile String clearSequence = "";
+    private volatile AsyncLineWriter asyncWriter;
     
     /**
      * Creates a new CleanTerminalPrinter with the specified extension configuration.
@@ -25,8 +30,60 @@ public class CleanTerminalPrinter {
      * @param extension the plugin extension containing configuration settings
      */
     public CleanTerminalPrinter(GradlDromusExtension extension) {
+        this(extension, new TerminalProbe());
+    }
+    
+    /**
+     * Creates a new CleanTerminalPrinter that shares an existing terminal probe.
+     * 
+     * @param extension the plugin extension containing configuration settings
+     * @param probe the terminal probe providing cached terminal capabilities
+     */
+    public CleanTerminalPrinter(GradlDromusExtension extension, TerminalProbe probe) {
         this.extension = extension;
-        this.logger = Logger.getLogger(CleanTerminalPrinter.class.getName());
+        this.probe = probe;
+    }
+    
+    /**
+     * Gets the terminal probe used by this printer.
+     * 
+     * @return the terminal probe
+     */
+    public TerminalProbe getProbe() {
+        return probe;
+    }
+    
+    /**
+     * Routes everything printed to the given stream through a background writer thread.
+     * Does nothing if asynchronous output is already running.
+     * 
+     * @param output the stream whose output should be written asynchronously
+     * @param flushIntervalMillis the maximum time a line waits before being written
+     */
+    public synchronized void startAsyncOutput(PrintStream output, long flushIntervalMillis) {
+        if (asyncWriter == null) {
+            asyncWriter = new AsyncLineWriter(output, AsyncLineWriter.DEFAULT_CAPACITY, flushIntervalMillis);
+        }
+    }
+    
+    /**
+     * Writes any queued asynchronous output and stops the background writer.
+     */
+    public synchronized void stopAsyncOutput() {
+        if (asyncWriter != null) {
+            asyncWriter.close();
+            asyncWriter = null;
+        }
+    }
+    
+    /**
+     * Waits until all queued asynchronous output has been written.
+     */
+    public void flush() {
+        AsyncLineWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.flush();
+        }
     }
     
     /**
@@ -36,6 +93,9 @@ public class CleanTerminalPrinter {
      * @param text the text to print
      */
     public void print(PrintStream output, String text) {
+        if (submitAsync(output, text, "")) {
+            return;
+        }
         synchronized (output) {
             clearLine(output);
             output.print(text);
@@ -49,6 +109,9 @@ public class CleanTerminalPrinter {
      * @param text the text to print
      */
     public void println(PrintStream output, String text) {
+        if (submitAsync(output, text, System.lineSeparator())) {
+            return;
+        }
         synchronized (output) {
             clearLine(output);
             output.println(text);
@@ -64,12 +127,76 @@ public class CleanTerminalPrinter {
      * @param color the color to apply to the heading
      */
     public void printHeading(PrintStream output, AnsiColors colors, String chr, String color) {
+        println(output, colors.colorize(chr.repeat(DEFAULT_TERM_SM_WIDTH), color));
+    }
+    
+    /**
+     * Renders a line exactly as {@link #println(PrintStream, String)} would write it, for output that is
+     * collected first and written later with {@link #printBlock(PrintStream, String)}.
+     * 
+     * @param block the buffer to append the rendered line to
+     * @param text the text of the line
+     * @return the buffer
+     */
+    public StringBuilder appendLine(StringBuilder block, String text) {
+        return block.append(clearSequence()).append(text).append(System.lineSeparator());
+    }
+    
+    /**
+     * Writes a block of pre-rendered lines in one piece, so no other output can end up between them.
+     * 
+     * @param output the output stream to write to
+     * @param block the rendered lines, as produced by {@link #appendLine(StringBuilder, String)}
+     */
+    public void printBlock(PrintStream output, String block) {
+        AsyncLineWriter writer = asyncWriter;
+        if (writer != null && writer.getTarget() == output) {
+            writer.submit(block);
+            return;
+        }
         synchronized (output) {
-            clearLine(output);
-            output.println(colors.colorize(chr.repeat(DEFAULT_TERM_SM_WIDTH), color));
+            output.print(block);
         }
     }
     
+    /**
+     * Writes a block of pre-rendered lines that is too large to hold in memory, in one piece.
+     * Queued asynchronous output is written first so that the block stays in order; the block itself is
+     * written synchronously, so no queued line can end up inside it.
+     * 
+     * @param output the output stream to write to
+     * @param block a reader over the rendered lines
+     * @param tail rendered lines written right after the block, even if reading the block fails
+     * @throws IOException if the block cannot be read
+     */
+    public void printBlock(PrintStream output, Reader block, CharSequence tail) throws IOException {
+        // Wait for the writer thread before taking the monitor it needs to write
+        flush();
+        char[] chunk = new char[BLOCK_CHUNK_CHARS];
+        synchronized (output) {
+            try {
+                int read = block.read(chunk);
+                while (read >= 0) {
+                    output.append(CharBuffer.wrap(chunk, 0, read));
+                    read = block.read(chunk);
+                }
+            } finally {
+                output.append(tail);
+                output.flush();
+            }
+        }
+    }
+    
+    private boolean submitAsync(PrintStream output, String text, String terminator) {
+        AsyncLineWriter writer = asyncWriter;
+        if (writer == null || writer.getTarget() != output) {
+            return false;
+        }
+        // Pre-render the whole line so the writer thread only has to copy it
+        writer.submit(clearSequence() + text + terminator);
+        return true;
+    }
+    
     /**
      * Determine the terminal width for proper line clearing
      * 
@@ -82,42 +209,49 @@ public class CleanTerminalPrinter {
             return configuredWidth;
         }
         
-        // Try environment variable
-        String columnsEnv = System.getenv("COLUMNS");
-        if (columnsEnv != null) {
-            try {
-                return Integer.parseInt(columnsEnv.trim());
-            } catch (NumberFormatException ignored) {}
+        // Fall back to the cached probe result, keeping it fresh while the build runs
+        probe.startRefresh(TerminalProbe.DEFAULT_REFRESH_MILLIS);
+        return probe.current().getWidth();
+    }
+    
+    /**
+     * Determine whether lines should be cleared before writing, based on the configured render mode
+     * and, in "auto" mode, on whether the terminal is interactive
+     * 
+     * @return true if clearing sequences should be written
+     */
+    public boolean isClearingLines() {
+        String mode = extension.getRenderMode();
+        if (GradlDromusExtension.RENDER_MODE_PLAIN.equalsIgnoreCase(mode)) {
+            return false;
         }
-        
-        // Try tput
-        try {
-            Process process = Runtime.getRuntime().exec(new String[]{"sh", "-c", "tput cols"});
-            process.waitFor();
-            Scanner scanner = new Scanner(process.getInputStream());
-            if (scanner.hasNext()) {
-                String colsStr = scanner.next().trim();
-                return Integer.parseInt(colsStr);
-            }
-        } catch (Exception e) {
-            logger.warning(
-                    "Could not determine terminal width, using default: " + DEFAULT_TERM_SM_WIDTH + ". Error: " + e.getMessage());
+        if (GradlDromusExtension.RENDER_MODE_INTERACTIVE.equalsIgnoreCase(mode)) {
+            return true;
         }
-        
-        return DEFAULT_TERM_SM_WIDTH;
+        return probe.current().isInteractive();
     }
     
     /**
-     * Clear the current line completely
+     * Clear the current line completely; does nothing when writing plain lines
      * 
      * @param output the output stream to clear the line on
      */
     public void clearLine(PrintStream output) {
-        synchronized (output) {
-            moveToLineStart(output);
-            output.print(" ".repeat(getTerminalWidth())); // Overwrite with spaces
-            moveToLineStart(output);
+        output.print(clearSequence());
+    }
+    
+    private String clearSequence() {
+        return isClearingLines() ? clearSequence(getTerminalWidth()) : "";
+    }
+    
+    private String clearSequence(int width) {
+        // Carriage return, a row of spaces, carriage return; rebuilt only when the width changes
+        String cached = clearSequence;
+        if (cached.length() != width + 2) {
+            cached = "\r" + " ".repeat(width) + "\r";
+            clearSequence = cached;
         }
+        return cached;
     }
     
     /**
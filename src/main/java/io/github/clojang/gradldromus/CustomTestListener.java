@@ -4,23 +4,32 @@ import org.gradle.api.tasks.testing.TestListener;
 import org.gradle.api.tasks.testing.TestDescriptor;
 import org.gradle.api.tasks.testing.TestResult;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.io.StringWriter;
-import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-import static io.github.clojang.gradldromus.AnsiColors.BOLD;
-import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_YELLOW;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_CYAN;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_GREEN;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_RED;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_YELLOW;
 import static io.github.clojang.gradldromus.AnsiColors.WHITE;
 import static io.github.clojang.gradldromus.AnsiColors.YELLOW;
 import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_BLACK;
 import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_GREEN;
 import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_RED;
-import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_CYAN;
 import static io.github.clojang.gradldromus.AnsiColors.RED;
 import static io.github.clojang.gradldromus.AnsiColors.BLUE;
 import static io.github.clojang.gradldromus.AnsiColors.GREEN;
@@ -30,24 +39,62 @@ import static io.github.clojang.gradldromus.AnsiColors.CYAN;
  * Custom test listener that provides clean, colorized output for test results.
  * Tracks test statistics and formats output according to the plugin configuration.
  */
-public class CustomTestListener implements TestListener {
+public class CustomTestListener implements TestListener, AutoCloseable {
     private static final double MILLISECONDS = 1000.0;
     private static final int DOTS_PAD = 76;
+    private static final String DOTS = ".".repeat(DOTS_PAD);
+    private static final int LINE_CAPACITY = 256;
+    private static final int TRACE_CAPACITY = 2048;
+    private static final int MAX_RETAINED_LINE_CHARS = 4096;
+    private static final int MAX_ONE_LINE_CHARS = 200;
+    private static final double KIB = 1024.0;
+    private static final String TASK_COLUMN_HEADER = "task";
+    private static final String TASK_COUNT_COLUMN = " %8d";
+    private static final String TASK_COUNT_COLUMNS = TASK_COUNT_COLUMN + TASK_COUNT_COLUMN;
+    private static final String TASK_TIME_COLUMNS = " %10.1fs %10.1fs";
+    private static final String TASK_COLUMNS_HEADER = " %8s %8s %8s %8s %11s %11s";
+    private static final Logger LOGGER = Logger.getLogger(CustomTestListener.class.getName());
+    private static final ThreadLocal<StringBuilder> LINE_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(LINE_CAPACITY));
     private final GradlDromusExtension extension;
     private final AnsiColors colors;
+    private final TerminalProbe probe;
     private final CleanTerminalPrinter printer;
     private final PrintStream output;
+    private final ClassNameCache classNames;
+    private final Consumer<String> directOutput;
+    private final SlowTestTracker slowTests;
+    private final DurationRegressions regressions;
+    private final ProgressLine progress;
+    private final FailureFingerprints fingerprints;
+    private final StackFrameFilter stackFrames;
+    private final StackTraceRenderer fullTraces;
+    private final FailureOutputBudget failureBudget;
     
     // Thread-safe tracking of current task paths
     private final Map<String, Boolean> taskHeadersPrinted = new ConcurrentHashMap<>();
     private final ThreadLocal<String> currentTaskPath = new ThreadLocal<>();
     
-    // Global statistics (thread-safe)
+    // Output of running test classes, written in one piece when each class finishes
+    private final Map<String, ClassOutputBuffer> classBuffers = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedChars = new AtomicLong();
+    
+    // Test history per task path, when recording is enabled
+    private final Map<String, TestHistoryStore> histories = new ConcurrentHashMap<>();
+    
+    // Predicted time left per running task, from its history
+    private final Map<String, RemainingTimeEstimate> estimates = new ConcurrentHashMap<>();
+    
+    // Additional receivers of each task's test events
+    private final Map<String, List<TestEventSink>> eventSinks = new ConcurrentHashMap<>();
+    
+    // Where each task's failure details go once its console budget is used up, opened on first use
+    private final Map<String, Path> overflowPaths = new ConcurrentHashMap<>();
+    private final Map<String, FailureOverflowFile> overflowFiles = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> overflowUnavailable = new ConcurrentHashMap<>();
+    
+    // Statistics per task path, summed for the summary (thread-safe)
     private final AtomicLong globalStartTime = new AtomicLong(0);
-    private final AtomicInteger totalTests = new AtomicInteger(0);
-    private final AtomicInteger totalPassed = new AtomicInteger(0);
-    private final AtomicInteger totalFailed = new AtomicInteger(0);
-    private final AtomicInteger totalSkipped = new AtomicInteger(0);
+    private final Map<String, TestTaskStats> taskStats = new ConcurrentHashMap<>();
     
     /**
      * Creates a new CustomTestListener with the specified extension configuration.
@@ -55,11 +102,46 @@ public class CustomTestListener implements TestListener {
      * @param extension the plugin extension containing configuration settings
      */
     public CustomTestListener(GradlDromusExtension extension) {
-        this.extension = extension;
-        this.colors = new AnsiColors(extension.isUseColors());
-        this.printer = new CleanTerminalPrinter(extension);
         // Always use System.out directly to bypass Gradle's logging
-        this.output = System.out;
+        this(extension, System.out);
+    }
+    
+    /**
+     * Creates a new CustomTestListener that writes to the given stream instead of {@code System.out}.
+     * Used by tests and benchmarks.
+     * 
+     * @param extension the plugin extension containing configuration settings
+     * @param output the stream to write test output to
+     */
+    CustomTestListener(GradlDromusExtension extension, PrintStream output) {
+        this(extension, output, new TerminalProbe());
+    }
+    
+    /**
+     * Creates a new CustomTestListener that writes to the given stream and takes terminal details from the given probe.
+     * 
+     * @param extension the plugin extension containing configuration settings
+     * @param output the stream to write test output to
+     * @param probe the terminal probe shared by everything that prints during this build
+     */
+    CustomTestListener(GradlDromusExtension extension, PrintStream output, TerminalProbe probe) {
+        this.extension = extension;
+        this.probe = probe;
+        this.colors = new AnsiColors(extension.isUseColors() && probe.current().isColorSupported());
+        this.printer = new CleanTerminalPrinter(extension, probe);
+        this.output = output;
+        this.classNames = new ClassNameCache(colors);
+        this.directOutput = line -> printer.println(output, line);
+        this.slowTests = new SlowTestTracker(extension.getSlowestTestsCount());
+        this.regressions = new DurationRegressions(extension.getRegressionThreshold(), extension.getRegressionBaseline());
+        this.progress = extension.isCompactProgress()
+            ? new ProgressLine(extension, printer, output, colors, this::estimateRemainingMillis) : null;
+        this.fingerprints = extension.isGroupRepeatedFailures() ? new FailureFingerprints() : null;
+        this.fullTraces = new StackTraceRenderer(colors, RED);
+        this.failureBudget = extension.getFailureOutputLimitChars() > 0 || extension.getBuildFailureOutputLimitChars() > 0
+            ? new FailureOutputBudget(extension.getFailureOutputLimitChars(), extension.getBuildFailureOutputLimitChars()) : null;
+        this.stackFrames = extension.getStackTraceExcludes().isEmpty()
+            ? null : new StackFrameFilter(extension.getStackTraceIncludes(), extension.getStackTraceExcludes());
     }
     
     /**
@@ -68,11 +150,164 @@ public class CustomTestListener implements TestListener {
      * @return true if tests have been executed, false otherwise
      */
     public boolean hasTests() {
-        return totalTests.get() > 0;
+        for (TestTaskStats stats : taskStats.values()) {
+            if (stats.getTests() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the statistics of a test task.
+     * 
+     * @param taskPath the path of the test task, or null for tests of unknown tasks
+     * @return the statistics, empty if the task has not run tests
+     */
+    public TestTaskStats getTaskStats(String taskPath) {
+        return taskStats.computeIfAbsent(statsKey(taskPath), key -> new TestTaskStats(taskPath));
+    }
+    
+    private static String statsKey(String taskPath) {
+        return taskPath == null ? "" : taskPath;
     }
     
     /**
-     * Sets the current task path for test output organization.
+     * Gets the terminal probe shared by everything that prints during this build.
+     * 
+     * @return the terminal probe
+     */
+    public TerminalProbe getTerminalProbe() {
+        return probe;
+    }
+    
+    /**
+     * Gets the printer shared by everything that prints during this build, so that
+     * headers and footers stay in order with asynchronously written test output.
+     * 
+     * @return the terminal printer
+     */
+    public CleanTerminalPrinter getPrinter() {
+        return printer;
+    }
+    
+    /**
+     * Gets the colors used for this build's output, already adjusted for terminal support.
+     * 
+     * @return the colors
+     */
+    public AnsiColors getColors() {
+        return colors;
+    }
+    
+    /**
+     * Gets the cache of rendered class-name prefixes used for result lines.
+     * 
+     * @return the class name cache
+     */
+    public ClassNameCache getClassNameCache() {
+        return classNames;
+    }
+    
+    /**
+     * Records the results of a test task in the given history from now on.
+     * 
+     * @param taskPath the path of the test task
+     * @param history the history to record results in
+     */
+    public void attachHistory(String taskPath, TestHistoryStore history) {
+        histories.put(taskPath, history);
+        Collection<TestHistoryEntry> entries = history.entries();
+        estimates.put(taskPath, RemainingTimeEstimate.forTask(entries, taskPath));
+        if (progress != null) {
+            progress.expect(entries, taskPath);
+        }
+    }
+    
+    /**
+     * Writes the failure details of a test task to the given file once its console budget is used up.
+     * Without a file, a temporary file is used.
+     * 
+     * @param taskPath the path of the test task
+     * @param file the file to write
+     */
+    public void attachFailureOverflowFile(String taskPath, Path file) {
+        overflowPaths.put(statsKey(taskPath), file);
+    }
+    
+    /**
+     * Predicts how long a running test task still needs, from the recorded durations of its pending classes.
+     * 
+     * @param taskPath the path of the test task
+     * @return the remaining time in milliseconds, or -1 if the task is not running or its history predicts nothing
+     */
+    public long estimateRemainingMillis(String taskPath) {
+        RemainingTimeEstimate estimate = estimates.get(taskPath);
+        return estimate == null ? -1 : estimate.remainingMillis();
+    }
+    
+    /**
+     * Predicts how long the running test tasks still need; tasks that run in parallel overlap.
+     * 
+     * @return the remaining time of the longest running task in milliseconds, or -1 if none can be predicted
+     */
+    public long estimateRemainingMillis() {
+        long remaining = -1;
+        for (RemainingTimeEstimate estimate : estimates.values()) {
+            remaining = Math.max(remaining, estimate.remainingMillis());
+        }
+        return remaining;
+    }
+    
+    /**
+     * Gets the history that a test task's results are recorded in.
+     * 
+     * @param taskPath the path of the test task
+     * @return the history, or null if results of this task are not recorded
+     */
+    public TestHistoryStore getHistory(String taskPath) {
+        return histories.get(taskPath);
+    }
+    
+    /**
+     * Sends the test events of a test task to the given sink as well, from now on.
+     * The sink is not closed by this listener.
+     * 
+     * @param taskPath the path of the test task
+     * @param sink the sink to send events to
+     */
+    public void attachEventSink(String taskPath, TestEventSink sink) {
+        eventSinks.computeIfAbsent(taskPath, path -> new CopyOnWriteArrayList<>()).add(sink);
+    }
+    
+    private List<TestEventSink> eventSinksOf(String taskPath) {
+        List<TestEventSink> sinks = taskPath == null ? null : eventSinks.get(taskPath);
+        return sinks == null ? Collections.emptyList() : sinks;
+    }
+    
+    /**
+     * Releases resources held for the build, such as the output writer and terminal refresh timer.
+     */
+    @Override
+    public void close() {
+        if (progress != null) {
+            progress.close();
+        }
+        for (ClassOutputBuffer buffer : classBuffers.values()) {
+            buffer.close();
+        }
+        classBuffers.clear();
+        for (FailureOverflowFile file : overflowFiles.values()) {
+            file.close();
+        }
+        overflowFiles.clear();
+        printer.stopAsyncOutput();
+        probe.close();
+    }
+    
+    /**
+     * Sets the task that events received on this thread through the {@link TestListener} methods belong to.
+     * Events passed with an explicit task path, as the plugin does, do not use it.
      * 
      * @param taskPath the path of the current task being executed
      */
@@ -82,73 +317,197 @@ public class CustomTestListener implements TestListener {
     
     @Override
     public void beforeSuite(TestDescriptor suite) {
+        beforeSuite(currentTaskPath.get(), suite);
+    }
+    
+    /**
+     * Handles a suite of the given test task starting.
+     * 
+     * @param taskPath the path of the test task, or null if unknown
+     * @param suite the suite
+     */
+    public void beforeSuite(String taskPath, TestDescriptor suite) {
         if (suite.getParent() == null) {
             // This is the root test suite
-            globalStartTime.compareAndSet(0, System.currentTimeMillis());
+            long now = System.currentTimeMillis();
+            globalStartTime.compareAndSet(0, now);
+            getTaskStats(taskPath).started(now);
+            if (extension.isAsyncOutput()) {
+                printer.startAsyncOutput(output, extension.getOutputFlushIntervalMillis());
+            }
+            if (progress != null) {
+                progress.taskStarted();
+            }
+        }
+        for (TestEventSink sink : eventSinksOf(taskPath)) {
+            sink.suiteStarted(taskPath, suite);
         }
     }
     
     @Override
     public void afterSuite(TestDescriptor suite, TestResult result) {
-        // No per-suite summaries
+        afterSuite(currentTaskPath.get(), suite, result);
+    }
+    
+    /**
+     * Handles a suite of the given test task finishing.
+     * 
+     * @param taskPath the path of the test task, or null if unknown
+     * @param suite the suite
+     * @param result the result of the suite
+     */
+    public void afterSuite(String taskPath, TestDescriptor suite, TestResult result) {
+        // No per-suite summaries; write a finished class's buffered output and make sure a finished task's output is on screen
+        RemainingTimeEstimate estimate = taskPath == null ? null : estimates.get(taskPath);
+        if (suite.getParent() == null) {
+            getTaskStats(taskPath).finished(System.currentTimeMillis());
+            if (taskPath != null) {
+                estimates.remove(taskPath);
+            }
+            flushClassBuffers(taskPath);
+            if (progress != null) {
+                progress.taskFinished();
+            }
+            printer.flush();
+        } else if (suite.getClassName() != null) {
+            flushClassBuffer(bufferKey(taskPath, suite.getClassName()));
+            if (estimate != null) {
+                estimate.classFinished(suite.getClassName());
+            }
+        }
+        for (TestEventSink sink : eventSinksOf(taskPath)) {
+            sink.suiteFinished(taskPath, suite, result);
+        }
     }
     
     @Override
     public void beforeTest(TestDescriptor testDescriptor) {
-        String taskPath = currentTaskPath.get();
-        
+        beforeTest(currentTaskPath.get(), testDescriptor);
+    }
+    
+    /**
+     * Handles a test of the given test task starting.
+     * 
+     * @param taskPath the path of the test task, or null if unknown
+     * @param testDescriptor the test
+     */
+    public void beforeTest(String taskPath, TestDescriptor testDescriptor) {
         // Print the module header if not already printed for this task
         if (taskPath != null && taskHeadersPrinted.putIfAbsent(taskPath, Boolean.TRUE) == null) {
-            printer.println(output, colors.colorize(taskPath, BOLD, BRIGHT_YELLOW));
+            printer.println(output, colors.colorize(taskPath, BOLD_BRIGHT_YELLOW));
         }
     }
     
     @Override
     public void afterTest(TestDescriptor testDescriptor, TestResult result) {
+        afterTest(currentTaskPath.get(), testDescriptor, result);
+    }
+    
+    /**
+     * Handles a test of the given test task finishing: counts, records and prints its result.
+     * 
+     * @param taskPath the path of the test task, or null if unknown
+     * @param testDescriptor the test
+     * @param result the result of the test
+     */
+    public void afterTest(String taskPath, TestDescriptor testDescriptor, TestResult result) {
         String className = testDescriptor.getClassName();
         String methodName = testDescriptor.getName();
         
-        // Update global totals
-        totalTests.incrementAndGet();
-        switch (result.getResultType()) {
-            case SUCCESS:
-                totalPassed.incrementAndGet();
-                break;
-            case FAILURE:
-                totalFailed.incrementAndGet();
-                break;
-            case SKIPPED:
-                totalSkipped.incrementAndGet();
-                break;
+        // Update the task's totals
+        long duration = result.getEndTime() - result.getStartTime();
+        getTaskStats(taskPath).testFinished(result.getResultType(), duration);
+        
+        // Remember the duration for the summary and for later builds
+        if (result.getResultType() != TestResult.ResultType.SKIPPED && className != null) {
+            slowTests.record(className, methodName, duration);
+        }
+        RemainingTimeEstimate estimate = taskPath == null ? null : estimates.get(taskPath);
+        if (estimate != null) {
+            estimate.testFinished(className, duration);
+        }
+        TestHistoryStore history = taskPath == null ? null : histories.get(taskPath);
+        DurationRegressions.Regression regression = null;
+        if (history != null) {
+            String historyClassName = String.valueOf(className);
+            if (result.getResultType() != TestResult.ResultType.SKIPPED) {
+                // Compare with earlier runs before this one becomes part of the baseline
+                TestHistoryEntry previous = history.get(taskPath, historyClassName, methodName);
+                regression = regressions.check(historyClassName, methodName, previous, duration);
+            }
+            history.record(taskPath, historyClassName, methodName, result.getResultType(), duration);
         }
         
-        // Format and print the test result
-        printTestResult(className, methodName, result);
+        // Format and print the test result; in compact mode only failures are printed, right away, above the progress line
+        if (progress == null) {
+            printTestResult(taskPath, className, methodName, result, regression, outputFor(taskPath, className));
+        } else {
+            progress.testFinished(result.getResultType());
+            if (result.getResultType() == TestResult.ResultType.FAILURE) {
+                printTestResult(taskPath, className, methodName, result, regression, directOutput);
+            }
+        }
+        for (TestEventSink sink : eventSinksOf(taskPath)) {
+            sink.testFinished(taskPath, testDescriptor, result);
+        }
+    }
+    
+    private Consumer<String> outputFor(String taskPath, String className) {
+        if (!extension.isGroupOutputByClass() || className == null) {
+            return directOutput;
+        }
+        return classBuffers.computeIfAbsent(bufferKey(taskPath, className),
+            key -> new ClassOutputBuffer(printer, bufferedChars, extension.getOutputBufferLimitChars()));
+    }
+    
+    private static String bufferKey(String taskPath, String className) {
+        // The same class may run in several test tasks at once
+        return taskPath == null ? className : taskPath + " " + className;
+    }
+    
+    private void flushClassBuffer(String key) {
+        ClassOutputBuffer buffer = classBuffers.remove(key);
+        if (buffer != null) {
+            buffer.writeTo(output);
+            buffer.close();
+        }
+    }
+    
+    private void flushClassBuffers(String taskPath) {
+        // Other tasks of a parallel build may still be filling their buffers
+        String prefix = bufferKey(taskPath, "");
+        for (String key : classBuffers.keySet()) {
+            if (taskPath == null ? key.indexOf(' ') < 0 : key.startsWith(prefix)) {
+                flushClassBuffer(key);
+            }
+        }
     }
     
-    private void printTestResult(String className, String methodName, TestResult result) {
-        StringBuilder outputStr = new StringBuilder();
+    private void printTestResult(String taskPath, String className, String methodName, TestResult result,
+                                 DurationRegressions.Regression regression, Consumer<String> out) {
+        // Reuse this thread's buffer so that a passing test renders without temporary strings
+        StringBuilder outputStr = LINE_BUFFER.get();
+        outputStr.setLength(0);
         
         // Indent
         outputStr.append("    ");
         
         // Class name (light gray/white)
+        int nameLength = 2; // indent
         if (className != null) {
-            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-            outputStr.append(colors.colorize(simpleClassName + ".", WHITE));
+            ClassNameCache.ClassPrefix classPrefix = classNames.get(className);
+            outputStr.append(classPrefix.getRendered());
+            nameLength += classPrefix.getWidth();
         }
         
         // Method name (light gray/white)
-        outputStr.append(colors.colorize(methodName + " ", YELLOW));
-        
-        // Calculate dots needed
-        int nameLength = 2; // indent
-        if (className != null) {
-            nameLength += className.substring(className.lastIndexOf('.') + 1).length() + 1;
-        }
+        colors.beginStyle(outputStr, YELLOW).append(methodName).append(' ');
+        colors.endStyle(outputStr);
         nameLength += methodName.length() + 1;
+        
+        // Pad with a slice of the precomputed dots
         int dotsNeeded = Math.max(1, DOTS_PAD - nameLength); // this tends to give most results in under 80 characters
-        outputStr.append(colors.colorize(".".repeat(dotsNeeded), BRIGHT_BLACK));
+        colors.colorize(outputStr, DOTS, 0, dotsNeeded, BRIGHT_BLACK);
         
         // Status in brackets
         String symbol;
@@ -156,58 +515,146 @@ public class CustomTestListener implements TestListener {
         switch (result.getResultType()) {
             case SUCCESS:
                 symbol = extension.getPassSymbol();
-                symbolColor = BOLD + BRIGHT_GREEN;
+                symbolColor = BOLD_BRIGHT_GREEN;
                 break;
             case FAILURE:
                 symbol = extension.getFailSymbol();
-                symbolColor = BOLD + BRIGHT_RED;
+                symbolColor = BOLD_BRIGHT_RED;
                 break;
             case SKIPPED:
                 symbol = extension.getSkipSymbol();
-                symbolColor = BOLD + BRIGHT_CYAN;
+                symbolColor = BOLD_BRIGHT_CYAN;
                 break;
             default:
                 symbol = "?";
                 symbolColor = YELLOW;
         }
         
-        outputStr.append(colors.colorize(symbol, symbolColor));
+        colors.colorize(outputStr, symbol, symbolColor);
         
         // Timing (dark gray)
         if (extension.isShowTimings()) {
             long duration = result.getEndTime() - result.getStartTime();
-            outputStr.append(" ").append(colors.colorize("(" + duration + "ms)", BRIGHT_BLACK));
+            outputStr.append(' ');
+            colors.beginStyle(outputStr, BRIGHT_BLACK).append('(').append(duration).append("ms)");
+            colors.endStyle(outputStr);
+        }
+        
+        // Slower than usual (yellow)
+        if (regression != null) {
+            outputStr.append(' ');
+            colors.beginStyle(outputStr, BOLD_BRIGHT_YELLOW).append("▲ ").append(regression.describe());
+            colors.endStyle(outputStr);
         }
         
         // Print the test result using clean printer
-        printer.println(output, outputStr.toString());
+        out.accept(outputStr.toString());
+        if (outputStr.capacity() > MAX_RETAINED_LINE_CHARS) {
+            // Don't let one huge line pin a large buffer on this thread
+            LINE_BUFFER.remove();
+        }
         
         // Print failure details if needed and configured
         if (result.getResultType() == TestResult.ResultType.FAILURE) {
-            printFailureDetails(result);
+            printFailureDetails(taskPath, className, methodName, result, out);
         }
     }
     
-    private void printFailureDetails(TestResult result) {
+    private void printFailureDetails(String taskPath, String className, String methodName, TestResult result,
+                                     Consumer<String> out) {
         List<Throwable> exceptions = result.getExceptions();
         if (exceptions.isEmpty()) {
             return;
         }
         
         for (Throwable exception : exceptions) {
-            // Always show the exception message if showExceptions is true (default)
-            if (extension.isShowExceptions()) {
-                String message = getExceptionMessage(exception);
-                if (message != null && !message.trim().isEmpty()) {
-                    printer.println(output, colors.colorize("    → " + message, RED));
+            // Same exception type and top frames as an earlier failure: refer to it instead of rendering it again
+            FailureFingerprints.Group earlier = fingerprints == null ? null : fingerprints.record(exception, className, methodName);
+            if (earlier != null) {
+                if (extension.isShowExceptions() || extension.isShowStackTraces() || extension.isShowFullStackTraces()) {
+                    out.accept(colors.colorize("    → " + getExceptionMessage(exception), RED)
+                        + colors.colorize(" (same failure as " + shortName(earlier.getClassName(), earlier.getTestName())
+                        + ", fingerprint " + FailureFingerprints.format(earlier.getFingerprint()) + ")", BRIGHT_BLACK));
                 }
+                continue;
             }
             
-            // Show stack traces if requested
-            if (extension.isShowStackTraces() || extension.isShowFullStackTraces()) {
-                printStackTrace(exception);
+            if (failureBudget == null) {
+                printExceptionDetails(exception, out);
+                continue;
+            }
+            
+            // Render the details first, so they can be measured against the task's and the build's budget
+            List<String> details = new ArrayList<>();
+            printExceptionDetails(exception, details::add);
+            long chars = 0;
+            for (String line : details) {
+                chars += line.length() + 1;
+            }
+            if (details.isEmpty() || failureBudget.spend(taskPath, chars)) {
+                details.forEach(out);
+            } else {
+                divertExceptionDetails(taskPath, shortName(className, methodName), exception, details, out);
+            }
+        }
+    }
+    
+    private void printExceptionDetails(Throwable exception, Consumer<String> out) {
+        // Always show the exception message if showExceptions is true (default)
+        if (extension.isShowExceptions()) {
+            String message = getExceptionMessage(exception);
+            if (message != null && !message.trim().isEmpty()) {
+                out.accept(colors.colorize("    → " + message, RED));
             }
         }
+        
+        // Show stack traces if requested
+        if (extension.isShowStackTraces() || extension.isShowFullStackTraces()) {
+            printStackTrace(exception, out);
+        }
+    }
+    
+    private void divertExceptionDetails(String taskPath, String testName, Throwable exception,
+                                        List<String> details, Consumer<String> out) {
+        FailureOverflowFile file = overflowFile(taskPath, out);
+        if (file == null) {
+            // Better a flooded console than lost failures
+            details.forEach(out);
+            return;
+        }
+        file.write(testName, details);
+        String message = getExceptionMessage(exception);
+        int end = message.indexOf('\n');
+        if (end < 0) {
+            end = message.length();
+        }
+        out.accept(colors.colorize("    → " + (end > MAX_ONE_LINE_CHARS
+            ? message.substring(0, MAX_ONE_LINE_CHARS) + "…" : message.substring(0, end).trim()), RED));
+    }
+    
+    private FailureOverflowFile overflowFile(String taskPath, Consumer<String> out) {
+        String key = statsKey(taskPath);
+        FailureOverflowFile file = overflowFiles.get(key);
+        if (file != null || overflowUnavailable.containsKey(key)) {
+            return file;
+        }
+        synchronized (overflowFiles) {
+            file = overflowFiles.get(key);
+            if (file != null || overflowUnavailable.containsKey(key)) {
+                return file;
+            }
+            try {
+                Path path = overflowPaths.get(key);
+                file = FailureOverflowFile.open(path != null ? path : Files.createTempFile("gradldromus-failures-", ".txt"));
+            } catch (IOException e) {
+                LOGGER.warning("Could not create a file for failure details, printing them instead: " + e.getMessage());
+                overflowUnavailable.put(key, Boolean.TRUE);
+                return null;
+            }
+            overflowFiles.put(key, file);
+        }
+        out.accept(colors.colorize("    Failure output budget used up; further details are in " + file.getFile(), YELLOW));
+        return file;
     }
     
     private String getExceptionMessage(Throwable exception) {
@@ -219,64 +666,73 @@ public class CustomTestListener implements TestListener {
         return message;
     }
     
-    private void printStackTrace(Throwable exception) {
+    private void printStackTrace(Throwable exception, Consumer<String> out) {
         if (extension.isShowFullStackTraces()) {
             // Show complete stack trace
-            printFullStackTrace(exception);
+            printFullStackTrace(exception, out);
         } else if (extension.isShowStackTraces()) {
             // Show limited stack trace
-            printLimitedStackTrace(exception);
+            printLimitedStackTrace(exception, out);
         }
     }
     
-    private void printFullStackTrace(Throwable exception) {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        exception.printStackTrace(pw);
-        String fullTrace = sw.toString();
-        
-        String[] lines = fullTrace.split("\\n");
-        for (String line : lines) {
-            if (!line.trim().isEmpty()) {
-                printer.println(output, colors.colorize("      " + line.trim(), RED));
-            }
-        }
+    private void printFullStackTrace(Throwable exception, Consumer<String> out) {
+        // One block per failure, so the trace is written with a single call and never interleaved
+        StringBuilder trace = new StringBuilder(TRACE_CAPACITY);
+        fullTraces.render(trace, exception);
+        out.accept(trace.toString());
     }
     
-    private void printLimitedStackTrace(Throwable exception) {
+    private void printLimitedStackTrace(Throwable exception, Consumer<String> out) {
         StackTraceElement[] stackTrace = exception.getStackTrace();
         if (stackTrace.length == 0) {
             return;
         }
         
         // Print the exception class and message
-        printer.println(output, colors.colorize("      " + exception.getClass().getName() + 
+        out.accept(colors.colorize("      " + exception.getClass().getName() + 
             (exception.getMessage() != null ? ": " + exception.getMessage() : ""), RED));
         
-        // Print limited number of stack trace elements
-        int limit = Math.min(stackTrace.length, extension.getMaxStackTraceDepth());
-        for (int i = 0; i < limit; i++) {
+        // Print a limited number of stack trace elements, skipping framework frames
+        // unless nothing else is left to show
+        boolean filter = stackFrames != null && hasVisibleFrame(stackTrace);
+        int limit = extension.getMaxStackTraceDepth();
+        int printed = 0;
+        for (int i = 0; i < stackTrace.length && printed < limit; i++) {
             StackTraceElement element = stackTrace[i];
+            if (filter && stackFrames.isHidden(element)) {
+                continue;
+            }
             String stackLine = String.format("        at %s.%s(%s:%d)",
                 element.getClassName(),
                 element.getMethodName(),
                 element.getFileName() != null ? element.getFileName() : "Unknown Source",
                 element.getLineNumber());
-            printer.println(output, colors.colorize(stackLine, RED));
+            out.accept(colors.colorize(stackLine, RED));
+            printed++;
         }
         
-        // Show "... X more" if there are more stack trace elements
-        if (stackTrace.length > limit) {
-            int remaining = stackTrace.length - limit;
-            printer.println(output, colors.colorize("        ... " + remaining + " more", RED));
+        // Show "... X more" if there are more stack trace elements, hidden ones included
+        if (stackTrace.length > printed) {
+            int remaining = stackTrace.length - printed;
+            out.accept(colors.colorize("        ... " + remaining + " more", RED));
         }
         
         // Handle caused by exceptions
         Throwable cause = exception.getCause();
         if (cause != null && cause != exception) {
-            printer.println(output, colors.colorize("      Caused by: ", RED));
-            printLimitedStackTrace(cause);
+            out.accept(colors.colorize("      Caused by: ", RED));
+            printLimitedStackTrace(cause, out);
+        }
+    }
+    
+    private boolean hasVisibleFrame(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            if (!stackFrames.isHidden(element)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -288,22 +744,145 @@ public class CustomTestListener implements TestListener {
         printer.println(output, "\n" + colors.colorize("Test Summary:", BLUE));
         printer.println(output, colors.colorize("─────────────", BLUE));
         
+        long tests = 0;
+        long passed = 0;
+        long failed = 0;
+        long skipped = 0;
+        List<TestTaskStats> tasks = new ArrayList<>();
+        for (TestTaskStats stats : taskStats.values()) {
+            tests += stats.getTests();
+            passed += stats.getPassed();
+            failed += stats.getFailed();
+            skipped += stats.getSkipped();
+            if (stats.getTests() > 0) {
+                tasks.add(stats);
+            }
+        }
+        
         StringBuilder summary = new StringBuilder();
-        summary.append(colors.colorize("Total: " + totalTests.get() + " tests, ", WHITE));
-        summary.append(colors.colorize(extension.getPassSymbol() + " " + totalPassed.get() + " passed, ", GREEN));
-        summary.append(colors.colorize(extension.getFailSymbol() + " " + totalFailed.get() + " failed, ", RED));
-        summary.append(colors.colorize(extension.getSkipSymbol() + " " + totalSkipped.get() + " skipped", CYAN));
+        summary.append(colors.colorize("Total: " + tests + " tests, ", WHITE));
+        summary.append(colors.colorize(extension.getPassSymbol() + " " + passed + " passed, ", GREEN));
+        summary.append(colors.colorize(extension.getFailSymbol() + " " + failed + " failed, ", RED));
+        summary.append(colors.colorize(extension.getSkipSymbol() + " " + skipped + " skipped", CYAN));
         
         printer.println(output, summary.toString());
         
         printer.println(output, colors.colorize("Time: ", WHITE) + (totalTime / MILLISECONDS) + "s");
         
-        if (totalFailed.get() == 0) {
+        if (tasks.size() > 1) {
+            printTaskTable(tasks);
+        }
+        
+        printSlowest("Slowest tests:", slowTests.slowestTests());
+        printSlowest("Slowest classes:", slowTests.slowestClasses());
+        printRegressions();
+        printRepeatedFailures();
+        printDivertedFailures();
+        
+        if (extension.isDebug()) {
+            printer.println(output, colors.colorize(classNames.describeStats(), BRIGHT_BLACK));
+        }
+        
+        if (failed == 0) {
             printer.println(output, "\n" + colors.colorize("✨ All tests passed!", BRIGHT_GREEN));
         } else {
             printer.println(output, "\n" + colors.colorize("❌ Some tests failed.", BRIGHT_RED));
         }
         printer.println(output, "");
         printer.printHeading(output, colors, "=", BRIGHT_GREEN);
+        printer.flush();
+    }
+    
+    private void printTaskTable(List<TestTaskStats> tasks) {
+        tasks.sort(Comparator.comparing(TestTaskStats::getTaskPath, Comparator.nullsLast(Comparator.naturalOrder())));
+        int nameWidth = TASK_COLUMN_HEADER.length();
+        for (TestTaskStats stats : tasks) {
+            nameWidth = Math.max(nameWidth, taskName(stats).length());
+        }
+        String nameFormat = "    %-" + nameWidth + "s";
+        printer.println(output, colors.colorize("By module:", WHITE));
+        printer.println(output, colors.colorize(String.format(Locale.ROOT, nameFormat + TASK_COLUMNS_HEADER,
+            TASK_COLUMN_HEADER, "tests", "passed", "failed", "skipped", "test time", "wall time"), BRIGHT_BLACK));
+        for (TestTaskStats stats : tasks) {
+            String counts = String.format(Locale.ROOT, TASK_COUNT_COLUMNS, stats.getTests(), stats.getPassed());
+            String failedCount = String.format(Locale.ROOT, TASK_COUNT_COLUMN, stats.getFailed());
+            String rest = String.format(Locale.ROOT, TASK_COUNT_COLUMN + TASK_TIME_COLUMNS, stats.getSkipped(),
+                stats.getTestMillis() / MILLISECONDS, stats.getWallMillis() / MILLISECONDS);
+            printer.println(output, String.format(Locale.ROOT, nameFormat, taskName(stats)) + counts
+                + (stats.getFailed() > 0 ? colors.colorize(failedCount, RED) : failedCount) + rest);
+        }
+    }
+    
+    private static String taskName(TestTaskStats stats) {
+        return stats.getTaskPath() == null ? "(unknown task)" : stats.getTaskPath();
+    }
+    
+    private void printRegressions() {
+        List<DurationRegressions.Regression> flagged = regressions.regressions();
+        if (flagged.isEmpty()) {
+            return;
+        }
+        printer.println(output, colors.colorize("Slower than usual:", WHITE));
+        for (DurationRegressions.Regression regression : flagged) {
+            String className = regression.getClassName();
+            String name = className.substring(className.lastIndexOf('.') + 1) + "." + regression.getTestName();
+            printer.println(output, "    " + colors.colorize(regression.getDurationMillis() + "ms", YELLOW) + " " + name
+                + colors.colorize(" (" + regression.describe() + ", usually " + regression.getBaselineMillis() + "ms)", BRIGHT_BLACK));
+        }
+        int unlisted = regressions.count() - flagged.size();
+        if (unlisted > 0) {
+            printer.println(output, colors.colorize("    ... and " + unlisted + " more", BRIGHT_BLACK));
+        }
+    }
+    
+    private void printRepeatedFailures() {
+        List<FailureFingerprints.Group> repeated = fingerprints == null ? Collections.emptyList() : fingerprints.repeated();
+        if (repeated.isEmpty()) {
+            return;
+        }
+        printer.println(output, colors.colorize("Repeated failures:", WHITE));
+        for (FailureFingerprints.Group group : repeated.subList(0, Math.min(repeated.size(), FailureFingerprints.MAX_LISTED))) {
+            String message = group.getMessage() == null ? "" : ": " + group.getMessage().lines().findFirst().orElse("");
+            printer.println(output, "    " + colors.colorize(group.getCount() + " tests", RED) + " failed with fingerprint "
+                + FailureFingerprints.format(group.getFingerprint()) + ": " + group.getExceptionType() + message
+                + colors.colorize(" (first " + shortName(group.getClassName(), group.getTestName()) + ")", BRIGHT_BLACK));
+        }
+        int unlisted = repeated.size() - FailureFingerprints.MAX_LISTED;
+        if (unlisted > 0) {
+            printer.println(output, colors.colorize("    ... and " + unlisted + " more", BRIGHT_BLACK));
+        }
+    }
+    
+    private void printDivertedFailures() {
+        if (failureBudget == null || failureBudget.getDivertedFailures() == 0) {
+            return;
+        }
+        long chars = failureBudget.getDivertedChars();
+        String size = chars < KIB * KIB
+            ? String.format(Locale.ROOT, "%.1f KB", chars / KIB) : String.format(Locale.ROOT, "%.1f MB", chars / KIB / KIB);
+        printer.println(output, colors.colorize("Failure output over budget: ", WHITE) + failureBudget.getDivertedFailures()
+            + " failures, " + size + " of details written to files instead");
+        List<FailureOverflowFile> files = new ArrayList<>(overflowFiles.values());
+        files.sort(Comparator.comparing(FailureOverflowFile::getFile));
+        for (FailureOverflowFile file : files) {
+            printer.println(output, "    " + colors.colorize(file.getFailures() + " failures", RED) + " in " + file.getFile());
+        }
+    }
+    
+    private static String shortName(String className, String testName) {
+        return className == null ? testName : className.substring(className.lastIndexOf('.') + 1) + "." + testName;
+    }
+    
+    private void printSlowest(String title, List<SlowTestTracker.Timing> timings) {
+        if (timings.isEmpty()) {
+            return;
+        }
+        printer.println(output, colors.colorize(title, WHITE));
+        for (SlowTestTracker.Timing timing : timings) {
+            String className = timing.getClassName();
+            String name = className.substring(className.lastIndexOf('.') + 1)
+                + (timing.getTestName() != null ? "." + timing.getTestName() : "");
+            printer.println(output, "    " + colors.colorize(timing.getDurationMillis() + "ms", YELLOW) + " " + name);
+        }
     }
 }
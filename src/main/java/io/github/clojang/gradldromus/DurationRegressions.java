@@ -0,0 +1,184 @@
+package io.github.clojang.gradldromus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flags tests that took much longer than they usually do, judged against the duration sketch kept in
+ * the test history, and remembers them for the final summary.
+ * Tests with too little history or that finish in a few milliseconds are never flagged, since their
+ * timings are mostly noise. Only the largest slowdowns are kept, in a fixed-size min-heap by slowdown ratio.
+ */
+public class DurationRegressions {
+    /** Default multiple of the baseline above which a test is flagged */
+    public static final double DEFAULT_THRESHOLD = 2.0;
+
+    /** Sketch weight, roughly a number of recent runs, needed before a test can be flagged */
+    public static final double MIN_BASELINE_WEIGHT = 3.0;
+
+    /** Durations at or below this many milliseconds are never flagged */
+    public static final long MIN_DURATION_MILLIS = 20;
+
+    /** Maximum number of flagged tests kept for the final summary */
+    public static final int MAX_LISTED = 20;
+
+    private static final double MEDIAN = 0.5;
+    private static final double P95 = 0.95;
+    private static final Comparator<Regression> BY_RATIO = Comparator.comparingDouble(Regression::getRatio);
+
+    private final double threshold;
+    private final double quantile;
+    private final String baselineName;
+    private final PriorityQueue<Regression> listed = new PriorityQueue<>(MAX_LISTED, BY_RATIO);
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates a detector.
+     *
+     * @param threshold the multiple of the baseline above which a test is flagged; 0 or less disables detection
+     * @param baseline {@link GradlDromusExtension#REGRESSION_BASELINE_MEDIAN} or {@link GradlDromusExtension#REGRESSION_BASELINE_P95}
+     */
+    public DurationRegressions(double threshold, String baseline) {
+        this.threshold = threshold;
+        boolean p95 = GradlDromusExtension.REGRESSION_BASELINE_P95.equalsIgnoreCase(baseline);
+        this.quantile = p95 ? P95 : MEDIAN;
+        this.baselineName = p95 ? GradlDromusExtension.REGRESSION_BASELINE_P95 : GradlDromusExtension.REGRESSION_BASELINE_MEDIAN;
+    }
+
+    /**
+     * Checks one test run against the test's earlier runs and remembers it if it regressed.
+     *
+     * @param className the test class name
+     * @param testName the test method name
+     * @param previous the test's history before this run, or null if it has none
+     * @param durationMillis the duration of this run
+     * @return the regression, or null if the run was not unusually slow
+     */
+    public Regression check(String className, String testName, TestHistoryEntry previous, long durationMillis) {
+        if (threshold <= 0 || previous == null || durationMillis <= MIN_DURATION_MILLIS) {
+            return null;
+        }
+        DurationSketch durations = previous.getDurations();
+        if (durations.totalWeight() < MIN_BASELINE_WEIGHT) {
+            return null;
+        }
+        double baseline = Math.max(1, durations.quantile(quantile));
+        double ratio = durationMillis / baseline;
+        if (ratio < threshold) {
+            return null;
+        }
+        Regression regression = new Regression(className, testName, durationMillis, Math.round(baseline), ratio, baselineName);
+        count.incrementAndGet();
+        synchronized (listed) {
+            if (listed.size() < MAX_LISTED) {
+                listed.add(regression);
+            } else if (ratio > listed.peek().getRatio()) {
+                listed.poll();
+                listed.add(regression);
+            }
+        }
+        return regression;
+    }
+
+    /**
+     * Gets how many runs were flagged, including those beyond {@link #MAX_LISTED}.
+     *
+     * @return the number of regressions
+     */
+    public int count() {
+        return count.get();
+    }
+
+    /**
+     * Gets the flagged runs kept for the summary.
+     *
+     * @return up to {@link #MAX_LISTED} regressions, largest slowdown first
+     */
+    public List<Regression> regressions() {
+        List<Regression> regressions;
+        synchronized (listed) {
+            regressions = new ArrayList<>(listed);
+        }
+        regressions.sort(BY_RATIO.reversed());
+        return regressions;
+    }
+
+    /**
+     * A test run that took much longer than the test's baseline.
+     */
+    public static final class Regression {
+        private final String className;
+        private final String testName;
+        private final long durationMillis;
+        private final long baselineMillis;
+        private final double ratio;
+        private final String baselineName;
+
+        Regression(String className, String testName, long durationMillis, long baselineMillis, double ratio, String baselineName) {
+            this.className = className;
+            this.testName = testName;
+            this.durationMillis = durationMillis;
+            this.baselineMillis = baselineMillis;
+            this.ratio = ratio;
+            this.baselineName = baselineName;
+        }
+
+        /**
+         * Gets the test class name.
+         *
+         * @return the class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the test method name.
+         *
+         * @return the test name
+         */
+        public String getTestName() {
+            return testName;
+        }
+
+        /**
+         * Gets the duration of this run.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * Gets the baseline this run was compared with.
+         *
+         * @return the baseline duration in milliseconds
+         */
+        public long getBaselineMillis() {
+            return baselineMillis;
+        }
+
+        /**
+         * Gets how many times the baseline this run took.
+         *
+         * @return the ratio of duration to baseline
+         */
+        public double getRatio() {
+            return ratio;
+        }
+
+        /**
+         * Describes the slowdown, e.g. "3.1x median".
+         *
+         * @return the description
+         */
+        public String describe() {
+            return String.format(Locale.ROOT, "%.1fx %s", ratio, baselineName);
+        }
+    }
+}
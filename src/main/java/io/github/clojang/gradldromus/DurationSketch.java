@@ -0,0 +1,134 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Arrays;
+
+/**
+ * Small streaming summary of a test's past durations, used to estimate its median and p95.
+ * Durations are counted in logarithmic buckets that are about 19% wide; older runs are decayed so the
+ * sketch follows the test as it changes. Only non-empty buckets are stored, so a test with a stable
+ * duration needs a handful of bytes instead of a list of every run. Instances are immutable.
+ */
+public final class DurationSketch {
+    /** Weight kept by earlier runs each time a new run is added */
+    public static final double DECAY = 0.9;
+
+    /** A sketch with no runs */
+    public static final DurationSketch EMPTY = new DurationSketch(new byte[0], new float[0]);
+
+    private static final double BUCKET_BASE = 1.19;
+    private static final double LOG_BASE = Math.log(BUCKET_BASE);
+    private static final int MAX_BUCKET = 255;
+    private static final float MIN_WEIGHT = 0.01f;
+    private static final double HALF_BUCKET = 0.5;
+
+    private final byte[] buckets;
+    private final float[] weights;
+
+    /**
+     * Creates a sketch from stored buckets.
+     *
+     * @param buckets the bucket indexes in increasing order, as unsigned bytes
+     * @param weights the weight of each bucket
+     */
+    public DurationSketch(byte[] buckets, float[] weights) {
+        this.buckets = buckets;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the sketch after one more run.
+     *
+     * @param durationMillis the duration of the run
+     * @return the updated sketch
+     */
+    public DurationSketch add(long durationMillis) {
+        int bucket = bucketOf(durationMillis);
+        byte[] newBuckets = new byte[buckets.length + 1];
+        float[] newWeights = new float[buckets.length + 1];
+        int size = 0;
+        boolean added = false;
+        for (int i = 0; i < buckets.length; i++) {
+            int index = buckets[i] & MAX_BUCKET;
+            if (!added && bucket <= index) {
+                float weight = bucket == index ? 1 + (float) (weights[i] * DECAY) : 1;
+                newBuckets[size] = (byte) bucket;
+                newWeights[size++] = weight;
+                added = true;
+                if (bucket == index) {
+                    continue;
+                }
+            }
+            float decayed = (float) (weights[i] * DECAY);
+            if (decayed >= MIN_WEIGHT) {
+                newBuckets[size] = buckets[i];
+                newWeights[size++] = decayed;
+            }
+        }
+        if (!added) {
+            newBuckets[size] = (byte) bucket;
+            newWeights[size++] = 1;
+        }
+        return new DurationSketch(Arrays.copyOf(newBuckets, size), Arrays.copyOf(newWeights, size));
+    }
+
+    /**
+     * Estimates a quantile of the recorded durations.
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated duration in milliseconds, or 0 if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        double target = quantile * totalWeight();
+        double seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += weights[i];
+            if (seen >= target) {
+                return valueOf(buckets[i] & MAX_BUCKET);
+            }
+        }
+        return buckets.length == 0 ? 0 : valueOf(buckets[buckets.length - 1] & MAX_BUCKET);
+    }
+
+    /**
+     * Gets the total weight of the recorded runs, which is roughly how many recent runs the sketch reflects.
+     *
+     * @return the total weight
+     */
+    public double totalWeight() {
+        double total = 0;
+        for (float weight : weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the bucket indexes, for storage.
+     *
+     * @return the bucket indexes as unsigned bytes; not to be modified
+     */
+    byte[] getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Gets the bucket weights, for storage.
+     *
+     * @return the weights; not to be modified
+     */
+    float[] getWeights() {
+        return weights;
+    }
+
+    private static int bucketOf(long durationMillis) {
+        if (durationMillis <= 1) {
+            return 0;
+        }
+        return (int) Math.min(MAX_BUCKET, Math.ceil(Math.log(durationMillis) / LOG_BASE));
+    }
+
+    private static double valueOf(int bucket) {
+        // Geometric middle of the bucket
+        return bucket == 0 ? 1 : Math.pow(BUCKET_BASE, bucket - HALF_BUCKET);
+    }
+}
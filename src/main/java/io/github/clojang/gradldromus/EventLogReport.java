@@ -0,0 +1,147 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Summarizes binary test event logs: outcome counts, total test time, the slowest tests and the most common
+ * failures, grouped by {@link BinaryEventLog#exceptionDigest(Throwable)}.
+ * Can be run outside Gradle with {@code java -cp gradldromus.jar io.github.clojang.gradldromus.EventLogReport FILE...}.
+ */
+public class EventLogReport implements Consumer<BinaryEventLog.TestRecord> {
+    /** Number of slowest tests and most common failures listed */
+    public static final int LIMIT = 10;
+
+    private static final double MILLISECONDS = 1000.0;
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    private final SlowTestTracker slowTests = new SlowTestTracker(LIMIT);
+    private final Map<Long, Failure> failures = new HashMap<>();
+    private long tests;
+    private long passed;
+    private long failed;
+    private long skipped;
+    private long totalMillis;
+
+    /**
+     * Creates an empty report.
+     */
+    public EventLogReport() {
+        // Filled by accept
+    }
+
+    /**
+     * Adds one test result to the report.
+     *
+     * @param record the test result
+     */
+    @Override
+    public void accept(BinaryEventLog.TestRecord record) {
+        tests++;
+        switch (record.getOutcome()) {
+            case SUCCESS:
+                passed++;
+                break;
+            case FAILURE:
+                failed++;
+                break;
+            default:
+                skipped++;
+        }
+        if (record.getOutcome() != TestResult.ResultType.SKIPPED) {
+            totalMillis += record.getDurationMillis();
+            slowTests.record(String.valueOf(record.getClassName()), record.getTestName(), record.getDurationMillis());
+        }
+        if (record.getExceptionDigest() != 0) {
+            failures.computeIfAbsent(record.getExceptionDigest(), digest -> new Failure(record)).count++;
+        }
+    }
+
+    /**
+     * Reads logs into the report.
+     *
+     * @param files the log files
+     * @return the report lines, including how long reading took
+     * @throws IOException if a file cannot be read
+     */
+    public List<String> read(List<Path> files) throws IOException {
+        long start = System.nanoTime();
+        for (Path file : files) {
+            BinaryEventLog.read(file, this);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        List<String> lines = new ArrayList<>();
+        lines.add(tests + " test results from " + files.size() + " log(s), read in " + elapsedMillis + "ms");
+        lines.addAll(lines());
+        return lines;
+    }
+
+    /**
+     * Renders the report.
+     *
+     * @return the report lines
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(passed + " passed, " + failed + " failed, " + skipped + " skipped; "
+            + String.format(Locale.ROOT, "%.1fs", totalMillis / MILLISECONDS) + " of test time");
+        List<SlowTestTracker.Timing> slowest = slowTests.slowestTests();
+        if (!slowest.isEmpty()) {
+            lines.add("Slowest tests:");
+            for (SlowTestTracker.Timing timing : slowest) {
+                lines.add("    " + timing.getDurationMillis() + "ms " + timing.getClassName() + "." + timing.getTestName());
+            }
+        }
+        if (!failures.isEmpty()) {
+            List<Failure> common = new ArrayList<>(failures.values());
+            common.sort((a, b) -> Long.compare(b.count, a.count));
+            lines.add("Most common failures:");
+            for (Failure failure : common.subList(0, Math.min(LIMIT, common.size()))) {
+                lines.add("    " + failure.count + "x " + failure.exceptionType + " (first in "
+                    + failure.className + "." + failure.testName + ")");
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Prints a report of the given log files.
+     *
+     * @param args the log files
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            files.add(Paths.get(arg));
+        }
+        for (String line : new EventLogReport().read(files)) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Failures with one digest, and the first test that had it.
+     */
+    private static final class Failure {
+        private final String exceptionType;
+        private final String className;
+        private final String testName;
+        private long count;
+
+        Failure(BinaryEventLog.TestRecord record) {
+            this.exceptionType = record.getExceptionType();
+            this.className = record.getClassName();
+            this.testName = record.getTestName();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints a summary of the binary test event logs written with {@code writeBinaryTestEvents}.
+ */
+@DisableCachingByDefault(because = "Prints a report and produces no output")
+public abstract class EventLogReportTask extends DefaultTask {
+    /** Name of the task */
+    public static final String NAME = "gradldromusEventReport";
+
+    /**
+     * Creates the task; called by Gradle.
+     */
+    public EventLogReportTask() {
+        // Always prints the report
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Gets the event logs to read; logs that do not exist are ignored.
+     *
+     * @return the log files
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getEventLogs();
+
+    /**
+     * Prints the report.
+     */
+    @TaskAction
+    public void report() {
+        List<Path> files = new ArrayList<>();
+        for (File file : getEventLogs().getFiles()) {
+            if (file.isFile()) {
+                files.add(file.toPath());
+            }
+        }
+        if (files.isEmpty()) {
+            getLogger().lifecycle("No test event logs yet; set writeBinaryTestEvents = true and run the tests.");
+            return;
+        }
+        try {
+            for (String line : new EventLogReport().read(files)) {
+                getLogger().lifecycle(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read test event logs", e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Picks the test classes that should run first, from the test history: classes that failed in their latest
+ * run, most recently run first, followed by classes that failed at some point, most often failing first.
+ * The result is written to a file that {@link FailedClassesFirstOrderer} reads in the test JVM.
+ */
+public final class FailedClassesFirst {
+    /** Location of the order files relative to a project's build directory */
+    public static final String RELATIVE_DIR = "gradldromus/class-order";
+
+    /** Maximum number of classes moved to the front */
+    public static final int MAX_CLASSES = 1000;
+
+    /** JUnit Platform configuration file, read from the root of the test runtime classpath */
+    public static final String PLATFORM_PROPERTIES = "junit-platform.properties";
+
+    private static final Comparator<ClassFailures> FIRST_TO_RUN = Comparator
+        .comparing(ClassFailures::isFailing).reversed()
+        .thenComparing(Comparator.comparingLong(ClassFailures::getLastFailureMillis).reversed())
+        .thenComparing(Comparator.comparingDouble(ClassFailures::getFailureRate).reversed())
+        .thenComparing(ClassFailures::getClassName);
+
+    private FailedClassesFirst() {
+    }
+
+    /**
+     * Lists the classes of a test task that have failed before, in the order they should run.
+     *
+     * @param entries the test history entries
+     * @param taskPath the path of the test task
+     * @return binary class names, at most {@link #MAX_CLASSES}
+     */
+    public static List<String> order(Collection<TestHistoryEntry> entries, String taskPath) {
+        Map<String, ClassFailures> classes = new HashMap<>();
+        for (TestHistoryEntry entry : entries) {
+            if (entry.getTaskPath().equals(taskPath)) {
+                classes.computeIfAbsent(entry.getClassName(), ClassFailures::new).add(entry);
+            }
+        }
+        List<ClassFailures> failed = new ArrayList<>();
+        for (ClassFailures candidate : classes.values()) {
+            if (candidate.failures > 0) {
+                failed.add(candidate);
+            }
+        }
+        failed.sort(FIRST_TO_RUN);
+        List<String> order = new ArrayList<>(Math.min(failed.size(), MAX_CLASSES));
+        for (ClassFailures candidate : failed.subList(0, Math.min(failed.size(), MAX_CLASSES))) {
+            order.add(candidate.className);
+        }
+        return order;
+    }
+
+    /**
+     * Writes the order for a test task's JVM to read.
+     *
+     * @param file the order file
+     * @param classNames the classes to run first, in order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<String> classNames) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, classNames, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds a default class orderer the project has already selected, which takes precedence over
+     * {@link FailedClassesFirstOrderer}. Only classpath directories are searched for
+     * {@value #PLATFORM_PROPERTIES}; a file packaged in a jar is not seen.
+     *
+     * @param systemProperties the system properties of the test task
+     * @param classpath the test runtime classpath
+     * @return where the orderer is selected, or null if it is not
+     */
+    public static String configuredClassOrderer(Map<String, Object> systemProperties, Iterable<File> classpath) {
+        if (systemProperties.containsKey(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER)) {
+            return "the system properties of the task";
+        }
+        for (File entry : classpath) {
+            Path file = entry.toPath().resolve(PLATFORM_PROPERTIES);
+            if (!entry.isDirectory() || !Files.isRegularFile(file)) {
+                continue;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                // JUnit cannot read it either, so it selects no orderer
+                continue;
+            }
+            if (properties.containsKey(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER)) {
+                return file.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Failure counts of one class, summed over its tests.
+     */
+    private static final class ClassFailures {
+        private final String className;
+        private int runs;
+        private int failures;
+        private boolean failing;
+        private long lastFailureMillis;
+
+        ClassFailures(String className) {
+            this.className = className;
+        }
+
+        void add(TestHistoryEntry entry) {
+            runs += entry.getRuns();
+            failures += entry.getFailures();
+            if (entry.getLastOutcome() == TestResult.ResultType.FAILURE) {
+                failing = true;
+                lastFailureMillis = Math.max(lastFailureMillis, entry.getLastSeenMillis());
+            }
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        boolean isFailing() {
+            return failing;
+        }
+
+        long getLastFailureMillis() {
+            return lastFailureMillis;
+        }
+
+        double getFailureRate() {
+            return runs == 0 ? 0 : (double) failures / runs;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.jupiter.api.ClassDescriptor;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.ClassOrdererContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JUnit Jupiter class orderer that runs the classes listed in the file written by {@link FailedClassesFirst}
+ * before all others, which keep their usual order. Runs inside the test JVM, so it uses nothing from Gradle.
+ * A missing or unreadable file leaves the order unchanged.
+ */
+public class FailedClassesFirstOrderer implements ClassOrderer {
+    /** Configuration parameter, or system property, naming the order file */
+    public static final String ORDER_FILE_PARAMETER = "gradldromus.classOrderFile";
+
+    /** JUnit configuration parameter selecting the default class orderer */
+    public static final String DEFAULT_ORDER_PARAMETER = "junit.jupiter.testclass.order.default";
+
+    /**
+     * Creates the orderer; called by JUnit.
+     */
+    public FailedClassesFirstOrderer() {
+        // Stateless; the order file is read for each ordering
+    }
+
+    @Override
+    public void orderClasses(ClassOrdererContext context) {
+        Optional<String> orderFile = context.getConfigurationParameter(ORDER_FILE_PARAMETER);
+        if (orderFile.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> ranks = readRanks(Paths.get(orderFile.get()));
+        if (ranks.isEmpty()) {
+            return;
+        }
+        // List.sort is stable, so classes that are not listed keep their relative order
+        List<? extends ClassDescriptor> classes = context.getClassDescriptors();
+        classes.sort(Comparator.comparingInt(descriptor -> ranks.getOrDefault(descriptor.getTestClass().getName(), Integer.MAX_VALUE)));
+    }
+
+    private static Map<String, Integer> readRanks(Path file) {
+        Map<String, Integer> ranks = new HashMap<>();
+        try {
+            if (Files.isRegularFile(file)) {
+                List<String> classNames = Files.readAllLines(file, StandardCharsets.UTF_8);
+                for (int i = 0; i < classNames.size(); i++) {
+                    // Enclosing classes share the rank, since @Nested classes are ordered through their outer class
+                    String className = classNames.get(i).trim();
+                    for (int nested = className.indexOf('$'); nested > 0; nested = className.indexOf('$', nested + 1)) {
+                        ranks.putIfAbsent(className.substring(0, nested), i);
+                    }
+                    ranks.putIfAbsent(className, i);
+                }
+            }
+        } catch (IOException e) {
+            // Ordering is an optimisation; run the tests in their usual order instead
+            ranks.clear();
+        }
+        return ranks;
+    }
+}
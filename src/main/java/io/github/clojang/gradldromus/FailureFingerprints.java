@@ -0,0 +1,210 @@
+package io.github.clojang.gradldromus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups test failures that share a cause, so that a broken fixture failing hundreds of tests is rendered once.
+ * A failure's fingerprint is a 64-bit FNV-1a hash of its exception type and top stack frames, computed over
+ * the characters of the existing names without building any strings. Test framework and assertion library
+ * frames are skipped first, since every {@code assertEquals} failure starts with the same ones. The message is
+ * left out, since it often contains values that differ between otherwise identical failures.
+ */
+public class FailureFingerprints {
+    /** Number of top stack frames, outside test frameworks, that make up a fingerprint */
+    public static final int TOP_FRAMES = 5;
+
+    /** Maximum number of groups listed in the summary */
+    public static final int MAX_LISTED = 10;
+
+    /** Packages whose frames are not part of a fingerprint, unless a stack has no other frames */
+    public static final List<String> FRAMEWORK_PACKAGES = Collections.unmodifiableList(Arrays.asList(
+        "org.junit", "junit", "org.opentest4j", "org.assertj", "org.hamcrest",
+        "jdk.internal.reflect", "java.lang.reflect", "sun.reflect", "org.gradle", "worker.org.gradle"));
+
+    private static final StackFrameFilter FRAMEWORK_FRAMES = new StackFrameFilter(Collections.emptyList(), FRAMEWORK_PACKAGES);
+
+    static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Long, Group> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the fingerprint of an exception.
+     *
+     * @param exception the exception
+     * @return the fingerprint
+     */
+    public static long fingerprint(Throwable exception) {
+        long hash = mix(FNV_OFFSET_BASIS, exception.getClass().getName());
+        StackTraceElement[] stackTrace = exception.getStackTrace();
+        boolean skipFramework = hasOwnFrame(stackTrace);
+        int mixed = 0;
+        for (int i = 0; i < stackTrace.length && mixed < TOP_FRAMES; i++) {
+            if (skipFramework && FRAMEWORK_FRAMES.isHidden(stackTrace[i])) {
+                continue;
+            }
+            hash = mix(hash, stackTrace[i].getClassName());
+            hash = mix(hash, stackTrace[i].getMethodName());
+            hash = mix(hash, stackTrace[i].getLineNumber());
+            mixed++;
+        }
+        return hash;
+    }
+
+    private static boolean hasOwnFrame(StackTraceElement[] stackTrace) {
+        for (StackTraceElement frame : stackTrace) {
+            if (!FRAMEWORK_FRAMES.isHidden(frame)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Formats a fingerprint for display.
+     *
+     * @param fingerprint the fingerprint
+     * @return eight hexadecimal digits
+     */
+    public static String format(long fingerprint) {
+        return String.format(Locale.ROOT, "%08x", fingerprint >>> Integer.SIZE);
+    }
+
+    static long mix(long seed, String value) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // Separator, so that ("ab", "c") and ("a", "bc") differ
+        return (hash ^ '\n') * FNV_PRIME;
+    }
+
+    private static long mix(long seed, int value) {
+        long hash = seed;
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ Byte.toUnsignedInt((byte) (value >>> shift))) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Records a failure.
+     *
+     * @param exception the exception the test failed with
+     * @param className the test class name, or null
+     * @param testName the test name
+     * @return the group of an earlier failure with the same fingerprint, or null if this is the first
+     */
+    public Group record(Throwable exception, String className, String testName) {
+        long fingerprint = fingerprint(exception);
+        Group group = groups.get(fingerprint);
+        if (group == null) {
+            Group created = new Group(fingerprint, exception, className, testName);
+            group = groups.putIfAbsent(fingerprint, created);
+            if (group == null) {
+                created.count.increment();
+                return null;
+            }
+        }
+        group.count.increment();
+        return group;
+    }
+
+    /**
+     * Gets the fingerprints shared by more than one failure.
+     *
+     * @return the groups, most failures first
+     */
+    public List<Group> repeated() {
+        List<Group> repeated = new ArrayList<>();
+        for (Group group : groups.values()) {
+            if (group.getCount() > 1) {
+                repeated.add(group);
+            }
+        }
+        repeated.sort(Comparator.comparingLong(Group::getCount).reversed().thenComparing(Group::getFingerprint));
+        return repeated;
+    }
+
+    /**
+     * Failures sharing a fingerprint, and the first test that had it.
+     */
+    public static final class Group {
+        private final long fingerprint;
+        private final String exceptionType;
+        private final String message;
+        private final String className;
+        private final String testName;
+        private final LongAdder count = new LongAdder();
+
+        Group(long fingerprint, Throwable exception, String className, String testName) {
+            this.fingerprint = fingerprint;
+            this.exceptionType = exception.getClass().getName();
+            this.message = exception.getMessage();
+            this.className = className;
+            this.testName = testName;
+        }
+
+        /**
+         * Gets the fingerprint.
+         *
+         * @return the fingerprint
+         */
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Gets the exception class of the first failure.
+         *
+         * @return the exception class name
+         */
+        public String getExceptionType() {
+            return exceptionType;
+        }
+
+        /**
+         * Gets the exception message of the first failure.
+         *
+         * @return the message, or null
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Gets the class of the first failing test.
+         *
+         * @return the class name, or null
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the name of the first failing test.
+         *
+         * @return the test name
+         */
+        public String getTestName() {
+            return testName;
+        }
+
+        /**
+         * Gets the number of failures with this fingerprint.
+         *
+         * @return the failure count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how much failure output reaches the console, per test task and for the whole build. Every failure's
+ * details count against both budgets; once either is used up, the task's later failures are diverted as well,
+ * so the console and the overflow file each hold an unbroken run of failures.
+ */
+public class FailureOutputBudget {
+    /** Default number of characters of failure details a test task may print */
+    public static final long DEFAULT_TASK_LIMIT_CHARS = 1024L * 1024;
+
+    /** Default number of characters of failure details all test tasks of a build may print together */
+    public static final long DEFAULT_BUILD_LIMIT_CHARS = 8L * 1024 * 1024;
+
+    private final long taskLimitChars;
+    private final long buildLimitChars;
+    private final Map<String, AtomicLong> taskChars = new ConcurrentHashMap<>();
+    private final AtomicLong buildChars = new AtomicLong();
+    private final LongAdder divertedFailures = new LongAdder();
+    private final LongAdder divertedChars = new LongAdder();
+
+    /**
+     * Creates a budget.
+     *
+     * @param taskLimitChars characters each task may print; 0 for no limit
+     * @param buildLimitChars characters the build may print; 0 for no limit
+     */
+    public FailureOutputBudget(long taskLimitChars, long buildLimitChars) {
+        this.taskLimitChars = taskLimitChars;
+        this.buildLimitChars = buildLimitChars;
+    }
+
+    /**
+     * Counts a failure's details against the budgets.
+     *
+     * @param taskPath the path of the test task, or null for tests of unknown tasks
+     * @param chars the length of the failure's details
+     * @return true if the details may be printed, false if they should be diverted
+     */
+    public boolean spend(String taskPath, long chars) {
+        long task = taskChars.computeIfAbsent(taskPath == null ? "" : taskPath, key -> new AtomicLong()).addAndGet(chars);
+        long build = buildChars.addAndGet(chars);
+        if ((taskLimitChars > 0 && task > taskLimitChars) || (buildLimitChars > 0 && build > buildLimitChars)) {
+            divertedFailures.increment();
+            divertedChars.add(chars);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of failures whose details were diverted.
+     *
+     * @return the failure count
+     */
+    public long getDivertedFailures() {
+        return divertedFailures.sum();
+    }
+
+    /**
+     * Gets the length of the diverted details.
+     *
+     * @return the number of characters
+     */
+    public long getDivertedChars() {
+        return divertedChars.sum();
+    }
+}
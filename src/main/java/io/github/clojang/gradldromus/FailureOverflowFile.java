@@ -0,0 +1,144 @@
+package io.github.clojang.gradldromus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Receives the failure details of one test task once its console budget is used up.
+ * Lines are stripped of colors, encoded into a buffer and written through a {@link FileChannel} when the
+ * buffer fills up and when the file is closed. A file that cannot be written is reported once, after which
+ * failures are dropped.
+ */
+public class FailureOverflowFile implements AutoCloseable {
+    /** Directory of the overflow files, relative to the build directory */
+    public static final String RELATIVE_DIRECTORY = "gradldromus/failures";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(FailureOverflowFile.class.getName());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private long failures;
+    private boolean writeFailed;
+
+    private FailureOverflowFile(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Gets the overflow file of a test task.
+     *
+     * @param buildDir the build directory of the task's project
+     * @param taskPath the path of the test task
+     * @return the file, named after the task
+     */
+    public static Path pathFor(Path buildDir, String taskPath) {
+        return buildDir.resolve(RELATIVE_DIRECTORY).resolve(taskPath.substring(taskPath.lastIndexOf(':') + 1) + ".txt");
+    }
+
+    /**
+     * Creates the file, replacing the file of an earlier build.
+     *
+     * @param file the file to write
+     * @return the overflow file
+     * @throws IOException if the file cannot be created
+     */
+    public static FailureOverflowFile open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return new FailureOverflowFile(file, FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Gets the path of the file.
+     *
+     * @return the path
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of failures written to the file.
+     *
+     * @return the failure count
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Appends the details of one failure, followed by an empty line.
+     *
+     * @param testName the name of the failed test
+     * @param lines the rendered details, which may contain colors and line separators
+     */
+    public synchronized void write(String testName, List<String> lines) {
+        failures++;
+        if (writeFailed) {
+            return;
+        }
+        try {
+            writeLine(testName);
+            for (String line : lines) {
+                writeLine(AnsiColors.stripAnsi(line));
+            }
+            writeLine("");
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (!writeFailed) {
+                drain();
+            }
+            channel.close();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        encode(CharBuffer.wrap(line));
+        encode(CharBuffer.wrap(System.lineSeparator()));
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void failed(IOException e) {
+        if (!writeFailed) {
+            // Warn once; the failures are still counted in the summary
+            LOGGER.warning("Could not write failure details to " + file + ": " + e.getMessage());
+            writeFailed = true;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.logging.configuration.ConsoleOutput;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_BLACK;
+import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_GREEN;
+import static io.github.clojang.gradldromus.AnsiColors.GREEN;
+
+/**
+ * Build-scoped holder of the shared {@link CustomTestListener}.
+ * Gradle creates one instance per build and closes it when the build finishes, which is when the
+ * final summary is printed. Nothing refers to a {@code Project}, so the configuration cache can be
+ * reused and the daemon keeps no state between builds.
+ */
+public abstract class GradlDromusBuildService
+        implements BuildService<GradlDromusBuildService.Params>, OperationCompletionListener, AutoCloseable {
+    /** Name under which the service is registered */
+    public static final String NAME = "gradldromus";
+
+    private static final Logger LOGGER = Logger.getLogger(GradlDromusBuildService.class.getName());
+
+    private final PrintStream output = System.out;
+    private final AtomicBoolean greeted = new AtomicBoolean();
+    private final Map<String, Boolean> runningTasks = new ConcurrentHashMap<>();
+    private final Map<Path, TestHistoryStore> histories = new ConcurrentHashMap<>();
+    private final Map<Path, TestEventSink> eventSinks = new ConcurrentHashMap<>();
+    private volatile CustomTestListener listener;
+
+    /**
+     * Default constructor, called by Gradle.
+     */
+    public GradlDromusBuildService() {
+        // Instantiated by Gradle
+    }
+
+    /**
+     * Gets the listener shared by all test tasks in this build, creating it on first use.
+     * The first caller's configuration wins, just as the first project to apply the plugin did before.
+     *
+     * @param extension the configuration used if the listener does not exist yet
+     * @return the shared listener
+     */
+    public CustomTestListener getListener(GradlDromusExtension extension) {
+        CustomTestListener current = listener;
+        if (current == null) {
+            synchronized (this) {
+                current = listener;
+                if (current == null) {
+                    ConsoleOutput consoleOutput = getParameters().getConsoleOutput().getOrElse(ConsoleOutput.Auto);
+                    current = new CustomTestListener(extension, output, new TerminalProbe(consoleOutput));
+                    listener = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Called when a test task starts executing. Prints the greeting banner for the first one and
+     * returns the listener that the task should report to.
+     *
+     * @param taskPath the path of the starting test task
+     * @param extension the configuration of the project that owns the task
+     * @return the shared listener
+     */
+    public CustomTestListener testTaskStarting(String taskPath, GradlDromusExtension extension) {
+        return testTaskStarting(taskPath, extension, null);
+    }
+
+    /**
+     * Called when a test task starts executing. Like {@link #testTaskStarting(String, GradlDromusExtension)},
+     * and also attaches the history and event files that are enabled, under the build directory of the
+     * project that owns the task.
+     *
+     * @param taskPath the path of the starting test task
+     * @param extension the configuration of the project that owns the task
+     * @param buildDir the build directory of the project that owns the task, or null
+     * @return the shared listener
+     */
+    public CustomTestListener testTaskStarting(String taskPath, GradlDromusExtension extension, Path buildDir) {
+        CustomTestListener current = getListener(extension);
+        if (greeted.compareAndSet(false, true)) {
+            printGreeting(current.getPrinter(), current.getColors());
+        }
+        if (buildDir != null && extension.isRecordTestHistory()) {
+            // Test tasks of one project share its history file
+            TestHistoryStore history = histories.computeIfAbsent(buildDir.resolve(TestHistoryStore.RELATIVE_PATH),
+                file -> TestHistoryStore.open(file, extension.getTestHistoryMaxEntries()));
+            current.attachHistory(taskPath, history);
+        }
+        if (buildDir != null && extension.isWriteTestEvents()) {
+            attachEventSink(current, taskPath, buildDir.resolve(NdjsonEventSink.RELATIVE_PATH), NdjsonEventSink::open);
+        }
+        if (buildDir != null && extension.isWriteBinaryTestEvents()) {
+            attachEventSink(current, taskPath, buildDir.resolve(BinaryEventLog.RELATIVE_PATH), BinaryEventSink::open);
+        }
+        if (buildDir != null) {
+            current.attachFailureOverflowFile(taskPath, FailureOverflowFile.pathFor(buildDir, taskPath));
+        }
+        runningTasks.put(taskPath, Boolean.TRUE);
+        return current;
+    }
+
+    private void attachEventSink(CustomTestListener current, String taskPath, Path eventFile, SinkOpener opener) {
+        // Test tasks of one project share its event files, which start empty in each build
+        TestEventSink sink = eventSinks.computeIfAbsent(eventFile, file -> {
+            try {
+                return opener.open(file);
+            } catch (IOException e) {
+                LOGGER.warning("Could not create test event file " + file + ": " + e.getMessage());
+                return null;
+            }
+        });
+        if (sink != null) {
+            current.attachEventSink(taskPath, sink);
+        }
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) {
+            return;
+        }
+        String taskPath = ((TaskFinishEvent) event).getDescriptor().getTaskPath();
+        CustomTestListener current = listener;
+        if (current != null && runningTasks.remove(taskPath) != null) {
+            // Footer for a test task that ran through this plugin
+            CleanTerminalPrinter printer = current.getPrinter();
+            printer.println(output, "");
+            printer.printHeading(output, current.getColors(), "-", BRIGHT_BLACK);
+            printer.flush();
+        }
+    }
+
+    /**
+     * Prints the final summary, if any tests ran, releases the listener's resources and saves test history and events.
+     */
+    @Override
+    public void close() {
+        CustomTestListener current = listener;
+        if (current != null) {
+            if (current.hasTests()) {
+                current.printFinalSummary();
+            }
+            current.close();
+            listener = null;
+        }
+        for (TestHistoryStore history : histories.values()) {
+            history.close();
+        }
+        histories.clear();
+        for (TestEventSink sink : eventSinks.values()) {
+            sink.close();
+        }
+        eventSinks.clear();
+    }
+
+    private void printGreeting(CleanTerminalPrinter printer, AnsiColors colors) {
+        // Write a greeting message
+        Properties props = new Properties();
+        // Try multiple locations for the properties file
+        String[] possiblePaths = {
+            "/io/github/clojang/gradldromus/plugin.properties",
+            "/plugin.properties",
+            "plugin.properties"
+        };
+        boolean loaded = false;
+        printer.println(output, "");
+        printer.printHeading(output, colors, "=", BRIGHT_GREEN);
+        for (String path : possiblePaths) {
+            try (InputStream in = GradlDromusBuildService.class.getResourceAsStream(path)) {
+                if (in != null) {
+                    props.load(in);
+                    String pluginName = props.getProperty("plugin.name", "GradlDromus");
+                    String pluginVersion = props.getProperty("plugin.version", "unknown");
+                    printer.println(output, colors.colorize("Running tests with " + pluginName + " (version: " + pluginVersion + ")", GREEN));
+                    loaded = true;
+                    break;
+                }
+            } catch (IOException e) {
+                // Continue to next path
+            }
+        }
+
+        if (!loaded) {
+            // Fallback - get version from manifest or use default
+            Package pkg = GradlDromusBuildService.class.getPackage();
+            String version = pkg != null ? pkg.getImplementationVersion() : "unknown";
+            printer.println(output, colors.colorize("Running tests with GradlDromus (version: " + version + ")", GREEN));
+        }
+        printer.printHeading(output, colors, "-", BRIGHT_GREEN);
+    }
+
+    /**
+     * Creates the sink for an event file.
+     */
+    private interface SinkOpener {
+        TestEventSink open(Path file) throws IOException;
+    }
+
+    /**
+     * Parameters of the service, set once per build by the first project that applies the plugin.
+     */
+    public interface Params extends BuildServiceParameters {
+        /**
+         * Gets Gradle's console output setting, which decides whether lines may be rewritten.
+         *
+         * @return the console output setting
+         */
+        Property<ConsoleOutput> getConsoleOutput();
+    }
+}
@@ -1,5 +1,10 @@
 package io.github.clojang.gradldromus;
 
+import org.gradle.api.InvalidUserDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration extension for the GradlDromus plugin.
  * Provides settings for customizing test output formatting, colors, symbols, and behavior.
@@ -8,6 +13,33 @@ public class GradlDromusExtension {
     /** Default maximum depth for stack trace output */
     public static final int MAX_STACK_TRACE_DEPTH = 10;
     
+    /** Render mode that clears lines on interactive terminals and writes plain lines otherwise */
+    public static final String RENDER_MODE_AUTO = "auto";
+    
+    /** Render mode that always clears the current line before writing */
+    public static final String RENDER_MODE_INTERACTIVE = "interactive";
+    
+    /** Render mode that writes plain lines without any clearing sequences */
+    public static final String RENDER_MODE_PLAIN = "plain";
+    
+    /** Regression baseline that compares a test's duration with its usual (median) duration */
+    public static final String REGRESSION_BASELINE_MEDIAN = "median";
+    
+    /** Regression baseline that compares a test's duration with its 95th percentile duration */
+    public static final String REGRESSION_BASELINE_P95 = "p95";
+    
+    /** JUnit XML report policy that writes reports on CI, and locally only when the plugin records no results */
+    public static final String JUNIT_XML_REPORTS_AUTO = "auto";
+    
+    /** JUnit XML report policy that always writes reports */
+    public static final String JUNIT_XML_REPORTS_ALWAYS = "always";
+    
+    /** JUnit XML report policy that never writes reports */
+    public static final String JUNIT_XML_REPORTS_NEVER = "never";
+    
+    /** JUnit XML report policy that writes reports only when the CI environment variable is set */
+    public static final String JUNIT_XML_REPORTS_CI = "ci";
+    
     // Public fields for Kotlin DSL compatibility
     
     /** Whether to show module names in test output */
@@ -31,6 +63,9 @@ public class GradlDromusExtension {
     /** Terminal width for formatting output */
     public int terminalWidth = CleanTerminalPrinter.DEFAULT_TERM_SM_WIDTH;
     
+    /** How lines are written: "auto", "interactive" (clear before each line) or "plain" (no clearing) */
+    public String renderMode = RENDER_MODE_AUTO;
+    
     /** Symbol to display for passed tests */
     public String passSymbol = "💚";
     
@@ -54,6 +89,71 @@ public class GradlDromusExtension {
     /** Maximum depth for stack trace output when showing short stack traces */
     public int maxStackTraceDepth = MAX_STACK_TRACE_DEPTH;
     
+    /** Packages and classes whose frames are left out of short stack traces; empty to show every frame */
+    public List<String> stackTraceExcludes = new ArrayList<>(StackFrameFilter.DEFAULT_EXCLUDES);
+    
+    /** Packages and classes whose frames are shown in short stack traces even inside an excluded package */
+    public List<String> stackTraceIncludes = new ArrayList<>();
+    
+    // Output pipeline options
+    
+    /** Whether to write test output from a background thread instead of the test-event thread */
+    public boolean asyncOutput = false;
+    
+    /** Maximum time in milliseconds that asynchronous output waits before being written */
+    public long outputFlushIntervalMillis = AsyncLineWriter.DEFAULT_FLUSH_INTERVAL_MILLIS;
+    
+    /** Whether to write each test class's output in one piece when the class finishes, instead of line by line */
+    public boolean groupOutputByClass = false;
+    
+    /** Number of characters of grouped output held in memory before further output is buffered on disk */
+    public long outputBufferLimitChars = ClassOutputBuffer.DEFAULT_MEMORY_LIMIT_CHARS;
+    
+    /** Number of slowest tests and slowest test classes listed in the final summary; 0 to disable */
+    public int slowestTestsCount = SlowTestTracker.DEFAULT_LIMIT;
+    
+    /** Whether to remember test durations and outcomes between builds, in build/gradldromus */
+    public boolean recordTestHistory = true;
+    
+    /** Maximum number of tests remembered in each project's test history */
+    public int testHistoryMaxEntries = TestHistoryStore.DEFAULT_MAX_ENTRIES;
+    
+    /** Multiple of a test's historical duration above which it is flagged as slower than usual; 0 to disable */
+    public double regressionThreshold = DurationRegressions.DEFAULT_THRESHOLD;
+    
+    /** Historical duration that regressions are measured against: "median" or "p95" */
+    public String regressionBaseline = REGRESSION_BASELINE_MEDIAN;
+    
+    /** Whether JUnit Jupiter test classes that failed before run first; needs recordTestHistory */
+    public boolean failedClassesFirst = false;
+    
+    /** Whether to write test events as newline-delimited JSON to build/gradldromus/test-events.ndjson */
+    public boolean writeTestEvents = false;
+    
+    /** Whether to write test results to a compact binary log, build/gradldromus/test-events.bin */
+    public boolean writeBinaryTestEvents = false;
+    
+    /** Whether failures with the same exception type and top stack frames as an earlier one are shown as a reference */
+    public boolean groupRepeatedFailures = true;
+    
+    /** Characters of failure details each test task prints before further details go to a file; 0 for no limit */
+    public long failureOutputLimitChars = FailureOutputBudget.DEFAULT_TASK_LIMIT_CHARS;
+    
+    /** Characters of failure details all test tasks print together before further details go to files; 0 for no limit */
+    public long buildFailureOutputLimitChars = FailureOutputBudget.DEFAULT_BUILD_LIMIT_CHARS;
+    
+    /** Whether to show a single live progress line instead of a line per test; failures are still printed */
+    public boolean compactProgress = false;
+    
+    /** Delay between redraws of the compact progress line, in milliseconds */
+    public long progressRefreshMillis = ProgressLine.DEFAULT_REFRESH_MILLIS;
+    
+    /** When test tasks write JUnit XML reports: "always", "never", "ci" or "auto" */
+    public String junitXmlReports = JUNIT_XML_REPORTS_ALWAYS;
+    
+    /** Whether to print internal diagnostics, such as cache statistics, with the final summary */
+    public boolean debug = false;
+    
     /**
      * Default constructor for the extension.
      */
@@ -153,6 +253,24 @@ public class GradlDromusExtension {
         return terminalWidth;
     }
 
+    /**
+     * Gets how lines are written to the terminal.
+     * 
+     * @return the render mode: "auto", "interactive" or "plain"
+     */
+    public String getRenderMode() {
+        return renderMode;
+    }
+    
+    /**
+     * Sets how lines are written to the terminal.
+     * 
+     * @param renderMode the render mode: "auto", "interactive" or "plain"
+     */
+    public void setRenderMode(String renderMode) {
+        this.renderMode = renderMode;
+    }
+
     /**
      * Gets the symbol used for passed tests.
      * 
@@ -280,4 +398,408 @@ public class GradlDromusExtension {
     public void setMaxStackTraceDepth(int maxStackTraceDepth) {
         this.maxStackTraceDepth = maxStackTraceDepth;
     }
+    
+    /**
+     * Gets the packages and classes whose frames are left out of short stack traces.
+     * 
+     * @return the excluded package or class name prefixes
+     */
+    public List<String> getStackTraceExcludes() {
+        return stackTraceExcludes;
+    }
+    
+    /**
+     * Sets the packages and classes whose frames are left out of short stack traces.
+     * 
+     * @param stackTraceExcludes the excluded package or class name prefixes; empty to show every frame
+     */
+    public void setStackTraceExcludes(List<String> stackTraceExcludes) {
+        this.stackTraceExcludes = new ArrayList<>(stackTraceExcludes);
+    }
+    
+    /**
+     * Gets the packages and classes whose frames are shown even inside an excluded package.
+     * 
+     * @return the included package or class name prefixes
+     */
+    public List<String> getStackTraceIncludes() {
+        return stackTraceIncludes;
+    }
+    
+    /**
+     * Sets the packages and classes whose frames are shown even inside an excluded package.
+     * 
+     * @param stackTraceIncludes the included package or class name prefixes
+     */
+    public void setStackTraceIncludes(List<String> stackTraceIncludes) {
+        this.stackTraceIncludes = new ArrayList<>(stackTraceIncludes);
+    }
+    
+    /**
+     * Gets whether test output is written from a background thread.
+     * 
+     * @return true if asynchronous output is enabled
+     */
+    public boolean isAsyncOutput() {
+        return asyncOutput;
+    }
+    
+    /**
+     * Sets whether test output is written from a background thread.
+     * 
+     * @param asyncOutput true to enable asynchronous output
+     */
+    public void setAsyncOutput(boolean asyncOutput) {
+        this.asyncOutput = asyncOutput;
+    }
+    
+    /**
+     * Gets the maximum time that asynchronous output waits before being written.
+     * 
+     * @return the flush interval in milliseconds
+     */
+    public long getOutputFlushIntervalMillis() {
+        return outputFlushIntervalMillis;
+    }
+    
+    /**
+     * Sets the maximum time that asynchronous output waits before being written.
+     * 
+     * @param outputFlushIntervalMillis the flush interval in milliseconds
+     */
+    public void setOutputFlushIntervalMillis(long outputFlushIntervalMillis) {
+        this.outputFlushIntervalMillis = outputFlushIntervalMillis;
+    }
+    
+    /**
+     * Gets whether each test class's output is written in one piece when the class finishes.
+     * 
+     * @return true if output is grouped by test class
+     */
+    public boolean isGroupOutputByClass() {
+        return groupOutputByClass;
+    }
+    
+    /**
+     * Sets whether each test class's output is written in one piece when the class finishes.
+     * Keeps results readable when {@code maxParallelForks} is greater than one.
+     * 
+     * @param groupOutputByClass true to group output by test class
+     */
+    public void setGroupOutputByClass(boolean groupOutputByClass) {
+        this.groupOutputByClass = groupOutputByClass;
+    }
+    
+    /**
+     * Gets the number of characters of grouped output held in memory before it is buffered on disk.
+     * 
+     * @return the memory limit in characters
+     */
+    public long getOutputBufferLimitChars() {
+        return outputBufferLimitChars;
+    }
+    
+    /**
+     * Sets the number of characters of grouped output held in memory before it is buffered on disk.
+     * 
+     * @param outputBufferLimitChars the memory limit in characters
+     */
+    public void setOutputBufferLimitChars(long outputBufferLimitChars) {
+        this.outputBufferLimitChars = outputBufferLimitChars;
+    }
+    
+    /**
+     * Gets the number of slowest tests and test classes listed in the final summary.
+     * 
+     * @return the number of entries, or 0 if the lists are disabled
+     */
+    public int getSlowestTestsCount() {
+        return slowestTestsCount;
+    }
+    
+    /**
+     * Sets the number of slowest tests and test classes listed in the final summary.
+     * 
+     * @param slowestTestsCount the number of entries, or 0 to disable the lists
+     */
+    public void setSlowestTestsCount(int slowestTestsCount) {
+        this.slowestTestsCount = slowestTestsCount;
+    }
+    
+    /**
+     * Gets whether test durations and outcomes are remembered between builds.
+     * 
+     * @return true if test history is recorded
+     */
+    public boolean isRecordTestHistory() {
+        return recordTestHistory;
+    }
+    
+    /**
+     * Sets whether test durations and outcomes are remembered between builds.
+     * 
+     * @param recordTestHistory true to record test history
+     */
+    public void setRecordTestHistory(boolean recordTestHistory) {
+        this.recordTestHistory = recordTestHistory;
+    }
+    
+    /**
+     * Gets the maximum number of tests remembered in each project's test history.
+     * 
+     * @return the maximum number of entries
+     */
+    public int getTestHistoryMaxEntries() {
+        return testHistoryMaxEntries;
+    }
+    
+    /**
+     * Sets the maximum number of tests remembered in each project's test history.
+     * 
+     * @param testHistoryMaxEntries the maximum number of entries
+     */
+    public void setTestHistoryMaxEntries(int testHistoryMaxEntries) {
+        this.testHistoryMaxEntries = testHistoryMaxEntries;
+    }
+    
+    /**
+     * Gets the multiple of a test's historical duration above which it is flagged as slower than usual.
+     * 
+     * @return the threshold
+     */
+    public double getRegressionThreshold() {
+        return regressionThreshold;
+    }
+    
+    /**
+     * Sets the multiple of a test's historical duration above which it is flagged as slower than usual.
+     * 
+     * @param regressionThreshold the threshold, or 0 to disable regression detection
+     */
+    public void setRegressionThreshold(double regressionThreshold) {
+        this.regressionThreshold = regressionThreshold;
+    }
+    
+    /**
+     * Gets the historical duration that regressions are measured against.
+     * 
+     * @return "median" or "p95"
+     */
+    public String getRegressionBaseline() {
+        return regressionBaseline;
+    }
+    
+    /**
+     * Sets the historical duration that regressions are measured against.
+     * 
+     * @param regressionBaseline "median" or "p95"
+     */
+    public void setRegressionBaseline(String regressionBaseline) {
+        this.regressionBaseline = regressionBaseline;
+    }
+    
+    /**
+     * Gets whether test classes that failed before run first.
+     * 
+     * @return true if failed classes run first
+     */
+    public boolean isFailedClassesFirst() {
+        return failedClassesFirst;
+    }
+    
+    /**
+     * Sets whether test classes that failed before run first.
+     * 
+     * @param failedClassesFirst true to run failed classes first
+     */
+    public void setFailedClassesFirst(boolean failedClassesFirst) {
+        this.failedClassesFirst = failedClassesFirst;
+    }
+    
+    /**
+     * Gets whether test events are written as newline-delimited JSON.
+     * 
+     * @return true if test events are written
+     */
+    public boolean isWriteTestEvents() {
+        return writeTestEvents;
+    }
+    
+    /**
+     * Sets whether test events are written as newline-delimited JSON.
+     * 
+     * @param writeTestEvents true to write test events
+     */
+    public void setWriteTestEvents(boolean writeTestEvents) {
+        this.writeTestEvents = writeTestEvents;
+    }
+    
+    /**
+     * Gets whether test results are written to a binary event log.
+     * 
+     * @return true if the binary event log is written
+     */
+    public boolean isWriteBinaryTestEvents() {
+        return writeBinaryTestEvents;
+    }
+    
+    /**
+     * Sets whether test results are written to a binary event log.
+     * 
+     * @param writeBinaryTestEvents true to write the binary event log
+     */
+    public void setWriteBinaryTestEvents(boolean writeBinaryTestEvents) {
+        this.writeBinaryTestEvents = writeBinaryTestEvents;
+    }
+    
+    /**
+     * Gets whether repeated failures are shown as a one-line reference to the first one.
+     * 
+     * @return true if repeated failures are grouped
+     */
+    public boolean isGroupRepeatedFailures() {
+        return groupRepeatedFailures;
+    }
+    
+    /**
+     * Sets whether repeated failures are shown as a one-line reference to the first one.
+     * 
+     * @param groupRepeatedFailures true to group repeated failures
+     */
+    public void setGroupRepeatedFailures(boolean groupRepeatedFailures) {
+        this.groupRepeatedFailures = groupRepeatedFailures;
+    }
+    
+    /**
+     * Gets the number of characters of failure details each test task prints before further details go to a file.
+     * 
+     * @return the limit in characters, 0 for no limit
+     */
+    public long getFailureOutputLimitChars() {
+        return failureOutputLimitChars;
+    }
+    
+    /**
+     * Sets the number of characters of failure details each test task prints before further details go to a file.
+     * 
+     * @param failureOutputLimitChars the limit in characters, 0 for no limit
+     */
+    public void setFailureOutputLimitChars(long failureOutputLimitChars) {
+        this.failureOutputLimitChars = failureOutputLimitChars;
+    }
+    
+    /**
+     * Gets the number of characters of failure details all test tasks print before further details go to files.
+     * 
+     * @return the limit in characters, 0 for no limit
+     */
+    public long getBuildFailureOutputLimitChars() {
+        return buildFailureOutputLimitChars;
+    }
+    
+    /**
+     * Sets the number of characters of failure details all test tasks print before further details go to files.
+     * 
+     * @param buildFailureOutputLimitChars the limit in characters, 0 for no limit
+     */
+    public void setBuildFailureOutputLimitChars(long buildFailureOutputLimitChars) {
+        this.buildFailureOutputLimitChars = buildFailureOutputLimitChars;
+    }
+    
+    /**
+     * Gets whether a single live progress line is shown instead of a line per test.
+     * 
+     * @return true if compact progress is enabled
+     */
+    public boolean isCompactProgress() {
+        return compactProgress;
+    }
+    
+    /**
+     * Sets whether a single live progress line is shown instead of a line per test.
+     * 
+     * @param compactProgress true to enable compact progress
+     */
+    public void setCompactProgress(boolean compactProgress) {
+        this.compactProgress = compactProgress;
+    }
+    
+    /**
+     * Gets the delay between redraws of the compact progress line.
+     * 
+     * @return the delay in milliseconds
+     */
+    public long getProgressRefreshMillis() {
+        return progressRefreshMillis;
+    }
+    
+    /**
+     * Sets the delay between redraws of the compact progress line.
+     * 
+     * @param progressRefreshMillis the delay in milliseconds
+     */
+    public void setProgressRefreshMillis(long progressRefreshMillis) {
+        this.progressRefreshMillis = progressRefreshMillis;
+    }
+    
+    /**
+     * Gets when test tasks write JUnit XML reports.
+     * 
+     * @return the report policy: "always", "never", "ci" or "auto"
+     */
+    public String getJunitXmlReports() {
+        return junitXmlReports;
+    }
+    
+    /**
+     * Sets when test tasks write JUnit XML reports.
+     * 
+     * @param junitXmlReports the report policy: "always", "never", "ci" or "auto"
+     */
+    public void setJunitXmlReports(String junitXmlReports) {
+        this.junitXmlReports = junitXmlReports;
+    }
+    
+    /**
+     * Decides whether a test task writes JUnit XML reports under the configured policy.
+     * 
+     * @param ci whether the build runs on CI
+     * @return true if the reports are written
+     * @throws InvalidUserDataException if the policy is not one of the known values
+     */
+    public boolean isJunitXmlRequired(boolean ci) {
+        if (JUNIT_XML_REPORTS_ALWAYS.equalsIgnoreCase(junitXmlReports)) {
+            return true;
+        }
+        if (JUNIT_XML_REPORTS_NEVER.equalsIgnoreCase(junitXmlReports)) {
+            return false;
+        }
+        if (JUNIT_XML_REPORTS_CI.equalsIgnoreCase(junitXmlReports)) {
+            return ci;
+        }
+        if (JUNIT_XML_REPORTS_AUTO.equalsIgnoreCase(junitXmlReports)) {
+            // Locally, the test history or an event log already keeps the results
+            return ci || !(recordTestHistory || writeTestEvents || writeBinaryTestEvents);
+        }
+        throw new InvalidUserDataException("Invalid junitXmlReports '" + junitXmlReports
+            + "'; expected always, never, ci or auto");
+    }
+    
+    /**
+     * Gets whether internal diagnostics are printed with the final summary.
+     * 
+     * @return true if debug output is enabled
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+    
+    /**
+     * Sets whether internal diagnostics are printed with the final summary.
+     * 
+     * @param debug true to enable debug output
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
 }
@@ -1,8 +1,16 @@
 package io.github.clojang.gradldromus;
 
-import java.io.IOException;
+import org.gradle.StartParameter;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.api.tasks.testing.TestDescriptor;
 import org.gradle.api.tasks.testing.TestListener;
@@ -10,31 +18,43 @@ import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.testing.logging.TestExceptionFormat;
 import org.gradle.api.logging.LogLevel;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.process.CommandLineArgumentProvider;
 
-import java.io.InputStream;
-import java.io.PrintStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_GREEN;
-import static io.github.clojang.gradldromus.AnsiColors.GREEN;
-import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_BLACK;
+import javax.inject.Inject;
 
 /**
  * Main plugin class for GradlDromus, providing clean and customizable test output formatting.
  * This plugin replaces Gradle's default test output with a more readable and colorful alternative.
  */
 public class GradlDromusPlugin implements Plugin<Project> {
-    // Use a map to track listeners per root project
-    private static final Map<Project, CustomTestListener> LISTENER_MAP = new ConcurrentHashMap<>();
+    /** Gradle property selecting one shard of the test classes, e.g. {@code -Pgradldromus.shard=2/12} */
+    public static final String SHARD_PROPERTY = "gradldromus.shard";
+    
+    /** Gradle property naming the shared file of class durations that shards are balanced with, relative to the root project */
+    public static final String SHARD_DURATIONS_PROPERTY = "gradldromus.shardDurations";
+    
+    // Marks the build as already subscribed to task completion events
+    private static final String REGISTERED_PROPERTY = "gradldromus.buildServiceRegistered";
+    
+    private final BuildEventsListenerRegistry buildEvents;
 
     /**
-     * Default constructor for the plugin.
+     * Creates the plugin; called by Gradle.
+     * 
+     * @param buildEvents the registry used to receive task completion events
      */
-    public GradlDromusPlugin() {
-        // Default constructor
+    @Inject
+    public GradlDromusPlugin(BuildEventsListenerRegistry buildEvents) {
+        this.buildEvents = buildEvents;
     }
 
     @Override
@@ -46,98 +66,99 @@ public class GradlDromusPlugin implements Plugin<Project> {
         // Override extension settings with system properties if they exist
         configureFromSystemProperties(extension);
         
-        AnsiColors colors = new AnsiColors(extension.isUseColors());
-        CleanTerminalPrinter printer = new CleanTerminalPrinter(extension);
-        Project rootProject = project.getRootProject();
-        PrintStream output = System.out;
+        // One service per build holds the shared listener and prints the summary when the build ends
+        Provider<GradlDromusBuildService> service = project.getGradle().getSharedServices()
+            .registerIfAbsent(GradlDromusBuildService.NAME, GradlDromusBuildService.class, spec ->
+                // The daemon has no console of its own; --console tells whether output may rewrite lines
+                spec.getParameters().getConsoleOutput().set(project.getGradle().getStartParameter().getConsoleOutput()));
+        ExtraPropertiesExtension buildProperties = project.getGradle().getExtensions().getExtraProperties();
+        if (!buildProperties.has(REGISTERED_PROPERTY)) {
+            buildProperties.set(REGISTERED_PROPERTY, Boolean.TRUE);
+            buildEvents.onTaskCompletion(service);
+        }
         
-        // Get or create the listener for this root project
-        CustomTestListener listener = LISTENER_MAP.computeIfAbsent(rootProject, p -> {
-            CustomTestListener newListener = new CustomTestListener(extension);
-
-            // Add a projects evaluated listener to print a greeting message
-            p.getGradle().projectsEvaluated(result -> {
-                // Write a greeting message
-                Properties props = new Properties();
-                // Try multiple locations for the properties file
-                String[] possiblePaths = {
-                    "/io/github/clojang/gradldromus/plugin.properties",
-                    "/plugin.properties",
-                    "plugin.properties"
-                };
-                boolean loaded = false;
-                printer.println(output, "");
-                printer.printHeading(output, colors, "=", BRIGHT_GREEN);
-                for (String path : possiblePaths) {
-                    try (InputStream in = getClass().getResourceAsStream(path)) {
-                        if (in != null) {
-                            props.load(in);
-                            String pluginName = props.getProperty("plugin.name", "GradlDromus");
-                            String pluginVersion = props.getProperty("plugin.version", "unknown");
-                            printer.println(output, colors.colorize("Running tests with " + pluginName + " (version: " + pluginVersion + ")", GREEN));
-                            loaded = true;
-                            break;
-                        }
-                    } catch (IOException e) {
-                        // Continue to next path
-                    }
-                }
-
-                if (!loaded) {
-                    // Fallback - get version from manifest or use default
-                    Package pkg = getClass().getPackage();
-                    String version = pkg != null ? pkg.getImplementationVersion() : "unknown";
-                    printer.println(output, colors.colorize("Running tests with GradlDromus (version: " + version + ")", GREEN));
-                }
-                printer.printHeading(output, colors, "-", BRIGHT_GREEN);
-            });
-
-            // Add a build finished listener to print the final summary
-            p.getGradle().buildFinished(result -> {
-                CustomTestListener l = LISTENER_MAP.get(p);
-                if (l != null && l.hasTests()) {
-                    l.printFinalSummary();
-                }
-                LISTENER_MAP.remove(p); // Clean up
-            });
-
-            return newListener;
+        // Shards are balanced with one shared durations file, never with this machine's own history
+        Provider<RegularFile> historyFile = project.getLayout().getBuildDirectory().file(TestHistoryStore.RELATIVE_PATH);
+        Provider<String> shardProperty = project.getProviders().gradleProperty(SHARD_PROPERTY);
+        File rootDir = project.getRootDir();
+        Provider<File> shardDurations = project.getProviders().gradleProperty(SHARD_DURATIONS_PROPERTY)
+            .map(path -> new File(rootDir, path));
+        registerShardTasks(project, historyFile, shardProperty, shardDurations);
+        project.getTasks().register(EventLogReportTask.NAME, EventLogReportTask.class, task -> {
+            task.setGroup("verification");
+            task.setDescription("Summarizes the binary test event log of the last build");
+            task.getEventLogs().from(project.getLayout().getBuildDirectory().file(BinaryEventLog.RELATIVE_PATH));
         });
         
+        // CI services set the CI variable; it decides the "ci" and "auto" JUnit XML report policies
+        Provider<Boolean> ci = project.getProviders().environmentVariable("CI").map(value -> true).orElse(false);
+        
+        // Read when the task's inputs are resolved, so tasks realized before the gradldromus block see the setting
+        Provider<Boolean> failedClassesFirst = project.provider(extension::isFailedClassesFirst);
+        
         // Configure all test tasks in this project
         project.getTasks().withType(Test.class).configureEach(testTask -> {
             // Completely disable ALL default console output
             configureTestLogging(testTask);
             
-            // Add our custom listener
-            testTask.addTestListener(new TaskSpecificListener(listener, testTask));
+            // Write JUnit XML reports as the policy asks; they cost time on large suites when nobody reads them
+            testTask.getReports().getJunitXml().getRequired().set(ci.map(extension::isJunitXmlRequired));
+            
+            // Run only this machine's share of the test classes
+            if (shardProperty.isPresent()) {
+                testTask.exclude(TestShards.excludeOtherShards(shardDurations.getOrNull(), testTask.getPath(),
+                    TestShards.Selection.parse(shardProperty.get())));
+            }
             
-            // Ensure test results are always generated
-            testTask.getReports().getJunitXml().getRequired().set(true);
+            // Let JUnit Jupiter run classes that failed before first; the order is written when the task starts
+            Provider<RegularFile> classOrderFile = project.getLayout().getBuildDirectory()
+                .file(FailedClassesFirst.RELATIVE_DIR + "/" + testTask.getName() + ".txt");
+            configureFailedClassesFirst(project, testTask, failedClassesFirst, classOrderFile);
             
-            // Try to make the task quieter
+            // Add our custom listener once the task actually runs
+            Provider<Directory> buildDir = project.getLayout().getBuildDirectory();
+            testTask.usesService(service);
             testTask.doFirst(task -> {
-                // Store original log level
-                LogLevel originalLevel = project.getGradle().getStartParameter().getLogLevel();
-                task.getExtensions().getExtraProperties().set("originalLogLevel", originalLevel);
-                
-                // Set to quiet during test execution
-                if (extension.isSuppressGradleOutput()) {
-                    project.getGradle().getStartParameter().setLogLevel(LogLevel.QUIET);
+                CustomTestListener listener = service.get()
+                    .testTaskStarting(task.getPath(), extension, buildDir.get().getAsFile().toPath());
+                ((Test) task).addTestListener(new TaskSpecificListener(listener, task.getPath()));
+                if (extension.isFailedClassesFirst()) {
+                    writeClassOrder(task, listener.getHistory(task.getPath()), classOrderFile.get().getAsFile());
+                    selectClassOrderer((Test) task);
                 }
             });
-            
-            testTask.doLast(task -> {
-                printer.println(output, "");
-                printer.printHeading(output, colors, "-", BRIGHT_BLACK);
-                // Restore original log level
-                LogLevel originalLevel = (LogLevel) task.getExtensions().getExtraProperties().get("originalLogLevel");
-                originalLevel = originalLevel != null ? originalLevel : LogLevel.LIFECYCLE;
-                project.getGradle().getStartParameter().setLogLevel(originalLevel);
+        });
+        
+        // Try to make test tasks quieter; this changes the build's log level at execution time.
+        // Decided once the build script has run, so tasks realized before the gradldromus block see the setting
+        whenEvaluated(project, () -> {
+            if (!extension.isSuppressGradleOutput()) {
+                return;
+            }
+            StartParameter startParameter = project.getGradle().getStartParameter();
+            project.getTasks().withType(Test.class).configureEach(testTask -> {
+                testTask.notCompatibleWithConfigurationCache("suppressGradleOutput changes the log level while the task runs");
+                testTask.doFirst(task -> {
+                    // Store original log level and set to quiet during test execution
+                    task.getExtensions().getExtraProperties().set("originalLogLevel", startParameter.getLogLevel());
+                    startParameter.setLogLevel(LogLevel.QUIET);
+                });
+                testTask.doLast(task -> {
+                    // Restore original log level
+                    startParameter.setLogLevel((LogLevel) task.getExtensions().getExtraProperties().get("originalLogLevel"));
+                });
             });
         });
     }
     
+    private static void whenEvaluated(Project project, Runnable action) {
+        if (project.getState().getExecuted()) {
+            action.run();
+        } else {
+            project.afterEvaluate(evaluated -> action.run());
+        }
+    }
+    
     private void configureFromSystemProperties(GradlDromusExtension extension) {
         // Check for system properties and override extension settings
         String showExceptions = System.getProperty("gradldromus.showExceptions");
@@ -162,6 +183,16 @@ public class GradlDromusPlugin implements Plugin<Project> {
             } catch (NumberFormatException ignored) {}
         }
         
+        String stackTraceExcludes = System.getProperty("gradldromus.stackTraceExcludes");
+        if (stackTraceExcludes != null) {
+            extension.setStackTraceExcludes(splitNames(stackTraceExcludes));
+        }
+        
+        String stackTraceIncludes = System.getProperty("gradldromus.stackTraceIncludes");
+        if (stackTraceIncludes != null) {
+            extension.setStackTraceIncludes(splitNames(stackTraceIncludes));
+        }
+        
         String showTimings = System.getProperty("gradldromus.showTimings");
         if (showTimings != null) {
             extension.setShowTimings(Boolean.parseBoolean(showTimings));
@@ -193,6 +224,173 @@ public class GradlDromusPlugin implements Plugin<Project> {
                 extension.setTerminalWidth(Integer.parseInt(terminalWidth));
             } catch (NumberFormatException ignored) {}
         }
+        
+        String renderMode = System.getProperty("gradldromus.renderMode");
+        if (renderMode != null) {
+            extension.setRenderMode(renderMode);
+        }
+        
+        String asyncOutput = System.getProperty("gradldromus.asyncOutput");
+        if (asyncOutput != null) {
+            extension.setAsyncOutput(Boolean.parseBoolean(asyncOutput));
+        }
+        
+        String groupOutputByClass = System.getProperty("gradldromus.groupOutputByClass");
+        if (groupOutputByClass != null) {
+            extension.setGroupOutputByClass(Boolean.parseBoolean(groupOutputByClass));
+        }
+        
+        String slowestTestsCount = System.getProperty("gradldromus.slowestTestsCount");
+        if (slowestTestsCount != null) {
+            try {
+                extension.setSlowestTestsCount(Integer.parseInt(slowestTestsCount));
+            } catch (NumberFormatException ignored) {}
+        }
+        
+        String recordTestHistory = System.getProperty("gradldromus.recordTestHistory");
+        if (recordTestHistory != null) {
+            extension.setRecordTestHistory(Boolean.parseBoolean(recordTestHistory));
+        }
+        
+        String regressionThreshold = System.getProperty("gradldromus.regressionThreshold");
+        if (regressionThreshold != null) {
+            try {
+                extension.setRegressionThreshold(Double.parseDouble(regressionThreshold));
+            } catch (NumberFormatException ignored) {}
+        }
+        
+        String regressionBaseline = System.getProperty("gradldromus.regressionBaseline");
+        if (regressionBaseline != null) {
+            extension.setRegressionBaseline(regressionBaseline);
+        }
+        
+        String failedClassesFirst = System.getProperty("gradldromus.failedClassesFirst");
+        if (failedClassesFirst != null) {
+            extension.setFailedClassesFirst(Boolean.parseBoolean(failedClassesFirst));
+        }
+        
+        String writeTestEvents = System.getProperty("gradldromus.writeTestEvents");
+        if (writeTestEvents != null) {
+            extension.setWriteTestEvents(Boolean.parseBoolean(writeTestEvents));
+        }
+        
+        String writeBinaryTestEvents = System.getProperty("gradldromus.writeBinaryTestEvents");
+        if (writeBinaryTestEvents != null) {
+            extension.setWriteBinaryTestEvents(Boolean.parseBoolean(writeBinaryTestEvents));
+        }
+        
+        String groupRepeatedFailures = System.getProperty("gradldromus.groupRepeatedFailures");
+        if (groupRepeatedFailures != null) {
+            extension.setGroupRepeatedFailures(Boolean.parseBoolean(groupRepeatedFailures));
+        }
+        
+        String failureOutputLimitChars = System.getProperty("gradldromus.failureOutputLimitChars");
+        if (failureOutputLimitChars != null) {
+            try {
+                extension.setFailureOutputLimitChars(Long.parseLong(failureOutputLimitChars));
+            } catch (NumberFormatException ignored) {}
+        }
+        
+        String buildFailureOutputLimitChars = System.getProperty("gradldromus.buildFailureOutputLimitChars");
+        if (buildFailureOutputLimitChars != null) {
+            try {
+                extension.setBuildFailureOutputLimitChars(Long.parseLong(buildFailureOutputLimitChars));
+            } catch (NumberFormatException ignored) {}
+        }
+        
+        String compactProgress = System.getProperty("gradldromus.compactProgress");
+        if (compactProgress != null) {
+            extension.setCompactProgress(Boolean.parseBoolean(compactProgress));
+        }
+        
+        String progressRefreshMillis = System.getProperty("gradldromus.progressRefreshMillis");
+        if (progressRefreshMillis != null) {
+            try {
+                extension.setProgressRefreshMillis(Long.parseLong(progressRefreshMillis));
+            } catch (NumberFormatException ignored) {}
+        }
+        
+        String junitXmlReports = System.getProperty("gradldromus.junitXmlReports");
+        if (junitXmlReports != null) {
+            extension.setJunitXmlReports(junitXmlReports);
+        }
+        
+        String debug = System.getProperty("gradldromus.debug");
+        if (debug != null) {
+            extension.setDebug(Boolean.parseBoolean(debug));
+        }
+    }
+    
+    private void configureFailedClassesFirst(Project project, Test testTask, Provider<Boolean> enabled,
+                                             Provider<RegularFile> classOrderFile) {
+        // The orderer runs in the test JVM, so this plugin's classes go on the test runtime classpath
+        testTask.setClasspath(testTask.getClasspath().plus(project.files(
+            enabled.map(on -> on ? Collections.singletonList(pluginClasses()) : Collections.<File>emptyList()))));
+        testTask.getJvmArgumentProviders().add(new ClassOrderFileArgument(enabled, classOrderFile));
+    }
+    
+    private static File pluginClasses() {
+        try {
+            return new File(FailedClassesFirstOrderer.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new GradleException("Could not locate the GradlDromus classes for test ordering", e);
+        }
+    }
+    
+    private static void selectClassOrderer(Test task) {
+        // A class orderer the project selected itself wins; JUnit prefers system properties, so only set one if it did not
+        String configured = FailedClassesFirst.configuredClassOrderer(task.getSystemProperties(), task.getClasspath());
+        if (configured == null) {
+            task.systemProperty(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER, FailedClassesFirstOrderer.class.getName());
+        } else {
+            task.getLogger().warn("failedClassesFirst has no effect on {}: {} already selects a JUnit class orderer",
+                task.getPath(), configured);
+        }
+    }
+    
+    private static List<String> splitNames(String names) {
+        List<String> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                result.add(name.trim());
+            }
+        }
+        return result;
+    }
+    
+    private static void writeClassOrder(Task task, TestHistoryStore history, File classOrderFile) {
+        List<String> order = history == null ? Collections.emptyList() : FailedClassesFirst.order(history.entries(), task.getPath());
+        try {
+            FailedClassesFirst.write(classOrderFile.toPath(), order);
+        } catch (IOException e) {
+            task.getLogger().warn("Could not write the test class order to {}: {}", classOrderFile, e.getMessage());
+        }
+    }
+    
+    private void registerShardTasks(Project project, Provider<RegularFile> historyFile, Provider<String> shardProperty,
+                                    Provider<File> shardDurations) {
+        Provider<Map<String, Integer>> testTasks = project.provider(() -> {
+            Map<String, Integer> forks = new LinkedHashMap<>();
+            for (Test testTask : project.getTasks().withType(Test.class)) {
+                forks.put(testTask.getPath(), testTask.getMaxParallelForks());
+            }
+            return forks;
+        });
+        project.getTasks().register(ShardReportTask.NAME, ShardReportTask.class, task -> {
+            task.setGroup("verification");
+            task.setDescription("Shows how test classes are split by -P" + SHARD_PROPERTY + "=i/n");
+            task.getHistoryFile().set(historyFile);
+            task.getDurationsFile().fileProvider(shardDurations);
+            task.getShardCount().convention(shardProperty.map(value -> TestShards.Selection.parse(value).getCount()));
+            task.getTestTasks().set(testTasks);
+        });
+        project.getTasks().register(ShardDurationsTask.NAME, ShardDurationsTask.class, task -> {
+            task.setGroup("verification");
+            task.setDescription("Writes the class durations of this project's test history for -P" + SHARD_DURATIONS_PROPERTY);
+            task.getHistoryFile().set(historyFile);
+            task.getTestTasks().set(testTasks.map(Map::keySet).map(ArrayList::new));
+            task.getDurationsFile().set(project.getLayout().getBuildDirectory().file(ShardDurationsTask.RELATIVE_PATH));
+        });
     }
     
     private void configureTestLogging(Test testTask) {
@@ -218,53 +416,87 @@ public class GradlDromusPlugin implements Plugin<Project> {
         logging.setMaxGranularity(0);
     }
     
+    /**
+     * Passes the class order file to the test JVM when failedClassesFirst is on. The path is not an input
+     * of the task, so a changed history does not make the tests out of date.
+     */
+    private static class ClassOrderFileArgument implements CommandLineArgumentProvider {
+        private final Provider<Boolean> enabled;
+        private final Provider<RegularFile> classOrderFile;
+        
+        ClassOrderFileArgument(Provider<Boolean> enabled, Provider<RegularFile> classOrderFile) {
+            this.enabled = enabled;
+            this.classOrderFile = classOrderFile;
+        }
+        
+        /**
+         * Gets whether failed classes run first.
+         * 
+         * @return the setting
+         */
+        @Input
+        public Provider<Boolean> getEnabled() {
+            return enabled;
+        }
+        
+        /**
+         * Gets the class order file.
+         * 
+         * @return the file
+         */
+        @Internal
+        public Provider<RegularFile> getClassOrderFile() {
+            return classOrderFile;
+        }
+        
+        @Override
+        public Iterable<String> asArguments() {
+            if (!enabled.get()) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList("-D" + FailedClassesFirstOrderer.ORDER_FILE_PARAMETER + "="
+                + classOrderFile.get().getAsFile().getAbsolutePath());
+        }
+    }
+    
     /**
      * Wrapper listener that sets the correct task path for test output organization.
      * This ensures that each test task's output is properly categorized and formatted.
      */
     private static class TaskSpecificListener implements TestListener {
         private final CustomTestListener delegate;
-        private final Test testTask;
-        private boolean initialized = false;
+        private final String taskPath;
         
         /**
          * Creates a new task-specific listener wrapper.
          * 
          * @param delegate the underlying test listener to delegate to
-         * @param testTask the test task this listener is associated with
+         * @param taskPath the path of the test task this listener is associated with
          */
-        TaskSpecificListener(CustomTestListener delegate, Test testTask) {
+        TaskSpecificListener(CustomTestListener delegate, String taskPath) {
             this.delegate = delegate;
-            this.testTask = testTask;
-        }
-        
-        private void ensureInitialized() {
-            if (!initialized) {
-                delegate.setCurrentTaskPath(testTask.getPath());
-                initialized = true;
-            }
+            this.taskPath = taskPath;
         }
         
+        // Gradle may deliver events on any thread, so every event carries the task path itself
         @Override
         public void beforeSuite(TestDescriptor suite) {
-            ensureInitialized();
-            delegate.beforeSuite(suite);
+            delegate.beforeSuite(taskPath, suite);
         }
         
         @Override
         public void afterSuite(TestDescriptor suite, TestResult result) {
-            delegate.afterSuite(suite, result);
+            delegate.afterSuite(taskPath, suite, result);
         }
         
         @Override
         public void beforeTest(TestDescriptor testDescriptor) {
-            ensureInitialized();
-            delegate.beforeTest(testDescriptor);
+            delegate.beforeTest(taskPath, testDescriptor);
         }
         
         @Override
         public void afterTest(TestDescriptor testDescriptor, TestResult result) {
-            delegate.afterTest(testDescriptor, result);
+            delegate.afterTest(taskPath, testDescriptor, result);
         }
     }
 }
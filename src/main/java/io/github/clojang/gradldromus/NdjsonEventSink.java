@@ -0,0 +1,232 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes test events as newline-delimited JSON, one object per line, so that other tools can follow a run
+ * while it is in progress. Lines are encoded into a reused buffer and written through a {@link FileChannel};
+ * the buffer is written out whenever a test class or task finishes and when it fills up.
+ * A file that cannot be written is reported once, after which events are dropped.
+ */
+public class NdjsonEventSink implements TestEventSink {
+    /** Location of the event file relative to a project's build directory */
+    public static final String RELATIVE_PATH = "gradldromus/test-events.ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LINE_CAPACITY = 512;
+    private static final int HEX_DIGITS = 4;
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final Logger LOGGER = Logger.getLogger(NdjsonEventSink.class.getName());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(LINE_CAPACITY);
+    private boolean writeFailed;
+
+    private NdjsonEventSink(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates the event file, replacing the events of an earlier build.
+     *
+     * @param file the file to write
+     * @return the sink
+     * @throws IOException if the file cannot be created
+     */
+    public static NdjsonEventSink open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new NdjsonEventSink(file, channel);
+    }
+
+    @Override
+    public synchronized void suiteStarted(String taskPath, TestDescriptor suite) {
+        startEvent("suiteStarted", taskPath);
+        field("suite", suite.getName());
+        field("className", suite.getClassName());
+        field("time", System.currentTimeMillis());
+        endEvent();
+    }
+
+    @Override
+    public synchronized void testFinished(String taskPath, TestDescriptor test, TestResult result) {
+        startEvent("testFinished", taskPath);
+        field("className", test.getClassName());
+        field("name", test.getName());
+        field("result", result.getResultType().name());
+        field("startTime", result.getStartTime());
+        field("endTime", result.getEndTime());
+        field("durationMillis", result.getEndTime() - result.getStartTime());
+        List<Throwable> exceptions = result.getExceptions();
+        if (!exceptions.isEmpty()) {
+            line.append(",\"exceptions\":[");
+            for (int i = 0; i < exceptions.size(); i++) {
+                Throwable exception = exceptions.get(i);
+                line.append(i == 0 ? "{" : ",{");
+                line.append("\"type\":");
+                string(exception.getClass().getName());
+                field("message", exception.getMessage());
+                line.append('}');
+            }
+            line.append(']');
+        }
+        endEvent();
+    }
+
+    @Override
+    public synchronized void suiteFinished(String taskPath, TestDescriptor suite, TestResult result) {
+        startEvent("suiteFinished", taskPath);
+        field("suite", suite.getName());
+        field("className", suite.getClassName());
+        field("result", result.getResultType().name());
+        field("tests", result.getTestCount());
+        field("passed", result.getSuccessfulTestCount());
+        field("failed", result.getFailedTestCount());
+        field("skipped", result.getSkippedTestCount());
+        field("durationMillis", result.getEndTime() - result.getStartTime());
+        endEvent();
+        // A finished class is a natural point for readers to see new results
+        flush();
+    }
+
+    /**
+     * Writes buffered events to the file.
+     */
+    public synchronized void flush() {
+        if (writeFailed) {
+            return;
+        }
+        try {
+            drain();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void startEvent(String event, String taskPath) {
+        line.setLength(0);
+        line.append("{\"event\":");
+        string(event);
+        field("task", taskPath);
+    }
+
+    private void endEvent() {
+        line.append('}').append('\n');
+        if (writeFailed) {
+            return;
+        }
+        try {
+            encode();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void field(String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        if (value == null) {
+            line.append("null");
+        } else {
+            string(value);
+        }
+    }
+
+    private void field(String name, long value) {
+        line.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private void string(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < FIRST_PRINTABLE) {
+                        String hex = Integer.toHexString(c);
+                        line.append("\\u");
+                        for (int pad = hex.length(); pad < HEX_DIGITS; pad++) {
+                            line.append('0');
+                        }
+                        line.append(hex);
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    private void encode() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true) == CoderResult.OVERFLOW) {
+            drain();
+        }
+        while (encoder.flush(buffer) == CoderResult.OVERFLOW) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void failed(IOException e) {
+        if (!writeFailed) {
+            // Warn once; the build goes on without the event file
+            LOGGER.warning("Could not write test events to " + file + ": " + e.getMessage());
+            writeFailed = true;
+        }
+    }
+}
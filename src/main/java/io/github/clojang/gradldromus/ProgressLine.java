@@ -0,0 +1,229 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_CYAN;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_GREEN;
+import static io.github.clojang.gradldromus.AnsiColors.BOLD_BRIGHT_RED;
+import static io.github.clojang.gradldromus.AnsiColors.BRIGHT_BLACK;
+import static io.github.clojang.gradldromus.AnsiColors.WHITE;
+
+/**
+ * Single status line for the compact progress mode, showing how many tests are done out of the number
+ * expected from the test history, the outcome counts, tests per second and the estimated time left,
+ * predicted from recorded class durations or, without them, from the rate so far.
+ * Test events only update counters; a background timer redraws the line at a fixed rate, so drawing costs
+ * the same however many tests finish between redraws. Other output is printed above the line, which is
+ * redrawn on the next tick. Nothing is drawn unless the printer clears lines, as on interactive terminals.
+ */
+public class ProgressLine implements AutoCloseable {
+    /** Default delay between redraws in milliseconds */
+    public static final long DEFAULT_REFRESH_MILLIS = 100;
+
+    private static final String THREAD_NAME = "gradldromus-progress";
+    private static final double MILLISECONDS = 1000.0;
+    private static final long SECONDS_PER_MINUTE = 60;
+    private static final int LINE_CAPACITY = 128;
+
+    private final GradlDromusExtension extension;
+    private final CleanTerminalPrinter printer;
+    private final PrintStream output;
+    private final AnsiColors colors;
+    private final LongSupplier remainingMillis;
+    private final long refreshMillis;
+    private final AtomicLong startMillis = new AtomicLong();
+    private final AtomicLong expected = new AtomicLong();
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private int runningTasks;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a progress line; nothing is drawn until a task starts.
+     *
+     * @param extension the plugin configuration, for the result symbols and refresh rate
+     * @param printer the printer the line is drawn with
+     * @param output the stream to draw on
+     * @param colors the colors of the build's output
+     */
+    public ProgressLine(GradlDromusExtension extension, CleanTerminalPrinter printer, PrintStream output, AnsiColors colors) {
+        this(extension, printer, output, colors, () -> -1);
+    }
+
+    /**
+     * Creates a progress line whose time left comes from the given estimate where it has one.
+     *
+     * @param extension the plugin configuration, for the result symbols and refresh rate
+     * @param printer the printer the line is drawn with
+     * @param output the stream to draw on
+     * @param colors the colors of the build's output
+     * @param remainingMillis the predicted time left in milliseconds, or -1 to estimate it from throughput
+     */
+    public ProgressLine(GradlDromusExtension extension, CleanTerminalPrinter printer, PrintStream output, AnsiColors colors,
+                        LongSupplier remainingMillis) {
+        this.extension = extension;
+        this.printer = printer;
+        this.output = output;
+        this.colors = colors;
+        this.remainingMillis = remainingMillis;
+        this.refreshMillis = extension.getProgressRefreshMillis() > 0 ? extension.getProgressRefreshMillis() : DEFAULT_REFRESH_MILLIS;
+    }
+
+    /**
+     * Adds the tests a task is expected to run, from its history, to the expected total.
+     *
+     * @param entries the test history entries
+     * @param taskPath the path of the test task
+     */
+    public void expect(Collection<TestHistoryEntry> entries, String taskPath) {
+        long tests = 0;
+        for (TestHistoryEntry entry : entries) {
+            if (entry.getTaskPath().equals(taskPath)) {
+                tests++;
+            }
+        }
+        expected.addAndGet(tests);
+    }
+
+    /**
+     * Starts redrawing when the first of the running test tasks starts.
+     */
+    public synchronized void taskStarted() {
+        startMillis.compareAndSet(0, System.currentTimeMillis());
+        runningTasks++;
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::redraw, 0, refreshMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops redrawing and removes the line when the last running test task finishes.
+     */
+    public synchronized void taskFinished() {
+        runningTasks = Math.max(0, runningTasks - 1);
+        if (runningTasks == 0) {
+            stop();
+        }
+    }
+
+    /**
+     * Counts a finished test.
+     *
+     * @param resultType the outcome of the test
+     */
+    public void testFinished(TestResult.ResultType resultType) {
+        switch (resultType) {
+            case SUCCESS:
+                passed.increment();
+                break;
+            case FAILURE:
+                failed.increment();
+                break;
+            default:
+                skipped.increment();
+        }
+    }
+
+    /**
+     * Draws the line with the current counts, replacing the previous one.
+     */
+    public void redraw() {
+        if (printer.isClearingLines()) {
+            printer.print(output, render(System.currentTimeMillis() - startMillis.get()));
+        }
+    }
+
+    /**
+     * Renders the line; its cost does not depend on the number of tests.
+     *
+     * @param elapsedMillis the time since the first task started, in milliseconds
+     * @return the rendered line, without a line terminator
+     */
+    String render(long elapsedMillis) {
+        long pass = passed.sum();
+        long fail = failed.sum();
+        long skip = skipped.sum();
+        long done = pass + fail + skip;
+        long total = expected.get();
+        double testsPerSecond = done * MILLISECONDS / Math.max(1, elapsedMillis);
+
+        StringBuilder line = new StringBuilder(LINE_CAPACITY);
+        line.append("    ");
+        colors.beginStyle(line, WHITE).append(done);
+        if (total > done) {
+            line.append('/').append(total);
+        }
+        line.append(" tests");
+        colors.endStyle(line);
+        line.append("  ");
+        colors.colorize(line, extension.getPassSymbol() + " " + pass, BOLD_BRIGHT_GREEN);
+        line.append("  ");
+        colors.colorize(line, extension.getFailSymbol() + " " + fail, BOLD_BRIGHT_RED);
+        line.append("  ");
+        colors.colorize(line, extension.getSkipSymbol() + " " + skip, BOLD_BRIGHT_CYAN);
+        colors.beginStyle(line, BRIGHT_BLACK).append("  ").append(Math.round(testsPerSecond)).append(" tests/s");
+        long remaining = remainingMillis.getAsLong();
+        if (remaining >= 0) {
+            line.append("  ETA ");
+            appendDuration(line, Math.round(remaining / MILLISECONDS));
+        } else if (total > done && testsPerSecond > 0) {
+            // No recorded durations for what is left; assume the rate so far
+            line.append("  ETA ");
+            appendDuration(line, Math.round((total - done) / testsPerSecond));
+        }
+        colors.endStyle(line);
+        return line.toString();
+    }
+
+    private static void appendDuration(StringBuilder line, long seconds) {
+        if (seconds >= SECONDS_PER_MINUTE) {
+            line.append(seconds / SECONDS_PER_MINUTE).append('m');
+            long remainder = seconds % SECONDS_PER_MINUTE;
+            if (remainder > 0) {
+                line.append(remainder).append('s');
+            }
+        } else {
+            line.append(seconds).append('s');
+        }
+    }
+
+    private synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdown();
+            try {
+                // Let a redraw in progress finish, so it cannot be drawn over the cleared line
+                ticker.awaitTermination(refreshMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ticker = null;
+            if (printer.isClearingLines()) {
+                // Leave the line empty for whatever is printed next
+                printer.print(output, "");
+            }
+        }
+    }
+
+    /**
+     * Stops redrawing and removes the line.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Predicts how long a running test task still needs from the recorded average durations of its test classes.
+ * Work left is the expected duration of every class that has not finished, less the time its finished tests
+ * already took. It is turned into wall-clock time with the concurrency observed so far, test time done per
+ * elapsed time, so parallel forks are accounted for without knowing how many there are.
+ * Classes without history add nothing; when history predicts no work left, callers fall back to throughput.
+ */
+public class RemainingTimeEstimate {
+    private final Map<String, Long> classDurations;
+    private final Map<String, Long> classProgress = new HashMap<>();
+    private final Set<String> finishedClasses = new HashSet<>();
+    private final long startMillis;
+    private long remainingWorkMillis;
+    private long completedWorkMillis;
+
+    /**
+     * Creates an estimate for a task that starts now.
+     *
+     * @param classDurations the expected duration of each test class in milliseconds
+     */
+    public RemainingTimeEstimate(Map<String, Long> classDurations) {
+        this(classDurations, System.currentTimeMillis());
+    }
+
+    RemainingTimeEstimate(Map<String, Long> classDurations, long startMillis) {
+        this.classDurations = classDurations;
+        this.startMillis = startMillis;
+        for (long duration : classDurations.values()) {
+            remainingWorkMillis += duration;
+        }
+    }
+
+    /**
+     * Creates an estimate for a test task from its history.
+     *
+     * @param entries the test history entries
+     * @param taskPath the path of the test task
+     * @return the estimate
+     */
+    public static RemainingTimeEstimate forTask(Collection<TestHistoryEntry> entries, String taskPath) {
+        Map<String, Long> classDurations = new HashMap<>();
+        for (TestHistoryEntry entry : entries) {
+            if (entry.getTaskPath().equals(taskPath) && entry.hasDuration()) {
+                classDurations.merge(entry.getClassName(), Math.round(entry.getAverageDurationMillis()), Long::sum);
+            }
+        }
+        return new RemainingTimeEstimate(classDurations);
+    }
+
+    /**
+     * Counts the time a finished test took against its class.
+     *
+     * @param className the test class name, or null
+     * @param durationMillis how long the test took
+     */
+    public synchronized void testFinished(String className, long durationMillis) {
+        completedWorkMillis += durationMillis;
+        Long expected = className == null ? null : classDurations.get(className);
+        if (expected == null || finishedClasses.contains(className)) {
+            return;
+        }
+        long before = classProgress.getOrDefault(className, 0L);
+        long after = before + durationMillis;
+        classProgress.put(className, after);
+        // A class that runs longer than usual has no work left, not negative work
+        remainingWorkMillis -= Math.min(after, expected) - Math.min(before, expected);
+    }
+
+    /**
+     * Marks a test class as finished, so none of its expected time remains.
+     *
+     * @param className the test class name
+     */
+    public synchronized void classFinished(String className) {
+        Long expected = classDurations.get(className);
+        if (expected != null && finishedClasses.add(className)) {
+            remainingWorkMillis -= expected - Math.min(classProgress.getOrDefault(className, 0L), expected);
+            classProgress.remove(className);
+        }
+    }
+
+    /**
+     * Gets the expected test time of the classes that have not finished.
+     *
+     * @return the remaining work in milliseconds, summed over all forks
+     */
+    public synchronized long remainingWorkMillis() {
+        return remainingWorkMillis;
+    }
+
+    /**
+     * Predicts the wall-clock time until the task finishes.
+     *
+     * @return the remaining time in milliseconds, or -1 if history predicts no work left
+     */
+    public long remainingMillis() {
+        return remainingMillis(System.currentTimeMillis() - startMillis);
+    }
+
+    synchronized long remainingMillis(long elapsedMillis) {
+        if (remainingWorkMillis <= 0) {
+            return -1;
+        }
+        if (completedWorkMillis <= 0 || elapsedMillis <= 0) {
+            // Nothing observed yet; assume a single fork
+            return remainingWorkMillis;
+        }
+        double concurrency = Math.max(1.0, (double) completedWorkMillis / elapsedMillis);
+        return Math.round(remainingWorkMillis / concurrency);
+    }
+}
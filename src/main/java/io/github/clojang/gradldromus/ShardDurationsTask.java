@@ -0,0 +1,86 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes the class durations of this project's test history in the format read by
+ * {@code -Pgradldromus.shardDurations}. Run it after a full test run, then check the file in or hand it to every
+ * CI machine, so that all shards are balanced with the same durations.
+ */
+@DisableCachingByDefault(because = "Reads the test history, which is not tracked as an input")
+public abstract class ShardDurationsTask extends DefaultTask {
+    /** Name of the task */
+    public static final String NAME = "gradldromusShardDurations";
+
+    /** Location of the written file, relative to the build directory */
+    public static final String RELATIVE_PATH = "gradldromus/shard-durations.txt";
+
+    /**
+     * Creates the task; called by Gradle.
+     */
+    public ShardDurationsTask() {
+        // The history changes with every test run
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Gets the test history file the durations are read from; it need not exist.
+     *
+     * @return the history file
+     */
+    @Internal
+    public abstract RegularFileProperty getHistoryFile();
+
+    /**
+     * Gets the test tasks whose durations are written.
+     *
+     * @return the test task paths
+     */
+    @Input
+    public abstract ListProperty<String> getTestTasks();
+
+    /**
+     * Gets the file to write.
+     *
+     * @return the durations file
+     */
+    @OutputFile
+    public abstract RegularFileProperty getDurationsFile();
+
+    /**
+     * Writes the durations file.
+     */
+    @TaskAction
+    public void write() {
+        Map<String, TestHistoryEntry> history = ShardReportTask.readHistory(getHistoryFile().get().getAsFile());
+        Path file = getDurationsFile().get().getAsFile().toPath();
+        int classes = 0;
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# <task path> <class name> <milliseconds>, for -P" + GradlDromusPlugin.SHARD_DURATIONS_PROPERTY
+                + System.lineSeparator());
+            for (String taskPath : getTestTasks().get()) {
+                Map<String, Long> classDurations = TestShards.classDurations(history.values(), taskPath);
+                TestShards.writeDurations(out, taskPath, classDurations);
+                classes += classDurations.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write test shard durations to " + file, e);
+        }
+        getLogger().lifecycle("Wrote the durations of {} test classes to {}", classes, file);
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints how the test classes of each test task would be split with {@code -Pgradldromus.shard=i/n},
+ * with the expected time per shard, so the shard count can be chosen before changing CI. The plan uses the
+ * shared durations file when one is configured, as the shards do; otherwise it previews this machine's history.
+ */
+@DisableCachingByDefault(because = "Prints a report and produces no output")
+public abstract class ShardReportTask extends DefaultTask {
+    /** Name of the task */
+    public static final String NAME = "gradldromusShards";
+
+    private static final double MILLISECONDS = 1000.0;
+
+    /**
+     * Creates the task; called by Gradle.
+     */
+    public ShardReportTask() {
+        // Always prints the report
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * Gets the number of shards to plan for.
+     *
+     * @return the shard count
+     */
+    @Input
+    public abstract Property<Integer> getShardCount();
+
+    /**
+     * Sets the number of shards to plan for from the command line.
+     *
+     * @param shards the shard count
+     */
+    @Option(option = "shards", description = "Number of shards to plan for")
+    public void setShards(String shards) {
+        try {
+            getShardCount().set(Integer.parseInt(shards.trim()));
+        } catch (NumberFormatException e) {
+            throw new InvalidUserDataException("Invalid shard count '" + shards + "'", e);
+        }
+    }
+
+    /**
+     * Gets the test tasks to report on.
+     *
+     * @return the path of each test task mapped to its {@code maxParallelForks}
+     */
+    @Input
+    public abstract MapProperty<String, Integer> getTestTasks();
+
+    /**
+     * Gets the test history file the plan is based on; it need not exist.
+     *
+     * @return the history file
+     */
+    @Internal
+    public abstract RegularFileProperty getHistoryFile();
+
+    /**
+     * Gets the shared durations file that shards are balanced with, if configured.
+     *
+     * @return the durations file
+     */
+    @Internal
+    public abstract RegularFileProperty getDurationsFile();
+
+    /**
+     * Prints the shard plan of each test task.
+     */
+    @TaskAction
+    public void report() {
+        if (!getShardCount().isPresent()) {
+            throw new InvalidUserDataException("Pass the number of shards with --shards=N or -P"
+                + GradlDromusPlugin.SHARD_PROPERTY + "=i/N");
+        }
+        int shardCount = getShardCount().get();
+        if (shardCount < 1) {
+            throw new InvalidUserDataException("Shard count must be at least 1: " + shardCount);
+        }
+        File durationsFile = getDurationsFile().isPresent() ? getDurationsFile().get().getAsFile() : null;
+        Map<String, TestHistoryEntry> history = durationsFile == null
+            ? readHistory(getHistoryFile().get().getAsFile()) : Collections.emptyMap();
+        for (Map.Entry<String, Integer> task : getTestTasks().get().entrySet()) {
+            Map<String, Long> classDurations = durationsFile == null
+                ? TestShards.classDurations(history.values(), task.getKey())
+                : TestShards.readDurations(durationsFile.toPath(), task.getKey());
+            TestShards shards = TestShards.plan(classDurations, shardCount);
+            int forks = task.getValue();
+            getLogger().lifecycle("{}: {} classes with durations in {} shards, {} fork(s) each",
+                task.getKey(), classDurations.size(), shardCount, forks);
+            for (int shard = 0; shard < shardCount; shard++) {
+                getLogger().lifecycle("  shard {}/{}: {} classes, {} total, about {} with {} fork(s)",
+                    shard + 1, shardCount, shards.classCount(shard), seconds(shards.totalMillis(shard)),
+                    seconds(shards.wallClockMillis(shard, forks)), forks);
+            }
+        }
+        if (durationsFile == null) {
+            // Shards themselves ignore the local history, see TestShards
+            getLogger().lifecycle("Planned from this machine's test history. Without -P{} every shard splits classes by name; "
+                + "run {} and share its file to balance them.", GradlDromusPlugin.SHARD_DURATIONS_PROPERTY, ShardDurationsTask.NAME);
+        }
+    }
+
+    static Map<String, TestHistoryEntry> readHistory(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyMap();
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return TestHistoryStore.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read test history from " + file, e);
+        }
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.1fs", millis / MILLISECONDS);
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.clojang.gradldromus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the slowest tests of a build and the time spent per test class, for the final summary.
+ * Only the current top N tests are held, in a fixed-size min-heap whose smallest duration acts as the
+ * admission threshold, so memory does not grow with the number of tests and most tests never take the lock.
+ */
+public class SlowTestTracker {
+    /** Default number of slowest tests and classes to report */
+    public static final int DEFAULT_LIMIT = 5;
+
+    private static final Comparator<Timing> BY_DURATION = Comparator.comparingLong(Timing::getDurationMillis);
+
+    private final int limit;
+    private final PriorityQueue<Timing> slowest;
+    private final Map<String, LongAdder> classTimes = new ConcurrentHashMap<>();
+    private volatile long threshold = -1;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param limit how many tests and classes to keep; 0 or less disables tracking
+     */
+    public SlowTestTracker(int limit) {
+        this.limit = Math.max(0, limit);
+        this.slowest = new PriorityQueue<>(Math.max(1, this.limit), BY_DURATION);
+    }
+
+    /**
+     * Gets how many tests and classes are reported.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Records the duration of one test.
+     *
+     * @param className the test class name
+     * @param testName the test method name
+     * @param durationMillis the duration of the test
+     */
+    public void record(String className, String testName, long durationMillis) {
+        if (limit == 0) {
+            return;
+        }
+        classTimes.computeIfAbsent(className, name -> new LongAdder()).add(durationMillis);
+        if (durationMillis <= threshold) {
+            return;
+        }
+        synchronized (slowest) {
+            if (slowest.size() < limit) {
+                slowest.add(new Timing(className, testName, durationMillis));
+            } else if (durationMillis > slowest.peek().getDurationMillis()) {
+                slowest.poll();
+                slowest.add(new Timing(className, testName, durationMillis));
+            }
+            if (slowest.size() == limit) {
+                threshold = slowest.peek().getDurationMillis();
+            }
+        }
+    }
+
+    /**
+     * Gets the slowest tests recorded so far.
+     *
+     * @return up to {@link #getLimit()} tests, slowest first
+     */
+    public List<Timing> slowestTests() {
+        List<Timing> tests;
+        synchronized (slowest) {
+            tests = new ArrayList<>(slowest);
+        }
+        tests.sort(BY_DURATION.reversed());
+        return tests;
+    }
+
+    /**
+     * Gets the classes with the largest total test time.
+     *
+     * @return up to {@link #getLimit()} classes, slowest first; {@link Timing#getTestName()} is null
+     */
+    public List<Timing> slowestClasses() {
+        PriorityQueue<Timing> top = new PriorityQueue<>(Math.max(1, limit), BY_DURATION);
+        for (Map.Entry<String, LongAdder> entry : classTimes.entrySet()) {
+            top.add(new Timing(entry.getKey(), null, entry.getValue().sum()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Timing> classes = new ArrayList<>(top);
+        classes.sort(BY_DURATION.reversed());
+        return classes;
+    }
+
+    /**
+     * The time taken by a test or, when the test name is null, by all tests of a class.
+     */
+    public static final class Timing {
+        private final String className;
+        private final String testName;
+        private final long durationMillis;
+
+        Timing(String className, String testName, long durationMillis) {
+            this.className = className;
+            this.testName = testName;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * Gets the test class name.
+         *
+         * @return the class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the test method name.
+         *
+         * @return the test name, or null for a class total
+         */
+        public String getTestName() {
+            return testName;
+        }
+
+        /**
+         * Gets the time taken.
+         *
+         * @return the duration in milliseconds
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which stack frames are framework noise, such as test runner, reflection and Gradle worker frames.
+ * Package prefixes are matched on whole name segments through a trie, so {@code org.junit} hides
+ * {@code org.junit.Assert} but not {@code org.junitpioneer}; the longest matching prefix wins, and an include
+ * beats an exclude of the same prefix. Decisions are cached per declaring class, so filtering a deep trace
+ * costs one map lookup per frame. When the cache is full an arbitrary entry is evicted.
+ */
+public class StackFrameFilter {
+    /** Packages hidden from stack traces by default */
+    public static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(Arrays.asList(
+        "org.junit", "junit", "jdk.internal.reflect", "java.lang.reflect", "sun.reflect",
+        "org.gradle", "worker.org.gradle"));
+
+    /** Default maximum number of classes whose decision is cached */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Node root = new Node();
+    private final int capacity;
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a filter.
+     *
+     * @param includes packages or classes always shown, overriding a shorter exclude
+     * @param excludes packages or classes hidden
+     */
+    public StackFrameFilter(List<String> includes, List<String> excludes) {
+        this(includes, excludes, DEFAULT_CAPACITY);
+    }
+
+    StackFrameFilter(List<String> includes, List<String> excludes, int capacity) {
+        this.capacity = Math.max(1, capacity);
+        for (String exclude : excludes) {
+            insert(exclude, Boolean.TRUE);
+        }
+        for (String include : includes) {
+            insert(include, Boolean.FALSE);
+        }
+    }
+
+    private void insert(String prefix, Boolean hidden) {
+        String trimmed = prefix.trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (String segment : trimmed.split("\\.")) {
+            node = node.children.computeIfAbsent(segment, key -> new Node());
+        }
+        node.hidden = hidden;
+    }
+
+    /**
+     * Checks whether frames of a class are hidden.
+     *
+     * @param className the fully qualified name of the frame's declaring class
+     * @return true if the class matches an exclude and no longer include
+     */
+    public boolean isHidden(String className) {
+        Boolean hidden = decisions.get(className);
+        if (hidden == null) {
+            hidden = match(className);
+            if (decisions.size() >= capacity) {
+                evictOne();
+            }
+            decisions.putIfAbsent(className, hidden);
+        }
+        return hidden;
+    }
+
+    /**
+     * Checks whether a stack frame is hidden.
+     *
+     * @param frame the stack frame
+     * @return true if frames of its declaring class are hidden
+     */
+    public boolean isHidden(StackTraceElement frame) {
+        return isHidden(frame.getClassName());
+    }
+
+    private boolean match(String className) {
+        Node node = root;
+        boolean hidden = false;
+        int start = 0;
+        while (node != null && start <= className.length()) {
+            int end = className.indexOf('.', start);
+            if (end < 0) {
+                end = className.length();
+            }
+            node = node.children.get(className.substring(start, end));
+            if (node != null && node.hidden != null) {
+                hidden = node.hidden;
+            }
+            start = end + 1;
+        }
+        return hidden;
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = decisions.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * One name segment of the trie; a decision marks the end of a configured prefix.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Boolean hidden;
+    }
+}
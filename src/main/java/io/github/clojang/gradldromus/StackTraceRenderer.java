@@ -0,0 +1,124 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Renders a complete stack trace, with causes and suppressed exceptions, straight into a buffer.
+ * The layout follows {@link Throwable#printStackTrace()}: frames an enclosed exception shares with the
+ * exception around it are summarised as {@code ... N more}, and an exception already printed is shown as a
+ * circular reference. Lines are separated but not terminated, so the whole trace can be written in one call.
+ */
+public class StackTraceRenderer {
+    private static final String INDENT = "      ";
+    private static final String FRAME_INDENT = "  ";
+    private static final String NESTED_INDENT = "  ";
+    private static final int NATIVE_METHOD_LINE = -2;
+
+    private final AnsiColors colors;
+    private final String style;
+
+    /**
+     * Creates a renderer.
+     *
+     * @param colors the colors used for the output
+     * @param style the style applied to every line
+     */
+    public StackTraceRenderer(AnsiColors colors, String style) {
+        this.colors = colors;
+        this.style = style;
+    }
+
+    /**
+     * Appends the stack trace of an exception.
+     *
+     * @param out the buffer to append to
+     * @param exception the exception
+     * @return the buffer
+     */
+    public StringBuilder render(StringBuilder out, Throwable exception) {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(exception);
+        StackTraceElement[] trace = exception.getStackTrace();
+        appendHeader(out, INDENT, null, exception);
+        appendFrames(out, INDENT, trace, trace.length);
+        appendEnclosed(out, INDENT, exception, trace, seen);
+        return out;
+    }
+
+    private void appendEnclosed(StringBuilder out, String indent, Throwable exception,
+                                StackTraceElement[] trace, Set<Throwable> seen) {
+        for (Throwable suppressed : exception.getSuppressed()) {
+            appendEnclosed(out, indent + NESTED_INDENT, "Suppressed: ", suppressed, trace, seen);
+        }
+        Throwable cause = exception.getCause();
+        if (cause != null) {
+            appendEnclosed(out, indent, "Caused by: ", cause, trace, seen);
+        }
+    }
+
+    private void appendEnclosed(StringBuilder out, String indent, String caption, Throwable exception,
+                                StackTraceElement[] enclosingTrace, Set<Throwable> seen) {
+        if (!seen.add(exception)) {
+            beginLine(out).append(indent).append(caption).append("[CIRCULAR REFERENCE: ").append(exception).append(']');
+            colors.endStyle(out);
+            return;
+        }
+        StackTraceElement[] trace = exception.getStackTrace();
+        int unique = trace.length - framesInCommon(trace, enclosingTrace);
+        appendHeader(out, indent, caption, exception);
+        appendFrames(out, indent, trace, unique);
+        if (unique < trace.length) {
+            beginLine(out).append(indent).append(FRAME_INDENT).append("... ").append(trace.length - unique).append(" more");
+            colors.endStyle(out);
+        }
+        appendEnclosed(out, indent, exception, trace, seen);
+    }
+
+    private static int framesInCommon(StackTraceElement[] trace, StackTraceElement[] enclosingTrace) {
+        int i = trace.length - 1;
+        int j = enclosingTrace.length - 1;
+        while (i >= 0 && j >= 0 && trace[i].equals(enclosingTrace[j])) {
+            i--;
+            j--;
+        }
+        return trace.length - 1 - i;
+    }
+
+    private void appendHeader(StringBuilder out, String indent, String caption, Throwable exception) {
+        beginLine(out).append(indent);
+        if (caption != null) {
+            out.append(caption);
+        }
+        out.append(exception);
+        colors.endStyle(out);
+    }
+
+    private void appendFrames(StringBuilder out, String indent, StackTraceElement[] trace, int count) {
+        for (int i = 0; i < count; i++) {
+            StackTraceElement frame = trace[i];
+            beginLine(out).append(indent).append(FRAME_INDENT).append("at ")
+                .append(frame.getClassName()).append('.').append(frame.getMethodName()).append('(');
+            if (frame.getLineNumber() == NATIVE_METHOD_LINE) {
+                out.append("Native Method");
+            } else if (frame.getFileName() == null) {
+                out.append("Unknown Source");
+            } else {
+                out.append(frame.getFileName());
+                if (frame.getLineNumber() >= 0) {
+                    out.append(':').append(frame.getLineNumber());
+                }
+            }
+            out.append(')');
+            colors.endStyle(out);
+        }
+    }
+
+    private StringBuilder beginLine(StringBuilder out) {
+        if (out.length() > 0) {
+            out.append(System.lineSeparator());
+        }
+        return colors.beginStyle(out, style);
+    }
+}
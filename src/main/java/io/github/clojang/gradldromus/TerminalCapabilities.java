@@ -0,0 +1,76 @@
+package io.github.clojang.gradldromus;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of what the attached terminal can do.
+ * Produced by {@link TerminalProbe} and shared by the printer and listener so that
+ * per-line rendering never has to ask the operating system again.
+ */
+public final class TerminalCapabilities {
+    private final int width;
+    private final boolean interactive;
+    private final boolean colorSupported;
+
+    /**
+     * Creates a new capability snapshot.
+     *
+     * @param width the terminal width in characters
+     * @param interactive whether output goes to an interactive terminal
+     * @param colorSupported whether the terminal is expected to render ANSI colors
+     */
+    public TerminalCapabilities(int width, boolean interactive, boolean colorSupported) {
+        this.width = width;
+        this.interactive = interactive;
+        this.colorSupported = colorSupported;
+    }
+
+    /**
+     * Gets the terminal width.
+     *
+     * @return the terminal width in characters
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets whether output goes to an interactive terminal rather than a pipe or log file.
+     *
+     * @return true if the terminal is interactive
+     */
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * Gets whether the terminal is expected to render ANSI colors.
+     *
+     * @return true if colors are supported
+     */
+    public boolean isColorSupported() {
+        return colorSupported;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TerminalCapabilities)) {
+            return false;
+        }
+        TerminalCapabilities that = (TerminalCapabilities) other;
+        return width == that.width && interactive == that.interactive && colorSupported == that.colorSupported;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(width, interactive, colorSupported);
+    }
+
+    @Override
+    public String toString() {
+        return "TerminalCapabilities{width=" + width + ", interactive=" + interactive + ", colorSupported=" + colorSupported + "}";
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.logging.configuration.ConsoleOutput;
+
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Probes the terminal once per build and caches the result as an immutable {@link TerminalCapabilities}.
+ * Width changes (the equivalent of a SIGWINCH) are picked up by an optional background refresh timer,
+ * so printing a line only ever costs a volatile read instead of a {@code tput} process fork.
+ * The timer holds the probe weakly and stops by itself once a probe that was never closed is collected.
+ * Whether lines may be rewritten follows Gradle's {@code --console} setting; only with {@code auto}, which the
+ * Gradle client resolves without telling the daemon, is it guessed from the environment.
+ */
+public class TerminalProbe implements AutoCloseable {
+    /** Default interval between background re-probes of the terminal width */
+    public static final long DEFAULT_REFRESH_MILLIS = 2000;
+
+    /** Name of the background refresh thread */
+    static final String THREAD_NAME = "gradldromus-terminal-probe";
+
+    private static final Logger LOGGER = Logger.getLogger(TerminalProbe.class.getName());
+
+    private final Function<String, String> environment;
+    private final IntSupplier widthCommand;
+    private final boolean hasConsole;
+    private final ConsoleOutput consoleOutput;
+    private volatile TerminalCapabilities current;
+    private volatile ScheduledExecutorService refresher;
+
+    /**
+     * Creates a probe that reads the process environment and falls back to {@code tput cols} for the width.
+     */
+    public TerminalProbe() {
+        this(ConsoleOutput.Auto);
+    }
+
+    /**
+     * Creates a probe for a build with the given console setting.
+     *
+     * @param consoleOutput Gradle's console output setting of the build
+     */
+    public TerminalProbe(ConsoleOutput consoleOutput) {
+        this(System::getenv, TerminalProbe::queryTputColumns, System.console() != null, consoleOutput);
+    }
+
+    /**
+     * Creates a probe with explicit sources, used by tests and benchmarks.
+     *
+     * @param environment lookup for environment variables
+     * @param widthCommand fallback width source; returns 0 or less when unknown
+     * @param hasConsole whether the JVM has a console attached
+     */
+    TerminalProbe(Function<String, String> environment, IntSupplier widthCommand, boolean hasConsole) {
+        this(environment, widthCommand, hasConsole, ConsoleOutput.Auto);
+    }
+
+    /**
+     * Creates a probe with explicit sources and console setting, used by tests.
+     *
+     * @param environment lookup for environment variables
+     * @param widthCommand fallback width source; returns 0 or less when unknown
+     * @param hasConsole whether the JVM has a console attached
+     * @param consoleOutput Gradle's console output setting of the build
+     */
+    TerminalProbe(Function<String, String> environment, IntSupplier widthCommand, boolean hasConsole,
+                  ConsoleOutput consoleOutput) {
+        this.environment = environment;
+        this.widthCommand = widthCommand;
+        this.hasConsole = hasConsole;
+        this.consoleOutput = consoleOutput;
+    }
+
+    /**
+     * Gets the current capability snapshot, probing the terminal on first use.
+     *
+     * @return the cached terminal capabilities
+     */
+    public TerminalCapabilities current() {
+        TerminalCapabilities snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = current;
+                if (snapshot == null) {
+                    snapshot = probe();
+                    current = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Re-probes the terminal and replaces the cached snapshot.
+     *
+     * @return the new terminal capabilities
+     */
+    public TerminalCapabilities refresh() {
+        TerminalCapabilities snapshot = probe();
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Starts re-probing the terminal in the background so that resizes are noticed.
+     * Does nothing if a refresh timer is already running or the terminal is not interactive.
+     *
+     * @param intervalMillis the delay between probes in milliseconds
+     */
+    public void startRefresh(long intervalMillis) {
+        if (refresher != null || intervalMillis <= 0 || !current().isInteractive()) {
+            return;
+        }
+        synchronized (this) {
+            if (refresher == null) {
+                refresher = createRefresher(new WeakReference<>(this), intervalMillis);
+            }
+        }
+    }
+
+    private static ScheduledExecutorService createRefresher(WeakReference<TerminalProbe> owner, long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            TerminalProbe probe = owner.get();
+            if (probe == null) {
+                executor.shutdown();
+            } else {
+                probe.refresh();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Stops the background refresh timer, if any.
+     */
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    private TerminalCapabilities probe() {
+        String term = environment.apply("TERM");
+        boolean dumb = "dumb".equals(term);
+        boolean colorSupported = !dumb && consoleOutput != ConsoleOutput.Plain && environment.apply("NO_COLOR") == null;
+        return new TerminalCapabilities(probeWidth(), !dumb && isInteractiveConsole(term), colorSupported);
+    }
+
+    private boolean isInteractiveConsole(String term) {
+        switch (consoleOutput) {
+            case Plain:
+            case Colored:
+                return false;
+            case Rich:
+            case Verbose:
+                return true;
+            default:
+                // Jenkins does not set CI
+                boolean ci = environment.apply("CI") != null || environment.apply("JENKINS_URL") != null;
+                return !ci && (hasConsole || term != null);
+        }
+    }
+
+    private int probeWidth() {
+        String columnsEnv = environment.apply("COLUMNS");
+        if (columnsEnv != null) {
+            try {
+                int columns = Integer.parseInt(columnsEnv.trim());
+                if (columns > 0) {
+                    return columns;
+                }
+            } catch (NumberFormatException ignored) {}
+        }
+
+        int columns = widthCommand.getAsInt();
+        return columns > 0 ? columns : CleanTerminalPrinter.DEFAULT_TERM_SM_WIDTH;
+    }
+
+    private static int queryTputColumns() {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "tput cols 2>/dev/null")
+                .redirectErrorStream(true)
+                .start();
+            try (InputStream in = process.getInputStream()) {
+                String colsStr = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+                process.waitFor();
+                return colsStr.isEmpty() ? 0 : Integer.parseInt(colsStr);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.warning("Could not determine terminal width, using default: "
+                + CleanTerminalPrinter.DEFAULT_TERM_SM_WIDTH + ". Error: " + e.getMessage());
+        }
+        return 0;
+    }
+}
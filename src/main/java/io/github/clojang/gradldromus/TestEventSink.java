@@ -0,0 +1,42 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+
+/**
+ * Receives the test events of a test task in addition to the terminal output, e.g. to write them to a file.
+ * Events of one task arrive in order on one thread, but events of parallel tasks may arrive concurrently.
+ */
+public interface TestEventSink extends AutoCloseable {
+    /**
+     * Called when a test suite, such as a test class or a whole test task, starts.
+     *
+     * @param taskPath the path of the test task
+     * @param suite the suite
+     */
+    void suiteStarted(String taskPath, TestDescriptor suite);
+
+    /**
+     * Called when a test finishes.
+     *
+     * @param taskPath the path of the test task
+     * @param test the test
+     * @param result the result of the test
+     */
+    void testFinished(String taskPath, TestDescriptor test, TestResult result);
+
+    /**
+     * Called when a test suite finishes.
+     *
+     * @param taskPath the path of the test task
+     * @param suite the suite
+     * @param result the combined result of the suite's tests
+     */
+    void suiteFinished(String taskPath, TestDescriptor suite, TestResult result);
+
+    /**
+     * Writes anything still pending and releases the sink's resources.
+     */
+    @Override
+    void close();
+}
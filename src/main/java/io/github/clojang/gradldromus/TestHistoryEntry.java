@@ -0,0 +1,217 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+/**
+ * What the history remembers about one test across builds.
+ * Instances are immutable; {@link #update(TestResult.ResultType, long, long)} returns the next state.
+ */
+public final class TestHistoryEntry {
+    /** Weight of the newest duration in the moving average */
+    public static final double AVERAGE_WEIGHT = 0.2;
+
+    private final String taskPath;
+    private final String className;
+    private final String testName;
+    private final int runs;
+    private final int failures;
+    private final int timedRuns;
+    private final TestResult.ResultType lastOutcome;
+    private final long lastDurationMillis;
+    private final double averageDurationMillis;
+    private final long lastSeenMillis;
+    private final DurationSketch durations;
+
+    /**
+     * Creates an entry with the given state.
+     *
+     * @param taskPath the path of the test task that ran the test
+     * @param className the test class name
+     * @param testName the test method name
+     * @param runs how many times the test ran
+     * @param failures how many of those runs failed
+     * @param timedRuns how many of those runs were not skipped and so contribute to the durations
+     * @param lastOutcome the outcome of the latest run
+     * @param lastDurationMillis the duration of the latest run that was not skipped
+     * @param averageDurationMillis the exponentially weighted average duration of runs that were not skipped
+     * @param lastSeenMillis when the test last ran, in milliseconds since the epoch
+     * @param durations the distribution of recent durations of runs that were not skipped
+     */
+    public TestHistoryEntry(String taskPath, String className, String testName, int runs, int failures, int timedRuns,
+                            TestResult.ResultType lastOutcome, long lastDurationMillis, double averageDurationMillis,
+                            long lastSeenMillis, DurationSketch durations) {
+        this.taskPath = taskPath;
+        this.className = className;
+        this.testName = testName;
+        this.runs = runs;
+        this.failures = failures;
+        this.timedRuns = timedRuns;
+        this.lastOutcome = lastOutcome;
+        this.lastDurationMillis = lastDurationMillis;
+        this.averageDurationMillis = averageDurationMillis;
+        this.lastSeenMillis = lastSeenMillis;
+        this.durations = durations;
+    }
+
+    /**
+     * Creates the entry for a test that has never run.
+     *
+     * @param taskPath the path of the test task
+     * @param className the test class name
+     * @param testName the test method name
+     * @return an entry with no runs
+     */
+    public static TestHistoryEntry empty(String taskPath, String className, String testName) {
+        return new TestHistoryEntry(taskPath, className, testName, 0, 0, 0, TestResult.ResultType.SKIPPED, 0, 0, 0,
+            DurationSketch.EMPTY);
+    }
+
+    /**
+     * Builds the lookup key for a test.
+     *
+     * @param taskPath the path of the test task
+     * @param className the test class name
+     * @param testName the test method name
+     * @return the key used by {@link TestHistoryStore}
+     */
+    public static String key(String taskPath, String className, String testName) {
+        return taskPath + '\n' + className + '\n' + testName;
+    }
+
+    /**
+     * Returns the state after one more run of the test.
+     *
+     * @param outcome the outcome of the run
+     * @param durationMillis the duration of the run
+     * @param nowMillis the current time in milliseconds since the epoch
+     * @return the updated entry
+     */
+    public TestHistoryEntry update(TestResult.ResultType outcome, long durationMillis, long nowMillis) {
+        int newFailures = outcome == TestResult.ResultType.FAILURE ? failures + 1 : failures;
+        if (outcome == TestResult.ResultType.SKIPPED) {
+            // A skipped run says nothing about how long the test takes
+            return new TestHistoryEntry(taskPath, className, testName, runs + 1, newFailures, timedRuns, outcome,
+                lastDurationMillis, averageDurationMillis, nowMillis, durations);
+        }
+        double average = hasDuration() ? averageDurationMillis + AVERAGE_WEIGHT * (durationMillis - averageDurationMillis) : durationMillis;
+        return new TestHistoryEntry(taskPath, className, testName, runs + 1, newFailures, timedRuns + 1, outcome,
+            durationMillis, average, nowMillis, durations.add(durationMillis));
+    }
+
+    /**
+     * Gets the lookup key of this entry.
+     *
+     * @return the key
+     */
+    public String key() {
+        return key(taskPath, className, testName);
+    }
+
+    /**
+     * Gets whether a duration has been recorded for this test.
+     *
+     * @return true if the test ran at least once without being skipped
+     */
+    public boolean hasDuration() {
+        return timedRuns > 0;
+    }
+
+    /**
+     * Gets the path of the test task that ran the test.
+     *
+     * @return the task path
+     */
+    public String getTaskPath() {
+        return taskPath;
+    }
+
+    /**
+     * Gets the test class name.
+     *
+     * @return the class name
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Gets the test method name.
+     *
+     * @return the test name
+     */
+    public String getTestName() {
+        return testName;
+    }
+
+    /**
+     * Gets how many times the test ran.
+     *
+     * @return the number of runs
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Gets how many runs of the test failed.
+     *
+     * @return the number of failures
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets how many runs of the test were not skipped.
+     *
+     * @return the number of timed runs
+     */
+    public int getTimedRuns() {
+        return timedRuns;
+    }
+
+    /**
+     * Gets the outcome of the latest run.
+     *
+     * @return the last outcome
+     */
+    public TestResult.ResultType getLastOutcome() {
+        return lastOutcome;
+    }
+
+    /**
+     * Gets the duration of the latest run that was not skipped.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    /**
+     * Gets the exponentially weighted average duration of runs that were not skipped.
+     *
+     * @return the average duration in milliseconds
+     */
+    public double getAverageDurationMillis() {
+        return averageDurationMillis;
+    }
+
+    /**
+     * Gets when the test last ran.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getLastSeenMillis() {
+        return lastSeenMillis;
+    }
+
+    /**
+     * Gets the distribution of recent durations of runs that were not skipped.
+     *
+     * @return the duration sketch
+     */
+    public DurationSketch getDurations() {
+        return durations;
+    }
+}
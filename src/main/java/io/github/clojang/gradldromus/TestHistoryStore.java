@@ -0,0 +1,314 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Per-test duration and outcome history that survives between builds.
+ * The file is an append-only log of {@link TestHistoryEntry} snapshots where the latest record for a test wins.
+ * It is replayed into a hash map on open, so lookups take constant time, and rewritten with one record per
+ * test once the log holds too many superseded records. The number of tests kept is bounded as well;
+ * the tests that have not run for the longest time are dropped first.
+ */
+public class TestHistoryStore implements AutoCloseable {
+    /** Location of the history file relative to a project's build directory */
+    public static final String RELATIVE_PATH = "gradldromus/test-history.bin";
+
+    /** Default maximum number of tests remembered per file */
+    public static final int DEFAULT_MAX_ENTRIES = 50_000;
+
+    private static final int MAGIC = 0x47444831; // "GDH1"
+    private static final int VERSION = 1;
+    private static final int RECORD_MARKER = 0xE1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+    private static final int COMPACT_FACTOR = 4;
+    private static final Logger LOGGER = Logger.getLogger(TestHistoryStore.class.getName());
+    private static final TestResult.ResultType[] OUTCOMES = TestResult.ResultType.values();
+
+    private final Path file;
+    private final int maxEntries;
+    private final Map<String, TestHistoryEntry> entries = new HashMap<>();
+    private long recordsInFile;
+    private boolean damaged;
+    private boolean writeFailed;
+    private DataOutputStream log;
+
+    private TestHistoryStore(Path file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Opens the history stored in a file, which need not exist yet.
+     * A missing, unreadable or truncated file yields whatever could be read, never an error.
+     *
+     * @param file the history file
+     * @param maxEntries the maximum number of tests remembered
+     * @return the store
+     */
+    public static TestHistoryStore open(Path file, int maxEntries) {
+        TestHistoryStore store = new TestHistoryStore(file, maxEntries);
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                store.load(in);
+            } catch (IOException e) {
+                LOGGER.warning("Could not read test history from " + file + ": " + e.getMessage());
+                store.damaged = true;
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Reads history records from a stream, as written to a history file.
+     * Used to read the history without opening it for writing.
+     *
+     * @param in the stream to read
+     * @return the latest entry per test, keyed by {@link TestHistoryEntry#key()}
+     */
+    public static Map<String, TestHistoryEntry> read(InputStream in) {
+        TestHistoryStore store = new TestHistoryStore(null, Integer.MAX_VALUE);
+        try {
+            store.load(in);
+        } catch (IOException e) {
+            LOGGER.warning("Could not read test history: " + e.getMessage());
+        }
+        return store.entries;
+    }
+
+    private void load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        try {
+            int version = data.readInt() == MAGIC ? data.readUnsignedShort() : -1;
+            if (version != VERSION) {
+                // Unknown format; replaced with a fresh log before anything is appended
+                damaged = true;
+                return;
+            }
+            int marker = data.read();
+            while (marker == RECORD_MARKER) {
+                TestHistoryEntry entry = readEntry(data);
+                entries.put(entry.key(), entry);
+                recordsInFile++;
+                marker = data.read();
+            }
+            damaged = marker >= 0;
+        } catch (EOFException truncated) {
+            // A record cut short, e.g. by a killed build; keep what was read and rewrite the file
+            damaged = true;
+        }
+    }
+
+    /**
+     * Looks up the history of a test.
+     *
+     * @param taskPath the path of the test task
+     * @param className the test class name
+     * @param testName the test method name
+     * @return the entry, or null if the test has not run before
+     */
+    public synchronized TestHistoryEntry get(String taskPath, String className, String testName) {
+        return entries.get(TestHistoryEntry.key(taskPath, className, testName));
+    }
+
+    /**
+     * Gets a snapshot of all entries.
+     *
+     * @return the entries, in no particular order
+     */
+    public synchronized Collection<TestHistoryEntry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * Gets the number of tests remembered.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Records one run of a test and appends the updated entry to the log.
+     *
+     * @param taskPath the path of the test task
+     * @param className the test class name
+     * @param testName the test method name
+     * @param outcome the outcome of the run
+     * @param durationMillis the duration of the run
+     * @return the updated entry
+     */
+    public synchronized TestHistoryEntry record(String taskPath, String className, String testName,
+                                                TestResult.ResultType outcome, long durationMillis) {
+        String key = TestHistoryEntry.key(taskPath, className, testName);
+        TestHistoryEntry previous = entries.get(key);
+        if (previous == null) {
+            previous = TestHistoryEntry.empty(taskPath, className, testName);
+        }
+        TestHistoryEntry updated = previous.update(outcome, durationMillis, System.currentTimeMillis());
+        append(updated);
+        entries.put(key, updated);
+        return updated;
+    }
+
+    private void append(TestHistoryEntry entry) {
+        if (writeFailed) {
+            return;
+        }
+        try {
+            if (log == null) {
+                log = openLog();
+            }
+            writeEntry(log, entry);
+            recordsInFile++;
+        } catch (IOException e) {
+            // Warn once; the build goes on without recording history
+            LOGGER.warning("Could not write test history to " + file + ": " + e.getMessage());
+            writeFailed = true;
+        }
+    }
+
+    private DataOutputStream openLog() throws IOException {
+        if (damaged || !Files.isRegularFile(file)) {
+            // Never append behind a damaged record; start from a clean copy of what is known
+            compact();
+        }
+        OutputStream append = Files.newOutputStream(file, StandardOpenOption.APPEND);
+        return new DataOutputStream(new BufferedOutputStream(append, BUFFER_SIZE));
+    }
+
+    /**
+     * Writes pending records and compacts the file if it has grown too large.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            if (!writeFailed && needsCompaction()) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not write test history to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private boolean needsCompaction() {
+        if (damaged || entries.size() > maxEntries) {
+            return true;
+        }
+        return recordsInFile > Math.max(COMPACT_MIN_RECORDS, (long) COMPACT_FACTOR * entries.size());
+    }
+
+    /**
+     * Rewrites the file with one record per test, dropping the least recently run tests beyond the limit.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void compact() throws IOException {
+        List<TestHistoryEntry> kept = new ArrayList<>(entries.values());
+        if (kept.size() > maxEntries) {
+            kept.sort(Comparator.comparingLong(TestHistoryEntry::getLastSeenMillis).reversed());
+            kept = kept.subList(0, maxEntries);
+            entries.clear();
+            for (TestHistoryEntry entry : kept) {
+                entries.put(entry.key(), entry);
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "test-history", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            writeHeader(out);
+            for (TestHistoryEntry entry : kept) {
+                writeEntry(out, entry);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordsInFile = kept.size();
+        damaged = false;
+    }
+
+    /**
+     * Gets the number of records in the file, including superseded ones.
+     *
+     * @return the record count
+     */
+    synchronized long getRecordsInFile() {
+        return recordsInFile;
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    private static void writeEntry(DataOutputStream out, TestHistoryEntry entry) throws IOException {
+        out.writeByte(RECORD_MARKER);
+        out.writeUTF(entry.getTaskPath());
+        out.writeUTF(entry.getClassName());
+        out.writeUTF(entry.getTestName());
+        out.writeByte(entry.getLastOutcome().ordinal());
+        out.writeInt(entry.getRuns());
+        out.writeInt(entry.getFailures());
+        out.writeInt(entry.getTimedRuns());
+        out.writeLong(entry.getLastDurationMillis());
+        out.writeDouble(entry.getAverageDurationMillis());
+        out.writeLong(entry.getLastSeenMillis());
+        byte[] buckets = entry.getDurations().getBuckets();
+        float[] weights = entry.getDurations().getWeights();
+        out.writeShort(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            out.writeByte(buckets[i]);
+            out.writeFloat(weights[i]);
+        }
+    }
+
+    private static TestHistoryEntry readEntry(DataInputStream in) throws IOException {
+        String taskPath = in.readUTF();
+        String className = in.readUTF();
+        String testName = in.readUTF();
+        int outcome = in.readUnsignedByte();
+        if (outcome >= OUTCOMES.length) {
+            throw new EOFException("Corrupt test history record");
+        }
+        // Arguments are evaluated left to right, matching the write order
+        return new TestHistoryEntry(taskPath, className, testName, in.readInt(), in.readInt(), in.readInt(),
+            OUTCOMES[outcome], in.readLong(), in.readDouble(), in.readLong(), readSketch(in));
+    }
+
+    private static DurationSketch readSketch(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        byte[] buckets = new byte[size];
+        float[] weights = new float[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = in.readByte();
+            weights[i] = in.readFloat();
+        }
+        return new DurationSketch(buckets, weights);
+    }
+}
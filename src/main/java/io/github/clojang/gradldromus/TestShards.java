@@ -0,0 +1,368 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.specs.Spec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Splits the test classes of a test task into shards of about equal running time, so that the shards can run
+ * on separate machines. Classes are placed longest first, each on the shard with the least time so far
+ * (the longest-processing-time rule). Classes without a duration are placed by a hash of their name.
+ * The plan only depends on the durations, so every machine must plan from the same durations: a shared
+ * durations file (see {@link #readDurations}), or none at all. A machine's own test history only covers the
+ * classes of its own shard, so plans derived from it would disagree and drop or repeat classes.
+ */
+public final class TestShards implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final String CLASS_SUFFIX = ".class";
+    private static final int DURATIONS_FIELDS = 3;
+
+    private final int shardCount;
+    private final Map<String, Integer> assignments;
+    private final List<List<Long>> durations;
+
+    private TestShards(int shardCount, Map<String, Integer> assignments, List<List<Long>> durations) {
+        this.shardCount = shardCount;
+        this.assignments = assignments;
+        this.durations = durations;
+    }
+
+    /**
+     * Plans shards for the given class durations.
+     *
+     * @param classDurations the expected duration of each top-level test class in milliseconds
+     * @param shardCount the number of shards, at least 1
+     * @return the plan
+     */
+    public static TestShards plan(Map<String, Long> classDurations, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shardCount);
+        }
+        List<Map.Entry<String, Long>> classes = new ArrayList<>(classDurations.entrySet());
+        // Longest first; ties by name so that every machine builds the same plan
+        classes.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        List<List<Long>> durations = new ArrayList<>(shardCount);
+        long[] loads = new long[shardCount];
+        PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(shardCount,
+            Comparator.<Integer>comparingLong(shard -> loads[shard]).thenComparingInt(shard -> shard));
+        for (int shard = 0; shard < shardCount; shard++) {
+            durations.add(new ArrayList<>());
+            leastLoaded.add(shard);
+        }
+        Map<String, Integer> assignments = new HashMap<>();
+        for (Map.Entry<String, Long> entry : classes) {
+            int shard = leastLoaded.poll();
+            assignments.put(entry.getKey(), shard);
+            durations.get(shard).add(entry.getValue());
+            loads[shard] += entry.getValue();
+            leastLoaded.add(shard);
+        }
+        return new TestShards(shardCount, assignments, durations);
+    }
+
+    /**
+     * Sums the recorded durations of a test task's tests per top-level class.
+     *
+     * @param entries the test history entries
+     * @param taskPath the path of the test task
+     * @return the duration of each class in milliseconds, sorted by class name
+     */
+    public static Map<String, Long> classDurations(Collection<TestHistoryEntry> entries, String taskPath) {
+        Map<String, Long> classDurations = new TreeMap<>();
+        for (TestHistoryEntry entry : entries) {
+            if (entry.getTaskPath().equals(taskPath) && entry.hasDuration()) {
+                classDurations.merge(topLevelClassName(entry.getClassName()),
+                    Math.round(entry.getAverageDurationMillis()), Long::sum);
+            }
+        }
+        return classDurations;
+    }
+
+    /**
+     * Reads the class durations of a test task from a shared durations file. Each line holds a task path, a class
+     * name and a duration in milliseconds, separated by whitespace; empty lines and lines starting with '#' are
+     * skipped. Durations of nested classes are added to their top-level class.
+     *
+     * @param file the durations file
+     * @param taskPath the path of the test task
+     * @return the duration of each class in milliseconds, sorted by class name
+     * @throws InvalidUserDataException if the file does not exist or a line is malformed
+     */
+    public static Map<String, Long> readDurations(Path file, String taskPath) {
+        if (!Files.isRegularFile(file)) {
+            // Falling back to hash placement on only some machines would make them disagree
+            throw new InvalidUserDataException("Test shard durations file " + file + " does not exist");
+        }
+        Map<String, Long> classDurations = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = trimmed.split("\\s+");
+                long millis = -1;
+                if (fields.length == DURATIONS_FIELDS) {
+                    try {
+                        millis = Long.parseLong(fields[2]);
+                    } catch (NumberFormatException ignored) {
+                        // Reported below
+                    }
+                }
+                if (millis < 0) {
+                    throw new InvalidUserDataException("Invalid line " + lineNumber + " in test shard durations file "
+                        + file + ": expected '<task path> <class name> <milliseconds>'");
+                }
+                if (fields[0].equals(taskPath)) {
+                    classDurations.merge(topLevelClassName(fields[1]), millis, Long::sum);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read test shard durations from " + file, e);
+        }
+        return classDurations;
+    }
+
+    /**
+     * Writes class durations in the format read by {@link #readDurations}.
+     *
+     * @param out the writer
+     * @param taskPath the path of the test task
+     * @param classDurations the duration of each class in milliseconds
+     * @throws IOException if writing fails
+     */
+    public static void writeDurations(Writer out, String taskPath, Map<String, Long> classDurations) throws IOException {
+        for (Map.Entry<String, Long> entry : classDurations.entrySet()) {
+            out.write(taskPath + " " + entry.getKey() + " " + entry.getValue() + System.lineSeparator());
+        }
+    }
+
+    /**
+     * Gets the top-level class of a class, since nested test classes run with their enclosing class.
+     *
+     * @param className a binary class name
+     * @return the name up to the first '$'
+     */
+    public static String topLevelClassName(String className) {
+        int nested = className.indexOf('$');
+        return nested < 0 ? className : className.substring(0, nested);
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Gets the shard a test class runs in.
+     *
+     * @param className the binary class name
+     * @return the shard, from 0
+     */
+    public int shardOf(String className) {
+        String topLevel = topLevelClassName(className);
+        Integer shard = assignments.get(topLevel);
+        // String.hashCode is specified, so classes without history land on the same shard everywhere
+        return shard != null ? shard : Math.floorMod(topLevel.hashCode(), shardCount);
+    }
+
+    /**
+     * Gets the number of classes with history placed on a shard.
+     *
+     * @param shard the shard, from 0
+     * @return the number of classes
+     */
+    public int classCount(int shard) {
+        return durations.get(shard).size();
+    }
+
+    /**
+     * Gets the expected running time of a shard's classes with history, one after the other.
+     *
+     * @param shard the shard, from 0
+     * @return the total duration in milliseconds
+     */
+    public long totalMillis(int shard) {
+        long total = 0;
+        for (long duration : durations.get(shard)) {
+            total += duration;
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the running time of a shard when its classes are spread over parallel test forks.
+     *
+     * @param shard the shard, from 0
+     * @param forks the number of forks, as in {@code maxParallelForks}
+     * @return the expected duration of the longest fork in milliseconds
+     */
+    public long wallClockMillis(int shard, int forks) {
+        // Durations are already sorted longest first, so this is the same greedy rule at fork level
+        long[] loads = new long[Math.max(1, forks)];
+        for (long duration : durations.get(shard)) {
+            int least = 0;
+            for (int fork = 1; fork < loads.length; fork++) {
+                if (loads[fork] < loads[least]) {
+                    least = fork;
+                }
+            }
+            loads[least] += duration;
+        }
+        long longest = 0;
+        for (long load : loads) {
+            longest = Math.max(longest, load);
+        }
+        return longest;
+    }
+
+    /**
+     * Creates a filter for a test task's class files that leaves only the classes of one shard.
+     *
+     * @param shard the shard to keep, from 0
+     * @return a spec matching the class files of all other shards, for {@code Test.exclude}
+     */
+    public Spec<FileTreeElement> excludeOtherShards(int shard) {
+        return new OtherShardsSpec(this, shard);
+    }
+
+    /**
+     * Creates a filter for a test task's class files that leaves only the classes of one shard. The plan is made
+     * when the filter is first used, while the task runs, so a changed durations file does not invalidate the
+     * configuration cache.
+     *
+     * @param durationsFile the shared durations file, or null to place every class by a hash of its name
+     * @param taskPath the path of the test task
+     * @param selection the shard to keep
+     * @return a spec matching the class files of all other shards, for {@code Test.exclude}
+     */
+    public static Spec<FileTreeElement> excludeOtherShards(File durationsFile, String taskPath, Selection selection) {
+        return new OtherShardsSpec(durationsFile, taskPath, selection.getCount(), selection.getIndex());
+    }
+
+    /**
+     * One shard out of a number of shards, as given by {@code -Pgradldromus.shard=i/n}.
+     */
+    public static final class Selection {
+        private final int index;
+        private final int count;
+
+        private Selection(int index, int count) {
+            this.index = index;
+            this.count = count;
+        }
+
+        /**
+         * Parses a shard selection such as "2/12".
+         *
+         * @param value the shard number, from 1, and the number of shards, separated by '/'
+         * @return the selection
+         * @throws InvalidUserDataException if the value is malformed or out of range
+         */
+        public static Selection parse(String value) {
+            int slash = value.indexOf('/');
+            try {
+                if (slash > 0) {
+                    int number = Integer.parseInt(value.substring(0, slash).trim());
+                    int count = Integer.parseInt(value.substring(slash + 1).trim());
+                    if (count >= 1 && number >= 1 && number <= count) {
+                        return new Selection(number - 1, count);
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+                // Reported below
+            }
+            throw new InvalidUserDataException("Invalid test shard '" + value
+                + "': expected i/n with 1 <= i <= n, e.g. -P" + GradlDromusPlugin.SHARD_PROPERTY + "=1/4");
+        }
+
+        /**
+         * Gets the selected shard.
+         *
+         * @return the shard, from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the number of shards.
+         *
+         * @return the shard count
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Matches class files that belong to a different shard. Serializable so that it can be stored in the
+     * configuration cache; a plan that is not given is made on first use.
+     */
+    private static final class OtherShardsSpec implements Spec<FileTreeElement>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final File durationsFile;
+        private final String taskPath;
+        private final int shardCount;
+        private final int shard;
+        private TestShards shards;
+
+        OtherShardsSpec(TestShards shards, int shard) {
+            this(null, null, shards.getShardCount(), shard);
+            this.shards = shards;
+        }
+
+        OtherShardsSpec(File durationsFile, String taskPath, int shardCount, int shard) {
+            this.durationsFile = durationsFile;
+            this.taskPath = taskPath;
+            this.shardCount = shardCount;
+            this.shard = shard;
+        }
+
+        private synchronized TestShards shards() {
+            if (shards == null) {
+                Map<String, Long> classDurations = durationsFile == null
+                    ? Collections.emptyMap() : readDurations(durationsFile.toPath(), taskPath);
+                shards = plan(classDurations, shardCount);
+            }
+            return shards;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(FileTreeElement element) {
+            String path = element.getPath();
+            if (element.isDirectory() || !path.endsWith(CLASS_SUFFIX)) {
+                return false;
+            }
+            String className = path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.');
+            return shards().shardOf(className) != shard;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counts and time of one test task. Counters are striped {@link LongAdder}s, so forks reporting
+ * at the same time do not contend on a single value; they are only summed when the summary is printed.
+ */
+public class TestTaskStats {
+    private final String taskPath;
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder testMillis = new LongAdder();
+    private final AtomicLong startMillis = new AtomicLong();
+    private final AtomicLong endMillis = new AtomicLong();
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param taskPath the path of the test task, or null for tests of unknown tasks
+     */
+    public TestTaskStats(String taskPath) {
+        this.taskPath = taskPath;
+    }
+
+    /**
+     * Records that the task started running tests; only the first call counts.
+     *
+     * @param nowMillis the current time in milliseconds since the epoch
+     */
+    public void started(long nowMillis) {
+        startMillis.compareAndSet(0, nowMillis);
+    }
+
+    /**
+     * Records that the task finished running tests; the latest call counts.
+     *
+     * @param nowMillis the current time in milliseconds since the epoch
+     */
+    public void finished(long nowMillis) {
+        endMillis.accumulateAndGet(nowMillis, Math::max);
+    }
+
+    /**
+     * Counts a finished test.
+     *
+     * @param resultType the outcome of the test
+     * @param durationMillis how long the test took
+     */
+    public void testFinished(TestResult.ResultType resultType, long durationMillis) {
+        switch (resultType) {
+            case SUCCESS:
+                passed.increment();
+                break;
+            case FAILURE:
+                failed.increment();
+                break;
+            default:
+                skipped.increment();
+        }
+        testMillis.add(durationMillis);
+    }
+
+    /**
+     * Gets the path of the test task.
+     *
+     * @return the task path, or null for tests of unknown tasks
+     */
+    public String getTaskPath() {
+        return taskPath;
+    }
+
+    /**
+     * Gets the number of finished tests.
+     *
+     * @return the test count
+     */
+    public long getTests() {
+        return passed.sum() + failed.sum() + skipped.sum();
+    }
+
+    /**
+     * Gets the number of passed tests.
+     *
+     * @return the passed count
+     */
+    public long getPassed() {
+        return passed.sum();
+    }
+
+    /**
+     * Gets the number of failed tests.
+     *
+     * @return the failed count
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the number of skipped tests.
+     *
+     * @return the skipped count
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * Gets the summed duration of the task's tests, which exceeds the wall-clock time when forks run in parallel.
+     *
+     * @return the test time in milliseconds
+     */
+    public long getTestMillis() {
+        return testMillis.sum();
+    }
+
+    /**
+     * Gets the time from the first test suite starting to the last one finishing.
+     *
+     * @return the wall-clock time in milliseconds, or 0 if the task has not finished
+     */
+    public long getWallMillis() {
+        long start = startMillis.get();
+        long end = endMillis.get();
+        return start == 0 || end < start ? 0 : end - start;
+    }
+}
@@ -3,6 +3,10 @@ package io.github.clojang.gradldromus;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
 
 public class AnsiColorsTest {
     
@@ -62,4 +66,64 @@ public class AnsiColorsTest {
         assertEquals("\u001B[91m", AnsiColors.BRIGHT_RED);
         assertEquals("\u001B[92m", AnsiColors.BRIGHT_GREEN);
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testColorizeSingleStyle() {
+        AnsiColors colors = new AnsiColors(true);
+        
+        assertEquals(AnsiColors.BOLD_BRIGHT_GREEN + "ok" + AnsiColors.RESET, colors.colorize("ok", AnsiColors.BOLD_BRIGHT_GREEN));
+        assertEquals("Combined style should match the varargs form",
+            colors.colorize("ok", AnsiColors.BOLD, AnsiColors.BRIGHT_GREEN), colors.colorize("ok", AnsiColors.BOLD_BRIGHT_GREEN));
+    }
+    
+    @Test
+    public void testColorizeIntoBuilder() {
+        AnsiColors colors = new AnsiColors(true);
+        StringBuilder sb = new StringBuilder("> ");
+        
+        StringBuilder result = colors.colorize(sb, "test", AnsiColors.RED);
+        
+        assertSame("Should append into the supplied builder", sb, result);
+        assertEquals("> " + AnsiColors.RED + "test" + AnsiColors.RESET, sb.toString());
+    }
+    
+    @Test
+    public void testColorizeIntoBuilderWithoutColors() {
+        AnsiColors colors = new AnsiColors(false);
+        StringBuilder sb = new StringBuilder();
+        
+        colors.colorize(sb, "test", AnsiColors.RED);
+        
+        assertEquals("test", sb.toString());
+    }
+    
+    @Test
+    public void testColorizeIntoAppendable() throws IOException {
+        AnsiColors colors = new AnsiColors(true);
+        StringWriter writer = new StringWriter();
+        
+        colors.colorize((Appendable) writer, "test", AnsiColors.CYAN);
+        
+        assertEquals(AnsiColors.CYAN + "test" + AnsiColors.RESET, writer.toString());
+    }
+    
+    @Test
+    public void testStripAnsiReturnsSameInstanceWithoutEscapes() {
+        String plainText = "Hello World";
+        assertSame("Plain text should not be copied", plainText, AnsiColors.stripAnsi(plainText));
+    }
+    
+    @Test
+    public void testStripAnsiCompoundCodes() {
+        assertEquals("bold red", AnsiColors.stripAnsi("\u001B[1;31mbold red\u001B[0m"));
+    }
+    
+    @Test
+    public void testStripAnsiKeepsNonColorSequences() {
+        // Only color codes are removed, like the original regex; other escapes are left alone
+        String clearLine = "\u001B[2Kline";
+        assertEquals(clearLine, AnsiColors.stripAnsi(clearLine));
+        assertEquals("a\u001B[31", AnsiColors.stripAnsi("a\u001B[31"));
+        assertEquals("x\u001By", AnsiColors.stripAnsi("x\u001B" + AnsiColors.RED + "y"));
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AsyncLineWriterTest {
+    private static final int LINES = 5000;
+    private static final int THREADS = 8;
+    private static final int SMALL_CAPACITY = 4;
+    private static final long LONG_INTERVAL_MILLIS = 60_000;
+
+    private ByteArrayOutputStream bytes;
+    private PrintStream target;
+    private AsyncLineWriter writer;
+
+    @Before
+    public void setUp() {
+        bytes = new ByteArrayOutputStream();
+        target = new PrintStream(bytes, true);
+    }
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testPreservesOrderFromOneThread() {
+        writer = new AsyncLineWriter(target, AsyncLineWriter.DEFAULT_CAPACITY, AsyncLineWriter.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            writer.submit(i + "\n");
+            expected.append(i).append('\n');
+        }
+        writer.flush();
+
+        assertEquals("All lines should be written in order", expected.toString(), bytes.toString());
+    }
+
+    @Test
+    public void testFlushDoesNotWaitForInterval() {
+        writer = new AsyncLineWriter(target, AsyncLineWriter.DEFAULT_CAPACITY, LONG_INTERVAL_MILLIS);
+        writer.submit("hello\n");
+        writer.flush();
+
+        assertEquals("Flush should write queued output immediately", "hello\n", bytes.toString());
+    }
+
+    @Test
+    public void testConcurrentSubmittersWithBackpressure() throws InterruptedException {
+        writer = new AsyncLineWriter(target, SMALL_CAPACITY, AsyncLineWriter.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String prefix = "t" + t + "-";
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < LINES; i++) {
+                    writer.submit(prefix + i + "\n");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.flush();
+
+        String[] lines = bytes.toString().split("\n");
+        assertEquals("No line should be lost", THREADS * LINES, lines.length);
+
+        // Each submitter's lines must still appear in its own order
+        int[] next = new int[THREADS];
+        for (String line : lines) {
+            int dash = line.indexOf('-');
+            int thread = Integer.parseInt(line.substring(1, dash));
+            assertEquals("Per-thread order should be preserved", next[thread]++, Integer.parseInt(line.substring(dash + 1)));
+        }
+    }
+
+    @Test
+    public void testCloseWritesRemainingAndFallsBackToSynchronous() {
+        writer = new AsyncLineWriter(target, AsyncLineWriter.DEFAULT_CAPACITY, LONG_INTERVAL_MILLIS);
+        writer.submit("queued\n");
+        writer.close();
+        writer.submit("after\n");
+
+        assertEquals("queued\nafter\n", bytes.toString());
+    }
+
+    @Test
+    public void testCloseLosesNoLineFromRacingSubmitters() throws InterruptedException {
+        AsyncLineWriter racing = new AsyncLineWriter(target, AsyncLineWriter.DEFAULT_CAPACITY, LONG_INTERVAL_MILLIS);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < LINES; i++) {
+                    racing.submit("line\n");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        started.await();
+        racing.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("Lines submitted around close should all be written", THREADS * LINES, bytes.toString().split("\n").length);
+    }
+
+    @Test
+    public void testPrinterRoutesThroughWriter() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        CleanTerminalPrinter printer = new CleanTerminalPrinter(extension);
+        printer.startAsyncOutput(target, LONG_INTERVAL_MILLIS);
+        printer.println(target, "Hello World");
+        printer.flush();
+        printer.stopAsyncOutput();
+
+        String output = bytes.toString();
+        assertTrue("Output should contain the text", output.contains("Hello World"));
+        assertTrue("Output should end with newline", output.endsWith(System.lineSeparator()));
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryEventLogTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final long DURATION = 25;
+    private static final int MANY_TESTS = 100_000;
+    private static final int DISTINCT_NAMES = 10;
+    private static final int TRUNCATED_BYTES = 3;
+    private static final int RECORDS = 3;
+    private static final int STRING_TABLE_LIMIT = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path logFile() {
+        return folder.getRoot().toPath().resolve(BinaryEventLog.RELATIVE_PATH);
+    }
+
+    private static List<BinaryEventLog.TestRecord> readAll(Path file) throws IOException {
+        List<BinaryEventLog.TestRecord> records = new ArrayList<>();
+        BinaryEventLog.read(file, records::add);
+        return records;
+    }
+
+    @Test
+    public void testRecordsRoundTrip() throws IOException {
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, StubTestDescriptor.rootSuite());
+        AssertionError error = new AssertionError("expected 1");
+        try (BinaryEventSink sink = BinaryEventSink.open(logFile())) {
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "bar", suite), StubTestResult.success(DURATION));
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "baz", suite), StubTestResult.failure(DURATION, error));
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "qux", suite), StubTestResult.skipped());
+        }
+
+        List<BinaryEventLog.TestRecord> records = readAll(logFile());
+        assertEquals(RECORDS, records.size());
+        BinaryEventLog.TestRecord passed = records.get(0);
+        assertEquals(TASK, passed.getTaskPath());
+        assertEquals(CLASS, passed.getClassName());
+        assertEquals("bar", passed.getTestName());
+        assertEquals(TestResult.ResultType.SUCCESS, passed.getOutcome());
+        assertEquals(DURATION, passed.getDurationMillis());
+        assertNull(passed.getExceptionType());
+        assertEquals(0, passed.getExceptionDigest());
+        BinaryEventLog.TestRecord failed = records.get(1);
+        assertEquals(TestResult.ResultType.FAILURE, failed.getOutcome());
+        assertEquals(AssertionError.class.getName(), failed.getExceptionType());
+        assertEquals(BinaryEventLog.exceptionDigest(error), failed.getExceptionDigest());
+        assertEquals(TestResult.ResultType.SKIPPED, records.get(2).getOutcome());
+    }
+
+    @Test
+    public void testNamesAreStoredOnce() throws IOException {
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, StubTestDescriptor.rootSuite());
+        try (BinaryEventSink sink = BinaryEventSink.open(logFile())) {
+            for (int i = 0; i < MANY_TESTS; i++) {
+                sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "test" + (i % DISTINCT_NAMES), suite),
+                    StubTestResult.success(DURATION));
+            }
+        }
+
+        long recordSize = BinaryEventLog.RECORD_HEADER_SIZE + BinaryEventLog.TEST_PAYLOAD_SIZE;
+        long size = Files.size(logFile());
+        // Fixed-size test records plus a string table of twelve short names
+        assertTrue("size " + size, size < BinaryEventLog.HEADER_SIZE + MANY_TESTS * recordSize + STRING_TABLE_LIMIT);
+        assertEquals(MANY_TESTS, BinaryEventLog.read(logFile(), record -> { }));
+    }
+
+    @Test
+    public void testTruncatedRecordEndsTheLog() throws IOException {
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, StubTestDescriptor.rootSuite());
+        try (BinaryEventSink sink = BinaryEventSink.open(logFile())) {
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "bar", suite), StubTestResult.success(DURATION));
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "baz", suite), StubTestResult.success(DURATION));
+        }
+        byte[] bytes = Files.readAllBytes(logFile());
+        Files.write(logFile(), Arrays.copyOf(bytes, bytes.length - TRUNCATED_BYTES));
+
+        List<BinaryEventLog.TestRecord> records = readAll(logFile());
+        assertEquals(1, records.size());
+        assertEquals("bar", records.get(0).getTestName());
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("other.bin").toPath();
+        Files.write(file, "not a log at all".getBytes(StandardCharsets.US_ASCII));
+        try {
+            readAll(file);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("Not a test event log", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExceptionDigestIgnoresDeeperFrames() {
+        AssertionError first = new AssertionError("expected 1");
+        AssertionError second = new AssertionError("expected 1");
+        StackTraceElement top = new StackTraceElement(CLASS, "bar", "FooTest.java", 1);
+        first.setStackTrace(new StackTraceElement[] {top, new StackTraceElement("a.B", "c", "B.java", 2)});
+        second.setStackTrace(new StackTraceElement[] {top, new StackTraceElement("d.E", "f", "E.java", 2)});
+
+        assertEquals(BinaryEventLog.exceptionDigest(first), BinaryEventLog.exceptionDigest(second));
+        assertNotEquals(BinaryEventLog.exceptionDigest(first),
+            BinaryEventLog.exceptionDigest(new AssertionError("expected 2")));
+    }
+
+    @Test
+    public void testReportGroupsFailures() throws IOException {
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, StubTestDescriptor.rootSuite());
+        try (BinaryEventSink sink = BinaryEventSink.open(logFile())) {
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "bar", suite), StubTestResult.success(DURATION));
+            for (String test : Arrays.asList("baz", "qux")) {
+                IllegalStateException error = new IllegalStateException("closed");
+                error.setStackTrace(new StackTraceElement[] {new StackTraceElement(CLASS, "setUp", "FooTest.java", 1)});
+                sink.testFinished(TASK, StubTestDescriptor.test(CLASS, test, suite), StubTestResult.failure(DURATION, error));
+            }
+        }
+
+        List<String> lines = new EventLogReport().read(List.of(logFile()));
+        assertTrue(lines.get(0), lines.get(0).startsWith("3 test results from 1 log(s)"));
+        assertTrue(lines.toString(), lines.contains("1 passed, 2 failed, 0 skipped; 0.1s of test time"));
+        assertTrue(lines.toString(), lines.contains("    2x java.lang.IllegalStateException (first in " + CLASS + ".baz)"));
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClassNameCacheTest {
+    private static final int LOOKUPS = 1000;
+    private static final int SMALL_CAPACITY = 4;
+    private static final int CLASSES = 20;
+
+    @Test
+    public void testRendersSimpleNameAndWidth() {
+        ClassNameCache cache = new ClassNameCache(new AnsiColors(true));
+        ClassNameCache.ClassPrefix prefix = cache.get("com.example.service.OrderServiceTest");
+
+        assertEquals(AnsiColors.WHITE + "OrderServiceTest." + AnsiColors.RESET, prefix.getRendered());
+        assertEquals("Width should exclude color codes", "OrderServiceTest.".length(), prefix.getWidth());
+    }
+
+    @Test
+    public void testDefaultPackageClass() {
+        ClassNameCache.ClassPrefix prefix = new ClassNameCache(new AnsiColors(false)).get("FooTest");
+        assertEquals("FooTest.", prefix.getRendered());
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        ClassNameCache cache = new ClassNameCache(new AnsiColors(false));
+        ClassNameCache.ClassPrefix first = cache.get("com.example.FooTest");
+        for (int i = 1; i < LOOKUPS; i++) {
+            assertSame("Repeated lookups should reuse the entry", first, cache.get("com.example.FooTest"));
+        }
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(LOOKUPS - 1, cache.getHits());
+        assertEquals("Class name cache: 999 hits, 1 misses, 1 entries", cache.describeStats());
+    }
+
+    @Test
+    public void testStaysWithinCapacity() {
+        ClassNameCache cache = new ClassNameCache(new AnsiColors(false), SMALL_CAPACITY);
+        for (int i = 0; i < CLASSES; i++) {
+            assertEquals("Test" + i + ".", cache.get("com.example.Test" + i).getRendered());
+            assertTrue("Cache should be bounded", cache.size() <= SMALL_CAPACITY);
+        }
+        assertEquals(CLASSES, cache.getMisses());
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ClassOutputBufferTest {
+    private static final long SMALL_LIMIT = 64;
+    private static final int LINES = 100;
+    private static final int MANY_LINES = 5000;
+    private static final long LONG_INTERVAL_MILLIS = 60_000;
+    private static final long WRITE_TIMEOUT_MILLIS = 10_000;
+
+    private CleanTerminalPrinter printer;
+    private ByteArrayOutputStream bytes;
+    private PrintStream output;
+    private AtomicLong bufferedChars;
+
+    @Before
+    public void setUp() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        printer = new CleanTerminalPrinter(extension);
+        bytes = new ByteArrayOutputStream();
+        output = new PrintStream(bytes, true);
+        bufferedChars = new AtomicLong();
+    }
+
+    private static String expectedLines(int count) {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            expected.append("line ").append(i).append(System.lineSeparator());
+        }
+        return expected.toString();
+    }
+
+    @Test
+    public void testHoldsOutputUntilWritten() {
+        ClassOutputBuffer buffer = new ClassOutputBuffer(printer, bufferedChars, ClassOutputBuffer.DEFAULT_MEMORY_LIMIT_CHARS);
+        buffer.accept("line 0");
+        buffer.accept("line 1");
+        assertEquals("Nothing should be written yet", 0, bytes.size());
+        assertTrue("Memory use should be counted", bufferedChars.get() > 0);
+
+        buffer.writeTo(output);
+        buffer.close();
+        assertEquals(expectedLines(2), bytes.toString());
+        assertEquals("Closing should release the budget", 0, bufferedChars.get());
+    }
+
+    @Test
+    public void testSpillsToDiskPastTheLimit() {
+        ClassOutputBuffer buffer = new ClassOutputBuffer(printer, bufferedChars, SMALL_LIMIT);
+        for (int i = 0; i < LINES; i++) {
+            buffer.accept("line " + i);
+        }
+        assertTrue("Buffer should have spilled", buffer.isSpilled());
+        assertEquals("Spilled output should not count against the budget", 0, bufferedChars.get());
+
+        buffer.writeTo(output);
+        buffer.close();
+        assertEquals("Spilled output should be written in order", expectedLines(LINES), bytes.toString());
+    }
+
+    @Test
+    public void testSpilledOutputFollowsQueuedAsyncOutput() throws InterruptedException {
+        printer.startAsyncOutput(output, LONG_INTERVAL_MILLIS);
+        ClassOutputBuffer buffer = new ClassOutputBuffer(printer, bufferedChars, SMALL_LIMIT);
+        for (int i = 0; i < LINES; i++) {
+            buffer.accept("line " + i);
+        }
+        printer.println(output, "queued");
+
+        // The writer thread needs the output's monitor for the queued line while the block is written
+        Thread writing = new Thread(() -> buffer.writeTo(output));
+        writing.start();
+        writing.join(WRITE_TIMEOUT_MILLIS);
+        assertFalse("Writing a spilled buffer should not wait for itself", writing.isAlive());
+        printer.stopAsyncOutput();
+        buffer.close();
+        assertEquals("queued" + System.lineSeparator() + expectedLines(LINES), bytes.toString());
+    }
+
+    @Test
+    public void testBudgetIsSharedBetweenBuffers() {
+        ClassOutputBuffer first = new ClassOutputBuffer(printer, bufferedChars, SMALL_LIMIT);
+        ClassOutputBuffer second = new ClassOutputBuffer(printer, bufferedChars, SMALL_LIMIT);
+        first.accept("x".repeat((int) SMALL_LIMIT - 2));
+        assertFalse("First buffer fits in the budget", first.isSpilled());
+
+        second.accept("line 0");
+        assertTrue("Second buffer should spill once the shared budget is used up", second.isSpilled());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testKeepsOutputThatCannotBeSpilled() {
+        ClassOutputBuffer buffer = new ClassOutputBuffer(printer, bufferedChars, SMALL_LIMIT) {
+            @Override
+            Writer openSpill(Path file) throws IOException {
+                return new FailingWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+            }
+        };
+        for (int i = 0; i < MANY_LINES; i++) {
+            buffer.accept("line " + i);
+        }
+        assertTrue("Output the file did not take should count against the budget", bufferedChars.get() > 0);
+
+        buffer.writeTo(output);
+        buffer.close();
+        assertEquals("No output should be lost", expectedLines(MANY_LINES), bytes.toString());
+        assertEquals("Closing should release the budget", 0, bufferedChars.get());
+    }
+
+    /**
+     * Accepts the first write and fails every later one, like a disk that fills up.
+     */
+    private static final class FailingWriter extends Writer {
+        private final Writer target;
+        private boolean written;
+
+        FailingWriter(Writer target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (written) {
+                throw new IOException("No space left on device");
+            }
+            written = true;
+            target.write(chars, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+}
@@ -9,6 +9,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
 public class CleanTerminalPrinterTest {
+    private static final int SYNTHETIC_TESTS = 10_000;
+    private static final int METHODS_PER_CLASS = 100;
+    private static final int NAME_COLUMN = 60;
+    private static final int MAX_SYNTHETIC_MILLIS = 50;
     
     private GradlDromusExtension extension;
     private CleanTerminalPrinter printer;
@@ -59,6 +63,7 @@ public class CleanTerminalPrinterTest {
     
     @Test
     public void testClearLine() {
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_INTERACTIVE);
         printer.clearLine(printStream);
         String output = outputStream.toString();
         
@@ -67,6 +72,54 @@ public class CleanTerminalPrinterTest {
         assertTrue("Output should contain spaces for clearing", output.contains(" "));
     }
     
+    @Test
+    public void testClearLinePlainMode() {
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        printer.clearLine(printStream);
+        
+        assertEquals("Plain mode should not write clearing sequences", "", outputStream.toString());
+    }
+    
+    @Test
+    public void testPrintlnPlainMode() {
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        printer.println(printStream, "Hello World");
+        
+        assertEquals("Plain mode should write just the line", "Hello World" + System.lineSeparator(), outputStream.toString());
+    }
+    
+    @Test
+    public void testPlainModeByteCountOnSyntheticStream() {
+        long interactiveBytes = renderSyntheticStream(GradlDromusExtension.RENDER_MODE_INTERACTIVE);
+        long plainBytes = renderSyntheticStream(GradlDromusExtension.RENDER_MODE_PLAIN);
+        
+        long expectedPlain = 0;
+        for (int i = 0; i < SYNTHETIC_TESTS; i++) {
+            expectedPlain += syntheticLine(i).length() + System.lineSeparator().length();
+        }
+        long clearingBytes = (long) SYNTHETIC_TESTS * (extension.getTerminalWidth() + 2);
+        
+        assertEquals("Plain mode should write exactly the lines", expectedPlain, plainBytes);
+        assertEquals("Interactive mode should add one clearing sequence per line", plainBytes + clearingBytes, interactiveBytes);
+        assertTrue("Plain mode should be less than half the interactive size", plainBytes * 2 < interactiveBytes);
+    }
+    
+    private long renderSyntheticStream(String renderMode) {
+        extension.setRenderMode(renderMode);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(bytes);
+        for (int i = 0; i < SYNTHETIC_TESTS; i++) {
+            printer.println(stream, syntheticLine(i));
+        }
+        stream.flush();
+        return bytes.size();
+    }
+    
+    private static String syntheticLine(int i) {
+        String name = "SyntheticTest" + (i / METHODS_PER_CLASS) + ".method" + i + " ";
+        return "    " + name + ".".repeat(Math.max(1, NAME_COLUMN - name.length())) + "ok (" + (i % MAX_SYNTHETIC_MILLIS) + "ms)";
+    }
+    
     @Test
     public void testMoveToLineStart() {
         printer.moveToLineStart(printStream);
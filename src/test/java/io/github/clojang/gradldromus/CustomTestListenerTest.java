@@ -8,11 +8,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import org.gradle.api.tasks.testing.TestDescriptor;
+
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
 public class CustomTestListenerTest {
     public static final int SHORT_STACK = 3;
+    private static final long DURATION = 42;
+    private static final int DOTS_PAD = 76;
+    private static final int REPEATS = 3;
     private GradlDromusExtension extension;
     private CustomTestListener listener;
     private final PrintStream originalOut = System.out;
@@ -126,4 +131,170 @@ public class CustomTestListenerTest {
         assertFalse("First listener should have no tests", listener1.hasTests());
         assertFalse("Second listener should have no tests", listener2.hasTests());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testRendersPassingTestLine() {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setPassSymbol("ok");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener plain = new CustomTestListener(extension, new PrintStream(bytes, true));
+        
+        plain.afterTest(StubTestDescriptor.test("com.example.FooTest", "bar", null), StubTestResult.success(DURATION));
+        
+        String name = "FooTest.bar ";
+        String expected = "    " + name + ".".repeat(DOTS_PAD - 2 - name.length()) + extension.getPassSymbol() + " (42ms)";
+        assertEquals(expected + System.lineSeparator(), bytes.toString());
+    }
+    
+    @Test
+    public void testReusedBufferDoesNotLeakBetweenLines() {
+        extension.setUseColors(true);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener colored = new CustomTestListener(extension, new PrintStream(bytes, true));
+        
+        for (int i = 0; i < REPEATS; i++) {
+            colored.afterTest(StubTestDescriptor.test("com.example.FooTest", "bar" + i, null), StubTestResult.success(DURATION));
+        }
+        
+        String[] lines = bytes.toString().split(System.lineSeparator());
+        assertEquals("One line per test", REPEATS, lines.length);
+        for (int i = 0; i < REPEATS; i++) {
+            assertEquals("Each line should render just its own test",
+                AnsiColors.stripAnsi(lines[0]).replace("bar0", "bar" + i), AnsiColors.stripAnsi(lines[i]));
+            assertTrue("Colored class prefix expected", lines[i].contains(AnsiColors.WHITE + "FooTest." + AnsiColors.RESET));
+        }
+    }
+    
+    @Test
+    public void testDebugSummaryShowsClassNameCacheStats() {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setDebug(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener debugging = new CustomTestListener(extension, new PrintStream(bytes, true));
+        
+        for (int i = 0; i < REPEATS; i++) {
+            debugging.afterTest(StubTestDescriptor.test("com.example.FooTest", "bar" + i, null), StubTestResult.success(DURATION));
+        }
+        debugging.printFinalSummary();
+        
+        assertTrue("Summary should include cache statistics",
+            bytes.toString().contains("Class name cache: 2 hits, 1 misses, 1 entries"));
+    }
+    
+    @Test
+    public void testGroupsInterleavedClassesIntoBlocks() {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setGroupOutputByClass(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener grouped = new CustomTestListener(extension, new PrintStream(bytes, true));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor foo = StubTestDescriptor.classSuite("com.example.FooTest", root);
+        TestDescriptor bar = StubTestDescriptor.classSuite("com.example.BarTest", root);
+        
+        // Two forks reporting at the same time
+        grouped.beforeSuite(root);
+        for (int i = 0; i < REPEATS; i++) {
+            grouped.afterTest(StubTestDescriptor.test("com.example.FooTest", "foo" + i, foo), StubTestResult.success(DURATION));
+            grouped.afterTest(StubTestDescriptor.test("com.example.BarTest", "bar" + i, bar),
+                StubTestResult.failure(DURATION, new AssertionError("bar" + i + " failed")));
+        }
+        assertEquals("Nothing should be written before a class finishes", 0, bytes.size());
+        
+        grouped.afterSuite(bar, StubTestResult.success(DURATION));
+        grouped.afterSuite(foo, StubTestResult.success(DURATION));
+        grouped.afterSuite(root, StubTestResult.success(DURATION));
+        
+        String[] lines = bytes.toString().split(System.lineSeparator());
+        assertEquals("Each failure adds its message line", REPEATS * 3, lines.length);
+        for (int i = 0; i < REPEATS; i++) {
+            assertTrue("Bar results come first", lines[2 * i].contains("BarTest.bar" + i));
+            assertTrue("Failure details stay with their test", lines[2 * i + 1].contains("bar" + i + " failed"));
+            assertTrue("Foo results follow as one block", lines[2 * REPEATS + i].contains("FooTest.foo" + i));
+        }
+    }
+    
+    @Test
+    public void testFinishedTaskLeavesOtherTasksBuffered() {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setGroupOutputByClass(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener grouped = new CustomTestListener(extension, new PrintStream(bytes, true));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor foo = StubTestDescriptor.classSuite("com.example.FooTest", root);
+        
+        // Two projects of a parallel build run the same class
+        grouped.afterTest(":a:test", StubTestDescriptor.test("com.example.FooTest", "inA", foo), StubTestResult.success(DURATION));
+        grouped.afterTest(":b:test", StubTestDescriptor.test("com.example.FooTest", "inB", foo), StubTestResult.success(DURATION));
+        grouped.afterSuite(":a:test", root, StubTestResult.success(DURATION));
+        
+        String output = bytes.toString();
+        assertTrue("The finished task's classes should be written", output.contains("FooTest.inA"));
+        assertFalse("A running task's class should stay buffered", output.contains("FooTest.inB"));
+        
+        grouped.afterSuite(":b:test", foo, StubTestResult.success(DURATION));
+        assertTrue("It should be written when it finishes", bytes.toString().contains("FooTest.inB"));
+    }
+    
+    @Test
+    public void testSummaryListsSlowestTests() {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setSlowestTestsCount(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener summarizing = new CustomTestListener(extension, new PrintStream(bytes, true));
+        
+        summarizing.afterTest(StubTestDescriptor.test("com.example.FooTest", "quick", null), StubTestResult.success(1));
+        summarizing.afterTest(StubTestDescriptor.test("com.example.FooTest", "slow", null), StubTestResult.success(DURATION));
+        summarizing.afterTest(StubTestDescriptor.test("com.example.BarTest", "medium", null), StubTestResult.success(DURATION - 1));
+        summarizing.printFinalSummary();
+        
+        String output = bytes.toString();
+        assertTrue("Slowest test expected", output.contains("Slowest tests:" + System.lineSeparator() + "    42ms FooTest.slow"));
+        assertTrue("Slowest class expected", output.contains("Slowest classes:" + System.lineSeparator() + "    43ms FooTest"));
+    }
+    
+    @Test
+    public void testStatisticsFollowExplicitTaskPaths() throws InterruptedException {
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener summarizing = new CustomTestListener(extension, new PrintStream(bytes, true));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        
+        // Events of both tasks arrive on threads that never set a current task path
+        Thread first = new Thread(() -> {
+            summarizing.beforeSuite(":a:test", root);
+            summarizing.afterTest(":a:test", StubTestDescriptor.test("com.example.FooTest", "foo", root), StubTestResult.success(DURATION));
+            summarizing.afterSuite(":a:test", root, StubTestResult.success(DURATION));
+        });
+        Thread second = new Thread(() -> {
+            summarizing.beforeSuite(":b:test", root);
+            for (int i = 0; i < REPEATS; i++) {
+                summarizing.afterTest(":b:test", StubTestDescriptor.test("com.example.BarTest", "bar" + i, root),
+                    StubTestResult.failure(DURATION, new AssertionError("bar" + i + " failed")));
+            }
+            summarizing.afterSuite(":b:test", root, StubTestResult.success(DURATION));
+        });
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        
+        assertEquals(1, summarizing.getTaskStats(":a:test").getPassed());
+        assertEquals(REPEATS, summarizing.getTaskStats(":b:test").getFailed());
+        assertEquals(REPEATS * DURATION, summarizing.getTaskStats(":b:test").getTestMillis());
+        assertEquals(0, summarizing.getTaskStats(null).getTests());
+        
+        summarizing.printFinalSummary();
+        String output = bytes.toString();
+        assertTrue(output, output.contains("Total: 4 tests"));
+        assertTrue(output, output.contains("By module:"));
+        String rowB = output.lines().filter(line -> line.startsWith("    :b:test")).findFirst().orElse("");
+        assertTrue(rowB, rowB.matches("    :b:test +3 +0 +3 +0 +0\\.1s +\\d+\\.\\ds"));
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.logging.configuration.ConsoleOutput;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs many simulated builds in one JVM, the way a Gradle daemon does, and checks that nothing
+ * the plugin creates for a build outlives it, including builds that never reach their cleanup.
+ */
+public class DaemonRetentionTest {
+    private static final int BUILDS = 50;
+    private static final int WARMUP_BUILDS = 3;
+    private static final int TESTS_PER_BUILD = 200;
+    private static final long DURATION = 3;
+    private static final long GC_TIMEOUT_MILLIS = 10_000;
+    private static final long GC_PAUSE_MILLIS = 50;
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+    private final PrintStream originalOut = System.out;
+    private GradlDromusBuildService.Params parameters;
+
+    @Before
+    public void setUp() {
+        Property<ConsoleOutput> consoleOutput = ProjectBuilder.builder().build().getObjects().property(ConsoleOutput.class);
+        parameters = () -> consoleOutput;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    public void testRepeatedBuildsDoNotRetainState() throws InterruptedException {
+        int baselineWriters = countThreads(AsyncLineWriter.THREAD_NAME);
+        List<WeakReference<Object>> buildState = new ArrayList<>();
+        long warmHeap = 0;
+
+        for (int build = 0; build < BUILDS; build++) {
+            // Every other build "crashes" and never closes its build service
+            runBuild(build, build % 2 == 0, buildState);
+            if (build == WARMUP_BUILDS - 1) {
+                warmHeap = settledHeap();
+            }
+        }
+
+        awaitCollected(buildState);
+        long growth = settledHeap() - warmHeap;
+        assertTrue("Retained heap grew by " + growth + " bytes over " + BUILDS + " builds", growth < MAX_HEAP_GROWTH_BYTES);
+        awaitThreadCount(AsyncLineWriter.THREAD_NAME, baselineWriters);
+    }
+
+    @Test
+    public void testUnclosedProbeRefreshTimerDoesNotPinProbe() throws InterruptedException {
+        TerminalProbe probe = new TerminalProbe(name -> "TERM".equals(name) ? "xterm" : null, () -> 0, true);
+        probe.startRefresh(1);
+        List<WeakReference<Object>> refs = new ArrayList<>();
+        refs.add(new WeakReference<>(probe));
+        probe = null;
+
+        awaitCollected(refs);
+    }
+
+    private void runBuild(int build, boolean closeService, List<WeakReference<Object>> buildState) {
+        // Gradle drops its task-completion subscription when a build finishes, which ProjectBuilder never
+        // signals, so the service is created directly and the build is driven the way Gradle drives it
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setAsyncOutput(true);
+        GradlDromusBuildService service = new GradlDromusBuildService() {
+            @Override
+            public Params getParameters() {
+                return parameters;
+            }
+        };
+
+        CustomTestListener listener = service.testTaskStarting(":test", extension);
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor classSuite = StubTestDescriptor.classSuite("com.example.Build" + build + "Test", root);
+        listener.setCurrentTaskPath(":test");
+        listener.beforeSuite(root);
+        for (int i = 0; i < TESTS_PER_BUILD; i++) {
+            TestDescriptor test = StubTestDescriptor.test(classSuite.getClassName(), "test" + i, classSuite);
+            listener.beforeTest(test);
+            listener.afterTest(test, StubTestResult.success(DURATION));
+        }
+        listener.afterSuite(root, StubTestResult.success(DURATION));
+        if (closeService) {
+            service.close();
+        }
+
+        buildState.add(new WeakReference<>(service));
+        buildState.add(new WeakReference<>(listener));
+        buildState.add(new WeakReference<>(listener.getPrinter()));
+        buildState.add(new WeakReference<>(extension));
+    }
+
+    private static void awaitCollected(List<WeakReference<Object>> refs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + GC_TIMEOUT_MILLIS;
+        while (true) {
+            System.gc();
+            Object survivor = null;
+            for (WeakReference<Object> ref : refs) {
+                survivor = survivor != null ? survivor : ref.get();
+            }
+            if (survivor == null) {
+                return;
+            }
+            assertTrue("Still reachable after the build: " + survivor.getClass().getName(), System.currentTimeMillis() < deadline);
+            survivor = null;
+            Thread.sleep(GC_PAUSE_MILLIS);
+        }
+    }
+
+    private static void awaitThreadCount(String name, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + GC_TIMEOUT_MILLIS;
+        while (countThreads(name) > expected) {
+            assertTrue("Leftover " + name + " threads: " + countThreads(name), System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(GC_PAUSE_MILLIS);
+        }
+    }
+
+    private static int countThreads(String name) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName()) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long settledHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < WARMUP_BUILDS; i++) {
+            System.gc();
+            Thread.sleep(GC_PAUSE_MILLIS);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
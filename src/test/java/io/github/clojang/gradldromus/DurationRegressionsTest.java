@@ -0,0 +1,108 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+public class DurationRegressionsTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final long USUAL = 100;
+    private static final long SLOW = 450;
+    private static final long SLIGHTLY_SLOW = 150;
+    private static final long TINY = 5;
+    private static final long MUCH_SLOWER = 1000;
+    private static final int BASELINE_RUNS = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TestHistoryEntry history(long durationMillis, int runs) {
+        TestHistoryEntry entry = TestHistoryEntry.empty(TASK, CLASS, "bar");
+        for (int i = 0; i < runs; i++) {
+            entry = entry.update(TestResult.ResultType.SUCCESS, durationMillis, i);
+        }
+        return entry;
+    }
+
+    @Test
+    public void testFlagsRunsAboveThreshold() {
+        DurationRegressions regressions = new DurationRegressions(DurationRegressions.DEFAULT_THRESHOLD,
+            GradlDromusExtension.REGRESSION_BASELINE_MEDIAN);
+
+        DurationRegressions.Regression regression = regressions.check(CLASS, "bar", history(USUAL, BASELINE_RUNS), SLOW);
+        assertNotNull(regression);
+        assertTrue(regression.describe().endsWith("x median"));
+        assertNull("Within threshold", regressions.check(CLASS, "bar", history(USUAL, BASELINE_RUNS), SLIGHTLY_SLOW));
+        assertEquals(1, regressions.count());
+        assertEquals(1, regressions.regressions().size());
+    }
+
+    @Test
+    public void testKeepsLargestSlowdownsArrivingLate() {
+        DurationRegressions regressions = new DurationRegressions(DurationRegressions.DEFAULT_THRESHOLD,
+            GradlDromusExtension.REGRESSION_BASELINE_MEDIAN);
+        TestHistoryEntry usual = history(USUAL, BASELINE_RUNS);
+        for (int i = 0; i < DurationRegressions.MAX_LISTED; i++) {
+            regressions.check(CLASS, "slow" + i, usual, SLOW);
+        }
+        regressions.check(CLASS, "muchSlower", usual, MUCH_SLOWER);
+
+        assertEquals(DurationRegressions.MAX_LISTED + 1, regressions.count());
+        assertEquals(DurationRegressions.MAX_LISTED, regressions.regressions().size());
+        assertEquals("The worst slowdown is listed first", "muchSlower", regressions.regressions().get(0).getTestName());
+    }
+
+    @Test
+    public void testIgnoresNoisyCases() {
+        DurationRegressions regressions = new DurationRegressions(DurationRegressions.DEFAULT_THRESHOLD,
+            GradlDromusExtension.REGRESSION_BASELINE_P95);
+
+        assertNull("No history", regressions.check(CLASS, "bar", null, SLOW));
+        assertNull("Too little history", regressions.check(CLASS, "bar", history(USUAL, 1), SLOW));
+        assertNull("Too fast to matter", regressions.check(CLASS, "bar", history(1, BASELINE_RUNS), TINY));
+        assertNull("Disabled", new DurationRegressions(0, GradlDromusExtension.REGRESSION_BASELINE_P95)
+            .check(CLASS, "bar", history(USUAL, BASELINE_RUNS), SLOW));
+        assertEquals(0, regressions.count());
+    }
+
+    @Test
+    public void testListenerMarksSlowTests() {
+        TestHistoryStore store = TestHistoryStore.open(folder.getRoot().toPath().resolve(TestHistoryStore.RELATIVE_PATH),
+            TestHistoryStore.DEFAULT_MAX_ENTRIES);
+        for (int i = 0; i < BASELINE_RUNS; i++) {
+            store.record(TASK, CLASS, "bar", TestResult.ResultType.SUCCESS, USUAL);
+            store.record(TASK, CLASS, "baz", TestResult.ResultType.SUCCESS, USUAL);
+        }
+
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setUseColors(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        listener.attachHistory(TASK, store);
+        listener.setCurrentTaskPath(TASK);
+        listener.afterTest(StubTestDescriptor.test(CLASS, "bar", null), StubTestResult.success(SLOW));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "baz", null), StubTestResult.success(USUAL));
+        listener.printFinalSummary();
+        store.close();
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        String barLine = output.lines().filter(line -> line.contains("FooTest.bar ")).findFirst().orElse("");
+        assertTrue(barLine, barLine.contains("(" + SLOW + "ms)") && barLine.contains("x median"));
+        String bazLine = output.lines().filter(line -> line.contains("FooTest.baz ")).findFirst().orElse("");
+        assertFalse(bazLine, bazLine.contains("median"));
+        assertTrue(output, output.contains("Slower than usual:"));
+        assertTrue(output, output.contains("usually " + USUAL));
+    }
+}
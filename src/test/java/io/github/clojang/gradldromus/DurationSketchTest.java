@@ -0,0 +1,57 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DurationSketchTest {
+    private static final int RUNS = 200;
+    private static final long FAST = 100;
+    private static final long SLOW = 1000;
+    private static final int SLOW_EVERY = 10;
+    private static final double RELATIVE_ERROR = 0.1;
+    private static final double P95 = 0.95;
+    private static final double MEDIAN = 0.5;
+    private static final int MAX_BUCKETS = 40;
+
+    @Test
+    public void testEmptySketch() {
+        assertEquals(0, DurationSketch.EMPTY.quantile(MEDIAN), 0);
+        assertEquals(0, DurationSketch.EMPTY.totalWeight(), 0);
+    }
+
+    @Test
+    public void testQuantilesOfStableTest() {
+        DurationSketch sketch = DurationSketch.EMPTY;
+        for (int i = 0; i < RUNS; i++) {
+            sketch = sketch.add(FAST);
+        }
+        assertEquals(FAST, sketch.quantile(MEDIAN), FAST * RELATIVE_ERROR);
+        assertEquals(FAST, sketch.quantile(P95), FAST * RELATIVE_ERROR);
+        assertTrue("A stable test needs a single bucket", sketch.getBuckets().length <= 2);
+    }
+
+    @Test
+    public void testMedianIgnoresOccasionalSlowRuns() {
+        DurationSketch sketch = DurationSketch.EMPTY;
+        for (int i = 1; i <= RUNS; i++) {
+            sketch = sketch.add(i % SLOW_EVERY == 0 ? SLOW : FAST);
+        }
+        assertEquals(FAST, sketch.quantile(MEDIAN), FAST * RELATIVE_ERROR);
+        assertEquals(SLOW, sketch.quantile(P95), SLOW * RELATIVE_ERROR);
+    }
+
+    @Test
+    public void testForgetsOldRunsAndStaysSmall() {
+        DurationSketch sketch = DurationSketch.EMPTY;
+        for (int i = 0; i < RUNS; i++) {
+            sketch = sketch.add(i);
+        }
+        for (int i = 0; i < RUNS; i++) {
+            sketch = sketch.add(SLOW);
+        }
+        assertEquals("Old runs decay away", SLOW, sketch.quantile(MEDIAN), SLOW * RELATIVE_ERROR);
+        assertTrue("Decayed buckets are dropped", sketch.getBuckets().length < MAX_BUCKETS);
+        assertEquals(1 / (1 - DurationSketch.DECAY), sketch.totalWeight(), 1);
+    }
+}
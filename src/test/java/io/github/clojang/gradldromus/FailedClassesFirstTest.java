@@ -0,0 +1,144 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.jupiter.api.ClassDescriptor;
+import org.junit.jupiter.api.ClassOrdererContext;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class FailedClassesFirstTest {
+    private static final String TASK = ":test";
+    private static final long EARLIER = 1000;
+    private static final long LATER = 2000;
+    private static final int FLAKY_RUNS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TestHistoryEntry run(String className, long nowMillis, TestResult.ResultType... outcomes) {
+        TestHistoryEntry entry = TestHistoryEntry.empty(TASK, className, "test");
+        for (TestResult.ResultType outcome : outcomes) {
+            entry = entry.update(outcome, 1, nowMillis);
+        }
+        return entry;
+    }
+
+    @Test
+    public void testOrdersFailingThenFlakyClasses() {
+        TestResult.ResultType pass = TestResult.ResultType.SUCCESS;
+        TestResult.ResultType fail = TestResult.ResultType.FAILURE;
+        List<TestHistoryEntry> entries = Arrays.asList(
+            run("com.example.StableTest", LATER, pass, pass),
+            run("com.example.OldFailureTest", EARLIER, pass, fail),
+            run("com.example.NewFailureTest$Inner", LATER, fail),
+            run("com.example.FlakyTest", LATER, fail, pass),
+            run("com.example.RareFlakeTest", LATER, fail, pass, pass, pass),
+            TestHistoryEntry.empty(":other:test", "com.example.OtherTest", "test").update(fail, 1, LATER));
+
+        assertEquals(Arrays.asList("com.example.NewFailureTest$Inner", "com.example.OldFailureTest",
+            "com.example.FlakyTest", "com.example.RareFlakeTest"), FailedClassesFirst.order(entries, TASK));
+    }
+
+    @Test
+    public void testOrdererRunsListedClassesFirst() throws IOException {
+        Path orderFile = folder.getRoot().toPath().resolve("order.txt");
+        FailedClassesFirst.write(orderFile, Arrays.asList(Third.Nested.class.getName(), First.class.getName()));
+
+        List<ClassDescriptor> classes = new ArrayList<>(Arrays.asList(
+            descriptor(First.class), descriptor(Second.class), descriptor(Third.Nested.class), descriptor(Third.class)));
+        new FailedClassesFirstOrderer().orderClasses(context(classes,
+            Collections.singletonMap(FailedClassesFirstOrderer.ORDER_FILE_PARAMETER, orderFile.toString())));
+
+        // Third's rank comes from its nested class; Second is not listed and keeps its place after them
+        assertEquals(Arrays.asList(Third.Nested.class, Third.class, First.class, Second.class), testClasses(classes));
+    }
+
+    @Test
+    public void testOrdererKeepsOrderWithoutFile() {
+        List<ClassDescriptor> classes = new ArrayList<>(Arrays.asList(descriptor(Second.class), descriptor(First.class)));
+        new FailedClassesFirstOrderer().orderClasses(context(classes,
+            Collections.singletonMap(FailedClassesFirstOrderer.ORDER_FILE_PARAMETER, folder.getRoot() + "/missing.txt")));
+        new FailedClassesFirstOrderer().orderClasses(context(classes, Collections.emptyMap()));
+
+        assertEquals(Arrays.asList(Second.class, First.class), testClasses(classes));
+    }
+
+    @Test
+    public void testFindsClassOrdererSelectedByTheProject() throws IOException {
+        File classes = folder.newFolder("classes");
+        List<File> classpath = Arrays.asList(new File(folder.getRoot(), "library.jar"), classes);
+        Map<String, Object> noProperties = Collections.emptyMap();
+        assertNull(FailedClassesFirst.configuredClassOrderer(noProperties, classpath));
+
+        Path properties = classes.toPath().resolve(FailedClassesFirst.PLATFORM_PROPERTIES);
+        Files.write(properties, Collections.singletonList("junit.jupiter.execution.parallel.enabled=true"));
+        assertNull(FailedClassesFirst.configuredClassOrderer(noProperties, classpath));
+
+        Files.write(properties, Collections.singletonList(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER
+            + "=org.junit.jupiter.api.ClassOrderer$ClassName"), StandardOpenOption.APPEND);
+        assertEquals(properties.toString(), FailedClassesFirst.configuredClassOrderer(noProperties, classpath));
+        assertNotNull(FailedClassesFirst.configuredClassOrderer(
+            Collections.singletonMap(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER, "com.example.Orderer"),
+            Collections.emptyList()));
+    }
+
+    private static List<Class<?>> testClasses(List<ClassDescriptor> classes) {
+        List<Class<?>> testClasses = new ArrayList<>();
+        for (ClassDescriptor descriptor : classes) {
+            testClasses.add(descriptor.getTestClass());
+        }
+        return testClasses;
+    }
+
+    private static ClassDescriptor descriptor(Class<?> testClass) {
+        return (ClassDescriptor) Proxy.newProxyInstance(FailedClassesFirstTest.class.getClassLoader(),
+            new Class<?>[] {ClassDescriptor.class}, (proxy, method, args) -> {
+                if ("getTestClass".equals(method.getName())) {
+                    return testClass;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static ClassOrdererContext context(List<ClassDescriptor> classes, Map<String, String> parameters) {
+        return (ClassOrdererContext) Proxy.newProxyInstance(FailedClassesFirstTest.class.getClassLoader(),
+            new Class<?>[] {ClassOrdererContext.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getClassDescriptors":
+                        return classes;
+                    case "getConfigurationParameter":
+                        return Optional.ofNullable(parameters.get((String) args[0]));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static final class First {
+    }
+
+    private static final class Second {
+    }
+
+    private static final class Third {
+        private static final class Nested {
+        }
+    }
+}
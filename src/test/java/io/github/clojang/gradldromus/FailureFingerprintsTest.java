@@ -0,0 +1,127 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class FailureFingerprintsTest {
+    private static final String CLASS = "com.example.FooTest";
+    private static final int BROKEN_FIXTURE_TESTS = 50;
+    private static final int LINE = 42;
+    private static final int OTHER_LINE = 43;
+    private static final int FINGERPRINT_DIGITS = 8;
+    private static final int SAME_FAILURES = 3;
+
+    private static IllegalStateException failure(String message, int line) {
+        IllegalStateException exception = new IllegalStateException(message);
+        exception.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("com.example.Database", "start", "Database.java", line),
+            new StackTraceElement(CLASS, "setUp", "FooTest.java", 1)
+        });
+        return exception;
+    }
+
+    @Test
+    public void testFingerprintIgnoresMessageButNotFrames() {
+        long fingerprint = FailureFingerprints.fingerprint(failure("port 5432", LINE));
+
+        assertEquals(fingerprint, FailureFingerprints.fingerprint(failure("port 5433", LINE)));
+        assertNotEquals(fingerprint, FailureFingerprints.fingerprint(failure("port 5432", OTHER_LINE)));
+        assertNotEquals(fingerprint, FailureFingerprints.fingerprint(new IllegalArgumentException("port 5432")));
+        assertEquals(FailureFingerprints.format(fingerprint), FailureFingerprints.format(fingerprint).toLowerCase());
+        assertEquals(FINGERPRINT_DIGITS, FailureFingerprints.format(fingerprint).length());
+    }
+
+    private static AssertionError assertEqualsFailure(String testMethod, int line) {
+        AssertionError failure = new AssertionError("expected: <1> but was: <2>");
+        failure.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("org.junit.jupiter.api.AssertionFailureBuilder", "build", "AssertionFailureBuilder.java", 1),
+            new StackTraceElement("org.junit.jupiter.api.AssertionFailureBuilder", "buildAndThrow", "AssertionFailureBuilder.java", 2),
+            new StackTraceElement("org.junit.jupiter.api.AssertEquals", "failNotEqual", "AssertEquals.java", 1),
+            new StackTraceElement("org.junit.jupiter.api.AssertEquals", "assertEquals", "AssertEquals.java", 2),
+            new StackTraceElement("org.junit.jupiter.api.AssertEquals", "assertEquals", "AssertEquals.java", LINE),
+            new StackTraceElement("org.junit.jupiter.api.Assertions", "assertEquals", "Assertions.java", 1),
+            new StackTraceElement(CLASS, testMethod, "FooTest.java", line),
+            new StackTraceElement("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke", null, -1)
+        });
+        return failure;
+    }
+
+    @Test
+    public void testFingerprintSkipsAssertionLibraryFrames() {
+        long first = FailureFingerprints.fingerprint(assertEqualsFailure("addsNumbers", LINE));
+        assertNotEquals(first, FailureFingerprints.fingerprint(assertEqualsFailure("parsesDates", OTHER_LINE)));
+        assertEquals(first, FailureFingerprints.fingerprint(assertEqualsFailure("addsNumbers", LINE)));
+
+        // A stack of framework frames only still has a fingerprint
+        AssertionError inside = new AssertionError();
+        inside.setStackTrace(new StackTraceElement[] {new StackTraceElement("org.junit.Assert", "fail", "Assert.java", LINE)});
+        AssertionError elsewhere = new AssertionError();
+        elsewhere.setStackTrace(new StackTraceElement[] {new StackTraceElement("org.junit.Assert", "fail", "Assert.java", OTHER_LINE)});
+        assertNotEquals(FailureFingerprints.fingerprint(inside), FailureFingerprints.fingerprint(elsewhere));
+    }
+
+    @Test
+    public void testRecordReturnsTheFirstFailure() {
+        FailureFingerprints fingerprints = new FailureFingerprints();
+        assertNull(fingerprints.record(failure("down", LINE), CLASS, "first"));
+        FailureFingerprints.Group group = fingerprints.record(failure("down", LINE), CLASS, "second");
+        assertEquals("first", group.getTestName());
+        assertSame(group, fingerprints.record(failure("still down", LINE), CLASS, "third"));
+        assertNull(fingerprints.record(failure("other", OTHER_LINE), CLASS, "fourth"));
+
+        List<FailureFingerprints.Group> repeated = fingerprints.repeated();
+        assertEquals(1, repeated.size());
+        assertEquals(SAME_FAILURES, repeated.get(0).getCount());
+    }
+
+    @Test
+    public void testListenerRendersRepeatsAsReferences() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setUseColors(false);
+        extension.setShowStackTraces(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        for (int i = 0; i < BROKEN_FIXTURE_TESTS; i++) {
+            listener.afterTest(StubTestDescriptor.test(CLASS, "test" + i, null),
+                StubTestResult.failure(1, failure("Container failed to start", LINE)));
+        }
+        listener.printFinalSummary();
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        long stackLines = output.lines().filter(line -> line.contains("at com.example.Database.start")).count();
+        assertEquals("The stack is rendered once", 1, stackLines);
+        String fingerprint = FailureFingerprints.format(FailureFingerprints.fingerprint(failure("", LINE)));
+        assertTrue(output, output.contains("→ Container failed to start (same failure as FooTest.test0, fingerprint "
+            + fingerprint + ")"));
+        assertTrue(output, output.contains("Repeated failures:" + System.lineSeparator() + "    " + BROKEN_FIXTURE_TESTS
+            + " tests failed with fingerprint " + fingerprint + ": java.lang.IllegalStateException: Container failed to start"
+            + " (first FooTest.test0)"));
+    }
+
+    @Test
+    public void testGroupingCanBeDisabled() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setGroupRepeatedFailures(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "a", null), StubTestResult.failure(1, failure("down", LINE)));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "b", null), StubTestResult.failure(1, failure("down", LINE)));
+        listener.printFinalSummary();
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        assertFalse(output, output.contains("same failure as"));
+        assertFalse(output, output.contains("Repeated failures:"));
+    }
+}
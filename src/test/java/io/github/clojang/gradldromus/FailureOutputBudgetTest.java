@@ -0,0 +1,85 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FailureOutputBudgetTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final String OTHER_TASK = ":other:test";
+    private static final long TASK_LIMIT = 100;
+    private static final long BUILD_LIMIT = 150;
+    private static final long CHUNK = 60;
+    private static final long SMALL = 10;
+    private static final int FAILURES = 20;
+    private static final long ONE_FAILURE = 250;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTaskBudgetDivertsEveryLaterFailure() {
+        FailureOutputBudget budget = new FailureOutputBudget(TASK_LIMIT, 0);
+        assertTrue(budget.spend(TASK, CHUNK));
+        assertFalse(budget.spend(TASK, CHUNK));
+        assertFalse("Once over budget, small failures are diverted too", budget.spend(TASK, SMALL));
+        assertTrue(budget.spend(OTHER_TASK, CHUNK));
+        assertEquals(2, budget.getDivertedFailures());
+        assertEquals(CHUNK + SMALL, budget.getDivertedChars());
+    }
+
+    @Test
+    public void testBuildBudgetCoversAllTasks() {
+        FailureOutputBudget budget = new FailureOutputBudget(TASK_LIMIT, BUILD_LIMIT);
+        assertTrue(budget.spend(TASK, CHUNK));
+        assertTrue(budget.spend(OTHER_TASK, CHUNK));
+        assertFalse(budget.spend(null, CHUNK));
+        assertTrue(new FailureOutputBudget(0, 0).spend(TASK, Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void testListenerDivertsDetailsToTheTaskFile() throws IOException {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setShowStackTraces(true);
+        extension.setGroupRepeatedFailures(false);
+        extension.setFailureOutputLimitChars(ONE_FAILURE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        Path file = FailureOverflowFile.pathFor(folder.getRoot().toPath(), TASK);
+        listener.attachFailureOverflowFile(TASK, file);
+        for (int i = 0; i < FAILURES; i++) {
+            IllegalStateException failure = new IllegalStateException("broken " + i + "\nsecond line");
+            failure.setStackTrace(new StackTraceElement[] {new StackTraceElement(CLASS, "test" + i, "FooTest.java", 1)});
+            listener.afterTest(TASK, StubTestDescriptor.test(CLASS, "test" + i, null), StubTestResult.failure(1, failure));
+        }
+        listener.printFinalSummary();
+        listener.close();
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        assertEquals("Only the first failure is printed in full", 1,
+            output.lines().filter(line -> line.contains("at com.example.FooTest")).count());
+        assertTrue(output, output.contains("further details are in " + file));
+        String plain = AnsiColors.stripAnsi(output);
+        assertTrue(plain, plain.contains("→ broken 5" + System.lineSeparator()));
+        assertTrue(plain, plain.contains("Failure output over budget: " + (FAILURES - 1) + " failures"));
+        assertTrue(plain, plain.contains((FAILURES - 1) + " failures in " + file));
+
+        String details = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(details, details.startsWith("FooTest.test1" + System.lineSeparator() + "    → broken 1"));
+        assertTrue(details, details.contains("second line"));
+        assertTrue(details, details.contains("java.lang.IllegalStateException: broken " + (FAILURES - 1)));
+        assertFalse("Colors are stripped", details.contains("\u001B["));
+    }
+}
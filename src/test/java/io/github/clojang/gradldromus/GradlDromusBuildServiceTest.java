@@ -0,0 +1,112 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+
+public class GradlDromusBuildServiceTest {
+    private static final long DURATION = 5;
+
+    private final PrintStream originalOut = System.out;
+    private ByteArrayOutputStream bytes;
+    private Project project;
+    private GradlDromusExtension extension;
+
+    @Before
+    public void setUp() {
+        bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        project = ProjectBuilder.builder().build();
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        extension = project.getExtensions().getByType(GradlDromusExtension.class);
+        extension.setUseColors(false);
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private GradlDromusBuildService service() {
+        Object service = project.getGradle().getSharedServices().getRegistrations()
+            .getByName(GradlDromusBuildService.NAME).getService().get();
+        return (GradlDromusBuildService) service;
+    }
+
+    @Test
+    public void testServiceIsRegisteredOncePerBuild() {
+        Project child = ProjectBuilder.builder().withParent(project).withName("child").build();
+        child.getPluginManager().apply("io.github.clojang.gradldromus");
+
+        assertNotNull("Service should be registered", service());
+        assertEquals("Subprojects should share the service", 1,
+            project.getGradle().getSharedServices().getRegistrations().size());
+        assertEquals("The service should know the build's console setting",
+            project.getGradle().getStartParameter().getConsoleOutput(), service().getParameters().getConsoleOutput().get());
+    }
+
+    @Test
+    public void testGreetsOnceAndSharesListenerBetweenTasks() {
+        GradlDromusBuildService service = service();
+        CustomTestListener first = service.testTaskStarting(":a:test", extension);
+        CustomTestListener second = service.testTaskStarting(":b:test", extension);
+
+        assertSame("All test tasks should report to one listener", first, second);
+        String output = bytes.toString();
+        assertEquals("Greeting should be printed once", output.indexOf("Running tests with"), output.lastIndexOf("Running tests with"));
+        service.close();
+    }
+
+    @Test
+    public void testClosePrintsSummaryOnlyWhenTestsRan() {
+        GradlDromusBuildService service = service();
+        service.testTaskStarting(":test", extension);
+        service.close();
+        assertFalse("No summary without tests", bytes.toString().contains("Test Summary:"));
+
+        CustomTestListener listener = service.testTaskStarting(":test", extension);
+        listener.afterTest(StubTestDescriptor.test("com.example.FooTest", "bar", null), StubTestResult.success(DURATION));
+        service.close();
+        assertTrue("Summary expected after tests ran", bytes.toString().contains("Test Summary:"));
+    }
+
+    @Test
+    public void testPrintsFooterOnlyForStartedTestTasks() {
+        GradlDromusBuildService service = service();
+        service.onFinish(taskFinished(":compileJava"));
+        assertEquals("Nothing printed before a test task starts", "", bytes.toString());
+
+        service.testTaskStarting(":test", extension);
+        int afterGreeting = bytes.size();
+        service.onFinish(taskFinished(":test"));
+        int afterFooter = bytes.size();
+        service.onFinish(taskFinished(":test"));
+
+        assertTrue("Footer expected when the test task finishes", afterFooter > afterGreeting);
+        assertEquals("Footer should be printed once", afterFooter, bytes.size());
+        service.close();
+    }
+
+    private static TaskFinishEvent taskFinished(String taskPath) {
+        TaskOperationDescriptor descriptor = (TaskOperationDescriptor) Proxy.newProxyInstance(
+            GradlDromusBuildServiceTest.class.getClassLoader(), new Class<?>[] {TaskOperationDescriptor.class},
+            (proxy, method, args) -> "getTaskPath".equals(method.getName()) ? taskPath : null);
+        return (TaskFinishEvent) Proxy.newProxyInstance(
+            GradlDromusBuildServiceTest.class.getClassLoader(), new Class<?>[] {TaskFinishEvent.class},
+            (proxy, method, args) -> "getDescriptor".equals(method.getName()) ? descriptor : null);
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.clojang.gradldromus;
 
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
+import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.process.CommandLineArgumentProvider;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Before;
 import org.junit.After;
@@ -9,7 +12,10 @@ import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GradlDromusPluginTest {
     public static final int SHORT_STACK = 5;
@@ -120,4 +126,100 @@ public class GradlDromusPluginTest {
         assert !testTask.getTestLogging().getShowStandardStreams() : "ShowStandardStreams should be false";
         assert !testTask.getTestLogging().getShowExceptions() : "ShowExceptions should be false";
     }
-}
\ No newline at end of file
+    
+    @org.junit.Test
+    public void testShardReportTask() {
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        
+        ShardReportTask report = (ShardReportTask) project.getTasks().getByName(ShardReportTask.NAME);
+        assert report.getTestTasks().get().containsKey(":test") : "Report should cover the test task";
+        
+        // No history yet; the plan is still printed
+        report.setShards("4");
+        report.report();
+        
+        ShardDurationsTask durations = (ShardDurationsTask) project.getTasks().getByName(ShardDurationsTask.NAME);
+        assert durations.getTestTasks().get().contains(":test") : "Durations should cover the test task";
+    }
+    
+    @org.junit.Test
+    public void testEventReportTask() {
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        
+        EventLogReportTask report = (EventLogReportTask) project.getTasks().getByName(EventLogReportTask.NAME);
+        assert !report.getEventLogs().isEmpty() : "Report should read the project's event log";
+        
+        // No log yet; a hint is printed instead
+        report.report();
+    }
+    
+    @org.junit.Test
+    public void testFailedClassesFirstConfiguresOrderer() {
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        project.getExtensions().getByType(GradlDromusExtension.class).setFailedClassesFirst(true);
+        
+        Test testTask = (Test) project.getTasks().getByName("test");
+        assert !testTask.getSystemProperties().containsKey(FailedClassesFirstOrderer.DEFAULT_ORDER_PARAMETER)
+            : "The orderer should be selected when the task runs, unless the project selects its own";
+        assert jvmArguments(testTask).stream().anyMatch(argument ->
+            argument.startsWith("-D" + FailedClassesFirstOrderer.ORDER_FILE_PARAMETER + "=")) : "Order file should be passed to the test JVM";
+    }
+    
+    @org.junit.Test
+    public void testSettingsApplyToTasksRealizedEarlier() throws Exception {
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        Test testTask = (Test) project.getTasks().getByName("test");
+        int actions = testTask.getActions().size();
+        assert jvmArguments(testTask).isEmpty() : "Nothing should be passed while failedClassesFirst is off";
+        
+        // The gradldromus block runs after the task was realized, e.g. by another plugin
+        GradlDromusExtension extension = project.getExtensions().getByType(GradlDromusExtension.class);
+        extension.setFailedClassesFirst(true);
+        extension.suppressGradleOutput = true;
+        ((ProjectInternal) project).evaluate();
+        
+        File pluginClasses = new File(FailedClassesFirstOrderer.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assert testTask.getClasspath().getFiles().contains(pluginClasses) : "The orderer should be on the test classpath";
+        assert !jvmArguments(testTask).isEmpty() : "Order file should be passed to the test JVM";
+        assert testTask.getActions().size() == actions + 2 : "The log level should be lowered and restored";
+    }
+    
+    private static List<String> jvmArguments(Test testTask) {
+        List<String> arguments = new ArrayList<>();
+        for (CommandLineArgumentProvider provider : testTask.getJvmArgumentProviders()) {
+            provider.asArguments().forEach(arguments::add);
+        }
+        return arguments;
+    }
+    
+    @org.junit.Test
+    public void testJunitXmlReportPolicy() {
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply("io.github.clojang.gradldromus");
+        GradlDromusExtension extension = project.getExtensions().getByType(GradlDromusExtension.class);
+        Test testTask = (Test) project.getTasks().getByName("test");
+        
+        assert testTask.getReports().getJunitXml().getRequired().get() : "Reports should be written by default";
+        extension.setJunitXmlReports(GradlDromusExtension.JUNIT_XML_REPORTS_NEVER);
+        assert !testTask.getReports().getJunitXml().getRequired().get() : "Reports should be skipped";
+        
+        extension.setJunitXmlReports(GradlDromusExtension.JUNIT_XML_REPORTS_CI);
+        assert extension.isJunitXmlRequired(true) && !extension.isJunitXmlRequired(false) : "Reports should follow CI";
+        
+        // Locally, auto relies on the test history unless it is off
+        extension.setJunitXmlReports(GradlDromusExtension.JUNIT_XML_REPORTS_AUTO);
+        assert extension.isJunitXmlRequired(true) && !extension.isJunitXmlRequired(false) : "History should replace reports";
+        extension.setRecordTestHistory(false);
+        assert extension.isJunitXmlRequired(false) : "Reports should be written without history";
+    }
+    
+    @org.junit.Test(expected = InvalidUserDataException.class)
+    public void testInvalidJunitXmlReportPolicy() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setJunitXmlReports("sometimes");
+        extension.isJunitXmlRequired(false);
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class NdjsonEventSinkTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final long DURATION = 25;
+    private static final int MANY_TESTS = 5000;
+    private static final int SUITE_EVENTS = 4;
+    private static final int LISTENER_EVENTS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path eventFile() {
+        return folder.getRoot().toPath().resolve(NdjsonEventSink.RELATIVE_PATH);
+    }
+
+    @Test
+    public void testWritesOneObjectPerEvent() throws IOException {
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, root);
+        try (NdjsonEventSink sink = NdjsonEventSink.open(eventFile())) {
+            sink.suiteStarted(TASK, suite);
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "bar", suite), StubTestResult.success(DURATION));
+            sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "baz", suite),
+                StubTestResult.failure(DURATION, new AssertionError("expected \"a\"\n\tbut was \\b\u0001")));
+            sink.suiteFinished(TASK, suite, StubTestResult.success(DURATION));
+        }
+
+        List<String> lines = Files.readAllLines(eventFile(), StandardCharsets.UTF_8);
+        assertEquals(SUITE_EVENTS, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith("{\"event\":\"suiteStarted\",\"task\":\":test\","));
+        assertTrue(lines.get(1), lines.get(1).contains("\"name\":\"bar\",\"result\":\"SUCCESS\""));
+        assertTrue(lines.get(1), lines.get(1).contains("\"durationMillis\":" + DURATION));
+        assertTrue(lines.get(2), lines.get(2).contains(
+            "\"exceptions\":[{\"type\":\"java.lang.AssertionError\",\"message\":\"expected \\\"a\\\"\\n\\tbut was \\\\b\\u0001\"}]"));
+        assertTrue(lines.get(3), lines.get(3).startsWith("{\"event\":\"suiteFinished\""));
+    }
+
+    @Test
+    public void testEventsAreReadableWhileRunning() throws IOException {
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, StubTestDescriptor.rootSuite());
+        try (NdjsonEventSink sink = NdjsonEventSink.open(eventFile())) {
+            for (int i = 0; i < MANY_TESTS; i++) {
+                sink.testFinished(TASK, StubTestDescriptor.test(CLASS, "test" + i, suite), StubTestResult.success(DURATION));
+            }
+            sink.suiteFinished(TASK, suite, StubTestResult.success(DURATION));
+
+            // Written through the buffer as it filled up and when the class finished
+            assertEquals(MANY_TESTS + 1, Files.readAllLines(eventFile(), StandardCharsets.UTF_8).size());
+        }
+    }
+
+    @Test
+    public void testListenerSendsEventsToAttachedSinks() throws IOException {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(OutputStream.nullOutputStream()));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, root);
+        try (NdjsonEventSink sink = NdjsonEventSink.open(eventFile())) {
+            listener.attachEventSink(TASK, sink);
+            listener.setCurrentTaskPath(TASK);
+            listener.beforeSuite(root);
+            listener.beforeSuite(suite);
+            listener.afterTest(StubTestDescriptor.test(CLASS, "bar", suite), StubTestResult.success(DURATION));
+            listener.afterSuite(suite, StubTestResult.success(DURATION));
+            listener.afterSuite(root, StubTestResult.success(DURATION));
+        } finally {
+            listener.close();
+        }
+
+        List<String> lines = Files.readAllLines(eventFile(), StandardCharsets.UTF_8);
+        assertEquals(LISTENER_EVENTS, lines.size());
+        assertTrue(lines.get(2), lines.get(2).startsWith("{\"event\":\"testFinished\""));
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProgressLineTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final long DURATION = 25;
+    private static final int EXPECTED_TESTS = 10;
+    private static final long FIVE_SECONDS = 5000;
+    private static final long TWO_MINUTES = 120_000;
+
+    private static ProgressLine progressLine(GradlDromusExtension extension) {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        return new ProgressLine(extension, new CleanTerminalPrinter(extension), out, new AnsiColors(false));
+    }
+
+    private static List<TestHistoryEntry> history(int tests) {
+        List<TestHistoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < tests; i++) {
+            entries.add(TestHistoryEntry.empty(TASK, CLASS, "test" + i).update(TestResult.ResultType.SUCCESS, DURATION, 0));
+        }
+        entries.add(TestHistoryEntry.empty(":other:test", CLASS, "test0").update(TestResult.ResultType.SUCCESS, DURATION, 0));
+        return entries;
+    }
+
+    @Test
+    public void testRendersCountsRateAndEta() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        ProgressLine progress = progressLine(extension);
+        progress.expect(history(EXPECTED_TESTS), TASK);
+        for (int i = 0; i < EXPECTED_TESTS / 2; i++) {
+            progress.testFinished(i == 0 ? TestResult.ResultType.FAILURE : TestResult.ResultType.SUCCESS);
+        }
+
+        assertEquals("    5/10 tests  💚 4  💔 1  💤 0  1 tests/s  ETA 5s", progress.render(FIVE_SECONDS));
+    }
+
+    @Test
+    public void testOmitsTotalWithoutHistory() {
+        ProgressLine progress = progressLine(new GradlDromusExtension());
+        progress.testFinished(TestResult.ResultType.SKIPPED);
+
+        String line = progress.render(TWO_MINUTES);
+        assertTrue(line, line.startsWith("    1 tests  "));
+        assertFalse(line, line.contains("ETA"));
+    }
+
+    @Test
+    public void testCompactModePrintsOnlyFailures() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setCompactProgress(true);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor suite = StubTestDescriptor.classSuite(CLASS, root);
+        listener.setCurrentTaskPath(TASK);
+        listener.beforeSuite(root);
+        listener.afterTest(StubTestDescriptor.test(CLASS, "passes", suite), StubTestResult.success(DURATION));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "fails", suite),
+            StubTestResult.failure(DURATION, new AssertionError("expected 1")));
+        listener.afterSuite(root, StubTestResult.success(DURATION));
+        listener.close();
+
+        String output = buffer.toString(StandardCharsets.UTF_8);
+        assertFalse(output, output.contains("passes"));
+        assertTrue(output, output.contains("fails"));
+        assertTrue(output, output.contains("expected 1"));
+    }
+}
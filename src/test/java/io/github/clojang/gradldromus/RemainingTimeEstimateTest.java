@@ -0,0 +1,94 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RemainingTimeEstimateTest {
+    private static final String TASK = ":test";
+    private static final String FAST = "com.example.FastTest";
+    private static final String SLOW = "com.example.SlowTest";
+    private static final long FAST_MILLIS = 1000;
+    private static final long SLOW_MILLIS = 9000;
+    private static final long HALF_SLOW = 4500;
+    private static final long OVERRUN = 20_000;
+    private static final long TWO_FORKS_ELAPSED = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Long> durations() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put(FAST, FAST_MILLIS);
+        durations.put(SLOW, SLOW_MILLIS);
+        return durations;
+    }
+
+    @Test
+    public void testRemainingWorkShrinksWithFinishedTestsAndClasses() {
+        RemainingTimeEstimate estimate = new RemainingTimeEstimate(durations(), 0);
+        assertEquals(FAST_MILLIS + SLOW_MILLIS, estimate.remainingWorkMillis());
+
+        estimate.testFinished(SLOW, HALF_SLOW);
+        assertEquals(FAST_MILLIS + SLOW_MILLIS - HALF_SLOW, estimate.remainingWorkMillis());
+
+        // Running over the recorded time leaves no work, and finishing the class removes the rest
+        estimate.testFinished(SLOW, OVERRUN);
+        assertEquals(FAST_MILLIS, estimate.remainingWorkMillis());
+        estimate.classFinished(SLOW);
+        estimate.classFinished(SLOW);
+        assertEquals(FAST_MILLIS, estimate.remainingWorkMillis());
+
+        estimate.classFinished(FAST);
+        assertEquals(-1, estimate.remainingMillis(1));
+    }
+
+    @Test
+    public void testUsesObservedConcurrency() {
+        RemainingTimeEstimate estimate = new RemainingTimeEstimate(durations(), 0);
+        assertEquals(FAST_MILLIS + SLOW_MILLIS, estimate.remainingMillis(0));
+
+        // A second of test time in half a second of wall time: two forks
+        estimate.testFinished(FAST, FAST_MILLIS);
+        estimate.classFinished(FAST);
+        assertEquals(SLOW_MILLIS / 2, estimate.remainingMillis(TWO_FORKS_ELAPSED));
+    }
+
+    @Test
+    public void testForTaskSumsAverageDurationsPerClass() {
+        List<TestHistoryEntry> entries = Arrays.asList(
+            TestHistoryEntry.empty(TASK, SLOW, "a").update(TestResult.ResultType.SUCCESS, HALF_SLOW, 0),
+            TestHistoryEntry.empty(TASK, SLOW, "b").update(TestResult.ResultType.SUCCESS, HALF_SLOW, 0),
+            TestHistoryEntry.empty(TASK, FAST, "skipped").update(TestResult.ResultType.SKIPPED, 0, 0),
+            TestHistoryEntry.empty(":other:test", FAST, "a").update(TestResult.ResultType.SUCCESS, FAST_MILLIS, 0));
+
+        assertEquals(SLOW_MILLIS, RemainingTimeEstimate.forTask(entries, TASK).remainingWorkMillis());
+    }
+
+    @Test
+    public void testListenerPredictsPendingClasses() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        CustomTestListener listener = new CustomTestListener(extension,
+            new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        assertEquals(-1, listener.estimateRemainingMillis());
+        TestHistoryStore history = TestHistoryStore.open(folder.getRoot().toPath().resolve(TestHistoryStore.RELATIVE_PATH),
+            TestHistoryStore.DEFAULT_MAX_ENTRIES);
+        history.record(TASK, SLOW, "a", TestResult.ResultType.SUCCESS, SLOW_MILLIS);
+        listener.attachHistory(TASK, history);
+
+        // Nothing has run yet, so a single fork is assumed
+        assertEquals(SLOW_MILLIS, listener.estimateRemainingMillis(TASK));
+        listener.close();
+    }
+}
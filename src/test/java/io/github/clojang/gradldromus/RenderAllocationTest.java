@@ -0,0 +1,52 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Guards the reused line buffers of the passing-test render path. What is left per test is the line
+ * {@code String}, stored as UTF-16 because of the pass symbol, and the encoding of it by the stream.
+ */
+public class RenderAllocationTest {
+    /** Measured at 592 bytes per passing test, plus a little headroom */
+    private static final long MAX_BYTES_PER_TEST = 640;
+    private static final int WARMUP_TESTS = 20_000;
+    private static final int MEASURED_TESTS = 20_000;
+    private static final long DURATION = 42;
+
+    @Test
+    public void testPassingTestAllocatesOnlyItsLine() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue("The JVM should count allocated bytes per thread", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_INTERACTIVE);
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(OutputStream.nullOutputStream()));
+        TestDescriptor root = StubTestDescriptor.rootSuite();
+        TestDescriptor classSuite = StubTestDescriptor.classSuite("com.example.service.OrderServiceTest", root);
+        TestDescriptor test = StubTestDescriptor.test(classSuite.getClassName(), "shouldRejectOrdersWithoutLineItems", classSuite);
+        TestResult result = StubTestResult.success(DURATION);
+        listener.beforeSuite(root);
+        for (int i = 0; i < WARMUP_TESTS; i++) {
+            listener.afterTest(test, result);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_TESTS; i++) {
+            listener.afterTest(test, result);
+        }
+        long bytesPerTest = (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_TESTS;
+        listener.close();
+
+        assertTrue("Rendering a passing test allocated " + bytesPerTest + " bytes", bytesPerTest <= MAX_BYTES_PER_TEST);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SlowTestTrackerTest {
+    private static final int LIMIT = 3;
+    private static final int TESTS = 10_000;
+    private static final int THREADS = 4;
+    private static final int CLASSES = 10;
+
+    @Test
+    public void testKeepsOnlyTheSlowestTests() {
+        SlowTestTracker tracker = new SlowTestTracker(LIMIT);
+        for (int i = 0; i < TESTS; i++) {
+            // Durations arrive in no particular order
+            tracker.record("com.example.Test" + (i % CLASSES), "test" + i, (i * 7919L) % TESTS);
+        }
+
+        List<SlowTestTracker.Timing> slowest = tracker.slowestTests();
+        assertEquals(LIMIT, slowest.size());
+        for (int i = 0; i < LIMIT; i++) {
+            assertEquals("Slowest first", TESTS - 1 - i, slowest.get(i).getDurationMillis());
+        }
+    }
+
+    @Test
+    public void testSumsTimePerClass() {
+        SlowTestTracker tracker = new SlowTestTracker(LIMIT);
+        tracker.record("com.example.A", "one", 10);
+        tracker.record("com.example.A", "two", 10);
+        tracker.record("com.example.B", "one", 15);
+        tracker.record("com.example.C", "one", 1);
+        tracker.record("com.example.D", "one", 5);
+
+        List<SlowTestTracker.Timing> classes = tracker.slowestClasses();
+        assertEquals(LIMIT, classes.size());
+        assertEquals("com.example.A", classes.get(0).getClassName());
+        assertEquals(20, classes.get(0).getDurationMillis());
+        assertNull("Class totals have no test name", classes.get(0).getTestName());
+        assertEquals("com.example.B", classes.get(1).getClassName());
+        assertEquals("com.example.D", classes.get(2).getClassName());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        SlowTestTracker tracker = new SlowTestTracker(LIMIT);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = offset; i < TESTS; i += THREADS) {
+                    tracker.record("com.example.Test", "test" + i, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(TESTS - 1, tracker.slowestTests().get(0).getDurationMillis());
+        assertEquals(LIMIT, tracker.slowestTests().size());
+    }
+
+    @Test
+    public void testDisabled() {
+        SlowTestTracker tracker = new SlowTestTracker(0);
+        tracker.record("com.example.A", "one", 10);
+        assertTrue(tracker.slowestTests().isEmpty());
+        assertTrue(tracker.slowestClasses().isEmpty());
+    }
+}
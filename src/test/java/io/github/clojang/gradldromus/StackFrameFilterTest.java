@@ -0,0 +1,109 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class StackFrameFilterTest {
+    private static final String CLASS = "com.example.FooTest";
+    private static final int LINE = 42;
+    private static final int SMALL_CACHE = 2;
+    private static final int FRAMES = 5;
+
+    private static StackFrameFilter defaults() {
+        return new StackFrameFilter(Collections.emptyList(), StackFrameFilter.DEFAULT_EXCLUDES);
+    }
+
+    @Test
+    public void testDefaultsHideFrameworkFrames() {
+        StackFrameFilter filter = defaults();
+        assertTrue(filter.isHidden("org.junit.Assert"));
+        assertTrue(filter.isHidden("org.junit.runners.model.FrameworkMethod$1"));
+        assertTrue(filter.isHidden("jdk.internal.reflect.DirectMethodHandleAccessor"));
+        assertTrue(filter.isHidden("java.lang.reflect.Method"));
+        assertTrue(filter.isHidden("org.gradle.api.internal.tasks.testing.junit.JUnitTestClassExecutor"));
+        assertTrue(filter.isHidden("worker.org.gradle.process.internal.worker.GradleWorkerMain"));
+
+        assertFalse(filter.isHidden(CLASS));
+        assertFalse("Prefixes match whole segments", filter.isHidden("org.junitpioneer.jupiter.RetryingTest"));
+        assertFalse(filter.isHidden("org.gradlex.Plugin"));
+        assertFalse(filter.isHidden("java.lang.String"));
+        assertFalse(filter.isHidden("org"));
+    }
+
+    @Test
+    public void testLongestPrefixWins() {
+        StackFrameFilter filter = new StackFrameFilter(Arrays.asList("org.gradle.testkit", "com.example.Excluded"),
+            Arrays.asList("org.gradle", "org.gradle.testkit.runner.internal", "com.example.Excluded"));
+        assertTrue(filter.isHidden("org.gradle.Main"));
+        assertFalse(filter.isHidden("org.gradle.testkit.runner.GradleRunner"));
+        assertTrue(filter.isHidden("org.gradle.testkit.runner.internal.DefaultGradleRunner"));
+        assertFalse("An include beats an exclude of the same prefix", filter.isHidden("com.example.Excluded"));
+        assertFalse(filter.isHidden("com.example.Excluded$Inner"));
+    }
+
+    @Test
+    public void testDecisionsSurviveEviction() {
+        StackFrameFilter filter = new StackFrameFilter(Collections.emptyList(), Arrays.asList("org.junit"), SMALL_CACHE);
+        for (int i = 0; i < FRAMES; i++) {
+            assertTrue(filter.isHidden("org.junit.Class" + i));
+            assertFalse(filter.isHidden("com.example.Class" + i));
+        }
+    }
+
+    private static String render(GradlDromusExtension extension, Throwable failure) {
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setUseColors(false);
+        extension.setShowStackTraces(true);
+        extension.setGroupRepeatedFailures(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "fails", null), StubTestResult.failure(1, failure));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static AssertionError failure() {
+        AssertionError failure = new AssertionError("expected:<1> but was:<2>");
+        failure.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("org.junit.Assert", "fail", "Assert.java", LINE),
+            new StackTraceElement("org.junit.Assert", "assertEquals", "Assert.java", LINE),
+            new StackTraceElement(CLASS, "fails", "FooTest.java", LINE),
+            new StackTraceElement("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke", null, -1),
+            new StackTraceElement("org.gradle.process.internal.worker.GradleWorkerMain", "main", null, -1)
+        });
+        return failure;
+    }
+
+    @Test
+    public void testListenerSkipsHiddenFramesAndCountsThem() {
+        String output = render(new GradlDromusExtension(), failure());
+        assertTrue(output, output.contains("at com.example.FooTest.fails(FooTest.java:42)"));
+        assertFalse(output, output.contains("at org.junit.Assert"));
+        assertTrue(output, output.contains("... 4 more"));
+    }
+
+    @Test
+    public void testListenerShowsEveryFrameWithoutExcludes() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setStackTraceExcludes(Collections.emptyList());
+        String output = render(extension, failure());
+        assertEquals(output, FRAMES, output.lines().filter(line -> line.trim().startsWith("at ")).count());
+    }
+
+    @Test
+    public void testListenerFallsBackWhenEveryFrameIsHidden() {
+        AssertionError failure = new AssertionError("boom");
+        failure.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("org.junit.Assert", "fail", "Assert.java", LINE)
+        });
+        String output = render(new GradlDromusExtension(), failure);
+        assertTrue(output, output.contains("at org.junit.Assert.fail(Assert.java:42)"));
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.clojang.gradldromus;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class StackTraceRendererTest {
+    private static final String CLASS = "com.example.FooTest";
+    private static final int LINE = 42;
+    private static final int NATIVE = -2;
+
+    private static StackTraceElement frame(String method, int line) {
+        return new StackTraceElement(CLASS, method, "FooTest.java", line);
+    }
+
+    private static Exception chain() {
+        StackTraceElement runner = new StackTraceElement("org.junit.Runner", "run", null, -1);
+        StackTraceElement test = frame("test", LINE);
+        IllegalStateException cause = new IllegalStateException("pool exhausted");
+        cause.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("com.example.Pool", "acquire", "Pool.java", 1),
+            new StackTraceElement("java.lang.Thread", "sleep", null, NATIVE),
+            test, runner
+        });
+        Exception failure = new Exception("could not save", cause);
+        failure.setStackTrace(new StackTraceElement[] {frame("save", LINE), test, runner});
+        IllegalArgumentException suppressed = new IllegalArgumentException();
+        suppressed.setStackTrace(new StackTraceElement[] {frame("close", LINE), test, runner});
+        failure.addSuppressed(suppressed);
+        return failure;
+    }
+
+    private static List<String> trimmedLines(String text) {
+        return text.lines().map(String::trim).filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    }
+
+    private static String render(Throwable exception) {
+        return new StackTraceRenderer(new AnsiColors(false), AnsiColors.RED).render(new StringBuilder(), exception).toString();
+    }
+
+    @Test
+    public void testMatchesPrintStackTrace() {
+        Exception failure = chain();
+        StringWriter expected = new StringWriter();
+        failure.printStackTrace(new PrintWriter(expected));
+
+        String rendered = render(failure);
+        assertEquals(trimmedLines(expected.toString()), trimmedLines(rendered));
+        assertTrue(rendered, rendered.contains("... 2 more"));
+        assertTrue(rendered, rendered.contains("at java.lang.Thread.sleep(Native Method)"));
+        assertFalse("Lines are separated, not terminated", rendered.endsWith(System.lineSeparator()));
+    }
+
+    @Test
+    public void testCircularCauseIsReferenced() {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalStateException second = new IllegalStateException("second", first);
+        first.initCause(second);
+        first.setStackTrace(new StackTraceElement[] {frame("a", 1)});
+        second.setStackTrace(new StackTraceElement[] {frame("b", 2)});
+
+        String rendered = render(first);
+        assertTrue(rendered, rendered.contains("Caused by: java.lang.IllegalStateException: second"));
+        assertTrue(rendered, rendered.contains("Caused by: [CIRCULAR REFERENCE: java.lang.IllegalStateException: first]"));
+    }
+
+    @Test
+    public void testListenerWritesTheTraceInOnePiece() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        extension.setUseColors(false);
+        extension.setShowFullStackTraces(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        listener.afterTest(StubTestDescriptor.test(CLASS, "save", null), StubTestResult.failure(1, chain()));
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(output, output.contains("      java.lang.Exception: could not save" + System.lineSeparator()
+            + "        at com.example.FooTest.save(FooTest.java:42)"));
+        assertTrue(output, output.contains("      Caused by: java.lang.IllegalStateException: pool exhausted"));
+        assertTrue(output, output.contains("        Suppressed: java.lang.IllegalArgumentException"));
+    }
+}
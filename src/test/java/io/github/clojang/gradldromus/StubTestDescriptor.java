@@ -0,0 +1,85 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestDescriptor;
+
+/**
+ * Minimal {@link TestDescriptor} for driving the listener without a Gradle test run.
+ */
+public class StubTestDescriptor implements TestDescriptor {
+    private final String name;
+    private final String className;
+    private final TestDescriptor parent;
+    private final boolean composite;
+
+    /**
+     * Creates a descriptor.
+     *
+     * @param name the test (or suite) name
+     * @param className the test class name, or null for suites without a class
+     * @param parent the parent suite, or null for a root suite
+     * @param composite whether this descriptor is a suite
+     */
+    public StubTestDescriptor(String name, String className, TestDescriptor parent, boolean composite) {
+        this.name = name;
+        this.className = className;
+        this.parent = parent;
+        this.composite = composite;
+    }
+
+    /**
+     * Creates a root suite descriptor.
+     *
+     * @return a root suite
+     */
+    public static StubTestDescriptor rootSuite() {
+        return new StubTestDescriptor("Gradle Test Run :test", null, null, true);
+    }
+
+    /**
+     * Creates a class-level suite descriptor.
+     *
+     * @param className the test class name
+     * @param root the root suite
+     * @return a class suite
+     */
+    public static StubTestDescriptor classSuite(String className, TestDescriptor root) {
+        return new StubTestDescriptor(className, className, root, true);
+    }
+
+    /**
+     * Creates a test method descriptor.
+     *
+     * @param className the test class name
+     * @param methodName the test method name
+     * @param classSuite the enclosing class suite, may be null
+     * @return a test descriptor
+     */
+    public static StubTestDescriptor test(String className, String methodName, TestDescriptor classSuite) {
+        return new StubTestDescriptor(methodName, className, classSuite, false);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return name;
+    }
+
+    @Override
+    public String getClassName() {
+        return className;
+    }
+
+    @Override
+    public boolean isComposite() {
+        return composite;
+    }
+
+    @Override
+    public TestDescriptor getParent() {
+        return parent;
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestFailure;
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal {@link TestResult} for driving the listener without a Gradle test run.
+ */
+public class StubTestResult implements TestResult {
+    private final ResultType resultType;
+    private final long startTime;
+    private final long endTime;
+    private final List<Throwable> exceptions;
+
+    /**
+     * Creates a result.
+     *
+     * @param resultType the outcome
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
+     * @param exceptions the failures, empty unless the outcome is a failure
+     */
+    public StubTestResult(ResultType resultType, long startTime, long endTime, List<Throwable> exceptions) {
+        this.resultType = resultType;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * Creates a passing result.
+     *
+     * @param durationMillis how long the test took
+     * @return the result
+     */
+    public static StubTestResult success(long durationMillis) {
+        return new StubTestResult(ResultType.SUCCESS, 0, durationMillis, Collections.emptyList());
+    }
+
+    /**
+     * Creates a failing result.
+     *
+     * @param durationMillis how long the test took
+     * @param exception the failure
+     * @return the result
+     */
+    public static StubTestResult failure(long durationMillis, Throwable exception) {
+        return new StubTestResult(ResultType.FAILURE, 0, durationMillis, Collections.singletonList(exception));
+    }
+
+    /**
+     * Creates a skipped result.
+     *
+     * @return the result
+     */
+    public static StubTestResult skipped() {
+        return new StubTestResult(ResultType.SKIPPED, 0, 0, Collections.emptyList());
+    }
+
+    @Override
+    public ResultType getResultType() {
+        return resultType;
+    }
+
+    @Override
+    public Throwable getException() {
+        return exceptions.isEmpty() ? null : exceptions.get(0);
+    }
+
+    @Override
+    public List<TestFailure> getFailures() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Throwable> getExceptions() {
+        return exceptions;
+    }
+
+    // No @Override: only present in newer Gradle versions
+    public TestFailure getAssumptionFailure() {
+        return null;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public long getTestCount() {
+        return 1;
+    }
+
+    @Override
+    public long getSuccessfulTestCount() {
+        return resultType == ResultType.SUCCESS ? 1 : 0;
+    }
+
+    @Override
+    public long getFailedTestCount() {
+        return resultType == ResultType.FAILURE ? 1 : 0;
+    }
+
+    @Override
+    public long getSkippedTestCount() {
+        return resultType == ResultType.SKIPPED ? 1 : 0;
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.logging.configuration.ConsoleOutput;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TerminalProbeTest {
+    private static final int TPUT_WIDTH = 132;
+    private static final int RESIZED_WIDTH = 100;
+    private static final int LINES = 1000;
+
+    private final Map<String, String> env = new HashMap<>();
+    private final AtomicInteger tputCalls = new AtomicInteger();
+    private final AtomicInteger tputWidth = new AtomicInteger(TPUT_WIDTH);
+
+    private TerminalProbe newProbe(boolean hasConsole) {
+        return newProbe(hasConsole, ConsoleOutput.Auto);
+    }
+
+    private TerminalProbe newProbe(boolean hasConsole, ConsoleOutput consoleOutput) {
+        return new TerminalProbe(env::get, () -> {
+            tputCalls.incrementAndGet();
+            return tputWidth.get();
+        }, hasConsole, consoleOutput);
+    }
+
+    @Test
+    public void testProbesOnlyOnce() {
+        TerminalProbe probe = newProbe(true);
+        TerminalCapabilities first = probe.current();
+
+        for (int i = 0; i < LINES; i++) {
+            assertSame("Snapshot should be cached", first, probe.current());
+        }
+        assertEquals("tput should run exactly once", 1, tputCalls.get());
+    }
+
+    @Test
+    public void testPrinterDoesNotReprobePerLine() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setTerminalWidth(0);
+        TerminalProbe probe = newProbe(false);
+        CleanTerminalPrinter printer = new CleanTerminalPrinter(extension, probe);
+        PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+        for (int i = 0; i < LINES; i++) {
+            printer.println(out, "line " + i);
+        }
+
+        assertEquals("Width should come from the probe", TPUT_WIDTH, printer.getTerminalWidth());
+        assertEquals("tput should run exactly once", 1, tputCalls.get());
+        probe.close();
+    }
+
+    @Test
+    public void testColumnsEnvironmentTakesPrecedence() {
+        env.put("COLUMNS", String.valueOf(CleanTerminalPrinter.DEFAULT_TERM_LG_WIDTH));
+        TerminalCapabilities capabilities = newProbe(true).current();
+
+        assertEquals("COLUMNS should win", CleanTerminalPrinter.DEFAULT_TERM_LG_WIDTH, capabilities.getWidth());
+        assertEquals("tput should not run", 0, tputCalls.get());
+    }
+
+    @Test
+    public void testFallsBackToDefaultWidth() {
+        tputWidth.set(0);
+        assertEquals("Should default when nothing is known",
+            CleanTerminalPrinter.DEFAULT_TERM_SM_WIDTH, newProbe(false).current().getWidth());
+    }
+
+    @Test
+    public void testInteractiveDetection() {
+        env.put("TERM", "xterm-256color");
+        assertTrue("TERM should mark an interactive terminal", newProbe(false).current().isInteractive());
+
+        env.put("CI", "true");
+        assertFalse("CI should never be interactive", newProbe(true).current().isInteractive());
+
+        env.clear();
+        assertFalse("No TERM and no console should not be interactive", newProbe(false).current().isInteractive());
+    }
+
+    @Test
+    public void testGradleConsoleSettingDecides() {
+        env.put("TERM", "xterm-256color");
+        TerminalCapabilities plain = newProbe(true, ConsoleOutput.Plain).current();
+        assertFalse("--console=plain should write plain lines", plain.isInteractive());
+        assertFalse("--console=plain should not get colors", plain.isColorSupported());
+        TerminalCapabilities colored = newProbe(true, ConsoleOutput.Colored).current();
+        assertFalse("--console=colored should write plain lines", colored.isInteractive());
+        assertTrue("--console=colored should keep colors", colored.isColorSupported());
+
+        env.put("CI", "true");
+        assertTrue("--console=rich should win over the environment", newProbe(false, ConsoleOutput.Rich).current().isInteractive());
+
+        env.remove("CI");
+        env.put("JENKINS_URL", "https://ci.example.com/");
+        assertFalse("Jenkins should not be interactive", newProbe(false).current().isInteractive());
+    }
+
+    @Test
+    public void testColorSupport() {
+        assertTrue("Colors should be supported by default", newProbe(false).current().isColorSupported());
+
+        env.put("NO_COLOR", "1");
+        assertFalse("NO_COLOR should disable colors", newProbe(false).current().isColorSupported());
+
+        env.clear();
+        env.put("TERM", "dumb");
+        assertFalse("Dumb terminals should not get colors", newProbe(true).current().isColorSupported());
+    }
+
+    @Test
+    public void testRefreshPicksUpResize() {
+        TerminalProbe probe = newProbe(true);
+        assertEquals(TPUT_WIDTH, probe.current().getWidth());
+
+        tputWidth.set(RESIZED_WIDTH);
+        probe.refresh();
+        assertEquals("Refresh should replace the snapshot", RESIZED_WIDTH, probe.current().getWidth());
+    }
+}
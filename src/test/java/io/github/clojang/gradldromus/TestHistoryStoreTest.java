@@ -0,0 +1,131 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TestHistoryStoreTest {
+    private static final String TASK = ":test";
+    private static final String CLASS = "com.example.FooTest";
+    private static final long FIRST = 100;
+    private static final long SECOND = 200;
+    private static final double DELTA = 0.001;
+    private static final int BUILDS = 300;
+    private static final int TESTS = 10;
+    private static final int SMALL_LIMIT = 5;
+    private static final int TRUNCATED_BYTES = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path historyFile() {
+        return folder.getRoot().toPath().resolve(TestHistoryStore.RELATIVE_PATH);
+    }
+
+    @Test
+    public void testRoundTripsAcrossBuilds() {
+        try (TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)) {
+            store.record(TASK, CLASS, "bar", TestResult.ResultType.SUCCESS, FIRST);
+        }
+        try (TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)) {
+            store.record(TASK, CLASS, "bar", TestResult.ResultType.FAILURE, SECOND);
+            store.record(TASK, CLASS, "baz", TestResult.ResultType.SKIPPED, 0);
+        }
+
+        TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES);
+        TestHistoryEntry bar = store.get(TASK, CLASS, "bar");
+        assertEquals(2, bar.getRuns());
+        assertEquals(1, bar.getFailures());
+        assertEquals(TestResult.ResultType.FAILURE, bar.getLastOutcome());
+        assertEquals(SECOND, bar.getLastDurationMillis());
+        assertEquals(FIRST + TestHistoryEntry.AVERAGE_WEIGHT * (SECOND - FIRST), bar.getAverageDurationMillis(), DELTA);
+        assertEquals("Duration sketch is kept", 1 + DurationSketch.DECAY, bar.getDurations().totalWeight(), DELTA);
+
+        TestHistoryEntry baz = store.get(TASK, CLASS, "baz");
+        assertFalse("Skipped runs have no duration", baz.hasDuration());
+        assertNull("Unknown tests have no entry", store.get(":other:test", CLASS, "bar"));
+    }
+
+    @Test
+    public void testCompactsSupersededRecords() throws IOException {
+        for (int build = 0; build < BUILDS; build++) {
+            try (TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)) {
+                for (int i = 0; i < TESTS; i++) {
+                    store.record(TASK, CLASS, "test" + i, TestResult.ResultType.SUCCESS, i);
+                }
+            }
+        }
+
+        TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES);
+        assertEquals(TESTS, store.size());
+        assertTrue("Log should have been compacted", store.getRecordsInFile() < (long) BUILDS * TESTS);
+        assertEquals(BUILDS, store.get(TASK, CLASS, "test3").getRuns());
+    }
+
+    @Test
+    public void testKeepsMostRecentlyRunTestsWithinLimit() throws IOException, InterruptedException {
+        try (TestHistoryStore store = TestHistoryStore.open(historyFile(), SMALL_LIMIT)) {
+            for (int i = 0; i < TESTS; i++) {
+                store.record(TASK, CLASS, "test" + i, TestResult.ResultType.SUCCESS, i);
+                Thread.sleep(1);
+            }
+        }
+
+        TestHistoryStore store = TestHistoryStore.open(historyFile(), SMALL_LIMIT);
+        assertEquals(SMALL_LIMIT, store.size());
+        assertNull("Oldest tests are dropped", store.get(TASK, CLASS, "test0"));
+        assertNotNull("Newest tests are kept", store.get(TASK, CLASS, "test" + (TESTS - 1)));
+    }
+
+    @Test
+    public void testRecoversFromTruncatedLog() throws IOException {
+        try (TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)) {
+            store.record(TASK, CLASS, "kept", TestResult.ResultType.SUCCESS, FIRST);
+            store.record(TASK, CLASS, "cut", TestResult.ResultType.SUCCESS, FIRST);
+        }
+        byte[] bytes = Files.readAllBytes(historyFile());
+        Files.write(historyFile(), Arrays.copyOf(bytes, bytes.length - TRUNCATED_BYTES));
+
+        try (TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)) {
+            assertNotNull("Complete records survive", store.get(TASK, CLASS, "kept"));
+            store.record(TASK, CLASS, "next", TestResult.ResultType.SUCCESS, SECOND);
+        }
+
+        try (InputStream in = Files.newInputStream(historyFile())) {
+            Map<String, TestHistoryEntry> entries = TestHistoryStore.read(in);
+            assertEquals("Appending after a damaged record should not lose later records", 2, entries.size());
+            assertNotNull(entries.get(TestHistoryEntry.key(TASK, CLASS, "next")));
+        }
+    }
+
+    @Test
+    public void testListenerRecordsAttachedTasks() {
+        GradlDromusExtension extension = new GradlDromusExtension();
+        extension.setRenderMode(GradlDromusExtension.RENDER_MODE_PLAIN);
+        CustomTestListener listener = new CustomTestListener(extension, new PrintStream(OutputStream.nullOutputStream()));
+        TestHistoryStore store = TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES);
+        listener.attachHistory(TASK, store);
+        listener.setCurrentTaskPath(TASK);
+
+        listener.afterTest(StubTestDescriptor.test(CLASS, "bar", null), StubTestResult.success(FIRST));
+        store.close();
+
+        assertEquals(FIRST, TestHistoryStore.open(historyFile(), TestHistoryStore.DEFAULT_MAX_ENTRIES)
+            .get(TASK, CLASS, "bar").getLastDurationMillis());
+    }
+}
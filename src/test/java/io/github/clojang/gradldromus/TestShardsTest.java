@@ -0,0 +1,178 @@
+package io.github.clojang.gradldromus;
+
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.testing.TestResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestShardsTest {
+    private static final String TASK = ":test";
+    private static final long[] DURATIONS = {900, 700, 500, 400, 300, 300, 200, 100};
+    private static final int SHARDS = 3;
+    private static final long BALANCED_MAX = 1200;
+    private static final int FORKS = 2;
+    private static final int UNKNOWN_CLASSES = 100;
+    private static final long TEST_MILLIS = 40;
+    private static final int CI_NODES = 12;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Long> classDurations() {
+        Map<String, Long> durations = new HashMap<>();
+        for (int i = 0; i < DURATIONS.length; i++) {
+            durations.put("com.example.Test" + i, DURATIONS[i]);
+        }
+        return durations;
+    }
+
+    private static FileTreeElement classFile(String path) {
+        return (FileTreeElement) Proxy.newProxyInstance(TestShardsTest.class.getClassLoader(),
+            new Class<?>[] {FileTreeElement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getPath":
+                        return path;
+                    case "isDirectory":
+                        return false;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    @Test
+    public void testBalancesLongestFirst() {
+        TestShards shards = TestShards.plan(classDurations(), SHARDS);
+        long longest = 0;
+        int classes = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            longest = Math.max(longest, shards.totalMillis(shard));
+            classes += shards.classCount(shard);
+        }
+        assertEquals(DURATIONS.length, classes);
+        assertEquals("3400ms over 3 shards", BALANCED_MAX, longest);
+        assertTrue(shards.wallClockMillis(0, FORKS) <= shards.totalMillis(0));
+    }
+
+    @Test
+    public void testEveryClassRunsInExactlyOneShard() {
+        List<TestShards> plans = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            plans.add(TestShards.plan(classDurations(), SHARDS));
+        }
+        for (int i = 0; i < UNKNOWN_CLASSES + DURATIONS.length; i++) {
+            String path = "com/example/Test" + i + ".class";
+            int kept = 0;
+            for (int shard = 0; shard < SHARDS; shard++) {
+                // Each machine computes its own plan from the same history
+                Spec<FileTreeElement> exclude = plans.get(shard).excludeOtherShards(shard);
+                if (!exclude.isSatisfiedBy(classFile(path))) {
+                    kept++;
+                }
+            }
+            assertEquals(path, 1, kept);
+        }
+    }
+
+    @Test
+    public void testNestedClassesFollowTheirEnclosingClass() {
+        TestShards shards = TestShards.plan(classDurations(), SHARDS);
+        assertEquals(shards.shardOf("com.example.Test3"), shards.shardOf("com.example.Test3$Nested"));
+        Spec<FileTreeElement> exclude = shards.excludeOtherShards(shards.shardOf("com.example.Test3"));
+        assertFalse(exclude.isSatisfiedBy(classFile("com/example/Test3$Nested.class")));
+        assertFalse("Only class files are filtered", exclude.isSatisfiedBy(classFile("com/example/data.txt")));
+    }
+
+    @Test
+    public void testClassDurationsFromHistory() {
+        List<TestHistoryEntry> entries = new ArrayList<>();
+        entries.add(TestHistoryEntry.empty(TASK, "com.example.FooTest", "a").update(TestResult.ResultType.SUCCESS, TEST_MILLIS, 0));
+        entries.add(TestHistoryEntry.empty(TASK, "com.example.FooTest$Inner", "b").update(TestResult.ResultType.SUCCESS, TEST_MILLIS, 0));
+        entries.add(TestHistoryEntry.empty(TASK, "com.example.BarTest", "c").update(TestResult.ResultType.SKIPPED, 0, 0));
+        entries.add(TestHistoryEntry.empty(":other:test", "com.example.BazTest", "d").update(TestResult.ResultType.SUCCESS, 1, 0));
+
+        Map<String, Long> durations = TestShards.classDurations(entries, TASK);
+        assertEquals(1, durations.size());
+        assertEquals(Long.valueOf(2 * TEST_MILLIS), durations.get("com.example.FooTest"));
+    }
+
+    private Path durationsFile() throws IOException {
+        Path file = folder.newFile("shard-durations.txt").toPath();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# shared durations" + System.lineSeparator() + System.lineSeparator());
+            TestShards.writeDurations(out, TASK, classDurations());
+            TestShards.writeDurations(out, ":other:test", Map.of("com.example.Other", TEST_MILLIS));
+        }
+        return file;
+    }
+
+    @Test
+    public void testReadsSharedDurations() throws IOException {
+        Map<String, Long> durations = TestShards.readDurations(durationsFile(), TASK);
+        assertEquals(classDurations(), durations);
+
+        Path broken = folder.newFile("broken.txt").toPath();
+        Files.writeString(broken, TASK + " com.example.FooTest soon");
+        for (Path invalid : new Path[] {broken, folder.getRoot().toPath().resolve("missing.txt")}) {
+            try {
+                TestShards.readDurations(invalid, TASK);
+                throw new AssertionError("Accepted " + invalid);
+            } catch (InvalidUserDataException expected) {
+                assertTrue(expected.getMessage().contains(invalid.toString()));
+            }
+        }
+    }
+
+    @Test
+    public void testMachinesAgreeWithSharedOrNoDurations() throws IOException {
+        File shared = durationsFile().toFile();
+        for (File durations : new File[] {shared, null}) {
+            for (int i = 0; i < UNKNOWN_CLASSES + DURATIONS.length; i++) {
+                String path = "com/example/Test" + i + ".class";
+                int kept = 0;
+                for (int shard = 1; shard <= SHARDS; shard++) {
+                    // Each machine plans on its own, when its test task first filters classes
+                    Spec<FileTreeElement> exclude = TestShards.excludeOtherShards(durations, TASK,
+                        TestShards.Selection.parse(shard + "/" + SHARDS));
+                    if (!exclude.isSatisfiedBy(classFile(path))) {
+                        kept++;
+                    }
+                }
+                assertEquals(path, 1, kept);
+            }
+        }
+    }
+
+    @Test
+    public void testParsesSelection() {
+        TestShards.Selection selection = TestShards.Selection.parse("2/" + CI_NODES);
+        assertEquals(1, selection.getIndex());
+        assertEquals(CI_NODES, selection.getCount());
+        for (String invalid : new String[] {"0/3", "4/3", "3", "a/b", "1/0"}) {
+            try {
+                TestShards.Selection.parse(invalid);
+                throw new AssertionError("Accepted " + invalid);
+            } catch (InvalidUserDataException expected) {
+                assertTrue(expected.getMessage().contains(invalid));
+            }
+        }
+    }
+}